@@ -0,0 +1,36 @@
+package com.example.tutorials.junit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Serves one request to itself once the application is ready and then exits, so that a JVM started with
+ * {@code -XX:ArchiveClassesAtExit} records every class loaded up to the first request in its CDS archive.
+ * The {@code cds} Maven profile starts the application this way after packaging.
+ */
+@Component
+@ConditionalOnProperty(name = "users.startup.training-run", havingValue = "true")
+public class StartupTrainingRun {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupTrainingRun.class);
+
+    @EventListener
+    public void exitWhenReady(ApplicationReadyEvent event) throws IOException {
+        String port = event.getApplicationContext().getEnvironment().getProperty("local.server.port");
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/actuator/health").openConnection();
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        LOGGER.info("Training run answered its first request with {}, exiting", status);
+
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
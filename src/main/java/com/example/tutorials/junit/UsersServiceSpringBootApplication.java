@@ -1,6 +1,7 @@
 package com.example.tutorials.junit;
 
-import com.example.tutorials.junit.shared.SpringApplicationContext;
+import com.example.tutorials.junit.security.BCryptStrengthCalibrator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -14,12 +15,13 @@ public class UsersServiceSpringBootApplication {
 	}
 
 	@Bean
-	public BCryptPasswordEncoder bCryptPasswordEncoder() {
-		return new BCryptPasswordEncoder();
-	}
+	public BCryptPasswordEncoder bCryptPasswordEncoder(@Value("${users.password.bcrypt.strength:0}") int strength,
+														 @Value("${users.password.bcrypt.target-millis:250}") long targetMillis,
+														 @Value("${users.password.bcrypt.min-strength:10}") int minStrength,
+														 @Value("${users.password.bcrypt.max-strength:14}") int maxStrength) {
+		if (strength <= 0)
+			strength = BCryptStrengthCalibrator.calibrate(targetMillis, minStrength, maxStrength);
 
-	@Bean
-	public SpringApplicationContext springApplicationContext() {
-		return new SpringApplicationContext();
+		return new BCryptPasswordEncoder(strength);
 	}
 }
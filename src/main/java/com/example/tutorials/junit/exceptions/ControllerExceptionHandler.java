@@ -1,7 +1,9 @@
 package com.example.tutorials.junit.exceptions;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -21,4 +23,28 @@ public class ControllerExceptionHandler {
 
         return new ResponseEntity<>(customException, HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler(UsernameNotFoundException.class)
+    public ResponseEntity<CustomException> handleUsernameNotFoundException(UsernameNotFoundException exception){
+        CustomException customException = new CustomException(
+                "User not found",
+                HttpStatus.NOT_FOUND,
+                LocalDateTime.now()
+        );
+
+        return new ResponseEntity<>(customException, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<CustomException> handleServiceUnavailableException(ServiceUnavailableException exception){
+        CustomException customException = new CustomException(
+                exception.getMessage(),
+                HttpStatus.SERVICE_UNAVAILABLE,
+                LocalDateTime.now()
+        );
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(customException);
+    }
 }
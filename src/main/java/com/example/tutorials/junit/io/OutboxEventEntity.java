@@ -0,0 +1,67 @@
+package com.example.tutorials.junit.io;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A domain event waiting in the transactional outbox. It is inserted in the same transaction as the change
+ * it describes and deleted once {@code OutboxRelay} has handed it to the sink.
+ */
+@Entity
+@Table(name="outbox_events")
+public class OutboxEventEntity implements Serializable {
+
+    private static final long serialVersionUID = -2417760360871372180L;
+
+    public static final String SEQUENCE = "outbox_events_seq";
+
+    public static final int SEQUENCE_ALLOCATION_SIZE = 50;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = SEQUENCE)
+    @SequenceGenerator(name = SEQUENCE, sequenceName = SEQUENCE, allocationSize = SEQUENCE_ALLOCATION_SIZE)
+    private long id;
+
+    @Column(nullable=false, length=50)
+    private String aggregateId;
+
+    @Column(nullable=false, length=50)
+    private String type;
+
+    @Column(nullable=false, length=2000)
+    private String payload;
+
+    @Column(nullable=false)
+    private Instant createdAt;
+
+    protected OutboxEventEntity() {
+    }
+
+    public OutboxEventEntity(String aggregateId, String type, String payload) {
+        this.aggregateId = aggregateId;
+        this.type = type;
+        this.payload = payload;
+        this.createdAt = Instant.now();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getAggregateId() {
+        return aggregateId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.tutorials.junit.io;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * The lease one {@code OutboxRelay} holds on its shard's outbox, so that only one instance drains it at a time
+ * and events keep their order. There is a single row per shard, created by whichever relay claims it first
+ * through {@link OutboxLeaseRepository}.
+ */
+@Entity
+@Table(name="outbox_lease")
+public class OutboxLeaseEntity implements Serializable {
+
+    private static final long serialVersionUID = -6012871570563958331L;
+
+    public static final int ID = 1;
+
+    @Id
+    private int id;
+
+    @Column(nullable=false, length=50)
+    private String owner;
+
+    @Column(nullable=false)
+    private Instant expiresAt;
+
+    protected OutboxLeaseEntity() {
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
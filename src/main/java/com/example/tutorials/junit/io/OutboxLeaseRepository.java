@@ -0,0 +1,38 @@
+package com.example.tutorials.junit.io;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface OutboxLeaseRepository extends JpaRepository<OutboxLeaseEntity, Integer> {
+
+    /**
+     * Takes or renews the lease until {@code expiresAt} unless another owner holds it past {@code now};
+     * returns 1 if {@code owner} holds it afterwards, 0 if not or if the row does not exist yet.
+     */
+    @Transactional
+    @Modifying
+    @Query("update OutboxLeaseEntity lease set lease.owner = :owner, lease.expiresAt = :expiresAt"
+            + " where lease.id = " + OutboxLeaseEntity.ID + " and (lease.owner = :owner or lease.expiresAt < :now)")
+    int claim(@Param("owner") String owner, @Param("now") Instant now, @Param("expiresAt") Instant expiresAt);
+
+    /**
+     * Creates the lease row held by {@code owner}; fails with a unique violation if another relay created it first.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into outbox_lease (id, owner, expires_at) values (" + OutboxLeaseEntity.ID
+            + ", :owner, :expiresAt)", nativeQuery = true)
+    int create(@Param("owner") String owner, @Param("expiresAt") Instant expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxLeaseEntity lease set lease.expiresAt = :now where lease.owner = :owner")
+    int release(@Param("owner") String owner, @Param("now") Instant now);
+}
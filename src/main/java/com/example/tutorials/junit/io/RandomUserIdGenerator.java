@@ -0,0 +1,20 @@
+package com.example.tutorials.junit.io;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Random (version 4) UUIDs from the shared {@code SecureRandom}. New ids land anywhere in the
+ * {@code users.user_id} index.
+ */
+@Component
+@ConditionalOnProperty(name = "users.id.generator", havingValue = "random")
+public class RandomUserIdGenerator implements UserIdGenerator {
+
+    @Override
+    public UUID next() {
+        return UUID.randomUUID();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.tutorials.junit.io;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * R2DBC mapping of the same {@code users} table as {@link UserEntity}, used by the reactive profile. The
+ * {@code userId} is held as a {@link UUID} so {@link ReactiveUsersConfiguration} can store it in the same 16
+ * bytes as JPA; the accessors keep the canonical string.
+ */
+@Table("users")
+public class ReactiveUserEntity {
+
+    @Id
+    private Long id;
+
+    private UUID userId;
+
+    private String firstName;
+
+    private String lastName;
+
+    private String email;
+
+    private String emailReversed;
+
+    private String encryptedPassword;
+
+    @Version
+    private Long version;
+
+    private Instant updatedAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId == null ? null : userId.toString();
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId == null ? null : UUID.fromString(userId);
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+        this.emailReversed = UserEntity.reverse(email);
+    }
+
+    public String getEmailReversed() {
+        return emailReversed;
+    }
+
+    public void setEmailReversed(String emailReversed) {
+        this.emailReversed = emailReversed;
+    }
+
+    public String getEncryptedPassword() {
+        return encryptedPassword;
+    }
+
+    public void setEncryptedPassword(String encryptedPassword) {
+        this.encryptedPassword = encryptedPassword;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
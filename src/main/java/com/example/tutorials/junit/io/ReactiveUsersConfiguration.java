@@ -0,0 +1,89 @@
+package com.example.tutorials.junit.io;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+import org.springframework.data.r2dbc.mapping.event.BeforeConvertCallback;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Maps {@link ReactiveUserEntity} onto the {@code users} table exactly as JPA writes it, so both stacks can run
+ * against one database: {@code user_id} as the same 16 bytes {@link UserIdConverter} stores, ids from the
+ * same sequence, and {@code updated_at} set on every save like {@link UserEntity}'s {@code @PreUpdate}.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveUsersConfiguration {
+
+    /**
+     * The converters between {@link ReactiveUserEntity}'s {@code userId} and its {@code binary(16)} column.
+     */
+    public static List<Converter<?, ?>> userIdConverters() {
+        return List.of(UserIdWritingConverter.INSTANCE, UserIdReadingConverter.INSTANCE);
+    }
+
+    @Bean
+    public R2dbcCustomConversions r2dbcCustomConversions(ConnectionFactory connectionFactory) {
+        return R2dbcCustomConversions.of(DialectResolver.getDialect(connectionFactory), userIdConverters());
+    }
+
+    @Bean
+    public BeforeConvertCallback<ReactiveUserEntity> reactiveUserEntityCallback(DatabaseClient databaseClient) {
+        return beforeConvert(databaseClient);
+    }
+
+    /**
+     * Stamps {@code updated_at} and gives a new user its id from {@code users_seq}. A value taken this way is
+     * the top of a block Hibernate's pooled optimizer never hands out, so the ids cannot collide with JPA's.
+     */
+    public static BeforeConvertCallback<ReactiveUserEntity> beforeConvert(DatabaseClient databaseClient) {
+        return (userEntity, table) -> {
+            userEntity.setUpdatedAt(Instant.now());
+            if (userEntity.getId() != null)
+                return Mono.just(userEntity);
+
+            return databaseClient.sql("select next value for " + UserEntity.SEQUENCE)
+                    .map(row -> row.get(0, Long.class))
+                    .one()
+                    .map(id -> {
+                        userEntity.setId(id);
+                        return userEntity;
+                    });
+        };
+    }
+
+    @WritingConverter
+    enum UserIdWritingConverter implements Converter<UUID, byte[]> {
+
+        INSTANCE;
+
+        @Override
+        public byte[] convert(UUID userId) {
+            return UserIdConverter.toBytes(userId.toString());
+        }
+    }
+
+    @ReadingConverter
+    enum UserIdReadingConverter implements Converter<byte[], UUID> {
+
+        INSTANCE;
+
+        @Override
+        public UUID convert(byte[] bytes) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.tutorials.junit.io;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Repository
+public interface ReactiveUsersRepository extends R2dbcRepository<ReactiveUserEntity, Long> {
+
+    Mono<ReactiveUserEntity> findByEmail(String email);
+
+    Mono<ReactiveUserEntity> findByUserId(UUID userId);
+
+    Flux<ReactiveUserEntity> findAllByOrderByIdAsc(Pageable pageable);
+
+    Flux<ReactiveUserEntity> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    /**
+     * Counts a change to the users in {@code users_version} as {@link UsersVersionRepository#bump} does;
+     * returns 0 if the row does not exist yet.
+     */
+    @Modifying
+    @Query("update users_version set version = version + 1, updated_at = :now where id = " + UsersVersionEntity.ID)
+    Mono<Integer> bumpUsersVersion(@Param("now") Instant now);
+
+    /**
+     * Creates the {@code users_version} row at version 1 unless it exists already.
+     */
+    @Modifying
+    @Query("insert into users_version (id, version, updated_at) select " + UsersVersionEntity.ID + ", 1, :now"
+            + " where not exists (select 1 from users_version where id = " + UsersVersionEntity.ID + ")")
+    Mono<Integer> createUsersVersion(@Param("now") Instant now);
+}
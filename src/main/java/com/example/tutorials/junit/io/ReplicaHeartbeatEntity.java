@@ -0,0 +1,32 @@
+package com.example.tutorials.junit.io;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * The row {@code ReplicaRouting} stamps on each primary and reads back from its replicas to measure how far
+ * they lag. It is only mapped so that the schema includes the table; the row is read and written with JDBC.
+ */
+@Entity
+@Table(name="replica_heartbeat")
+public class ReplicaHeartbeatEntity implements Serializable {
+
+    private static final long serialVersionUID = 6033516624392311406L;
+
+    @Id
+    private int id;
+
+    @Column(nullable=false)
+    private long beatMillis;
+
+    protected ReplicaHeartbeatEntity() {
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getBeatMillis() {
+        return beatMillis;
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.tutorials.junit.io;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Gives every shard {@code users.replicas.count} read replicas and sends read-only transactions to them (see
+ * {@link ReplicaRoutingDataSource}). Every {@code users.replicas.lag-check-interval} the {@code replica_heartbeat}
+ * row of each primary is stamped with the current time and read back from its replicas; a replica whose copy is
+ * older than {@code users.replicas.max-lag}, or cannot be read, gets no reads until it catches up.
+ * <p>
+ * Keys passed to {@link #recordWrite(String...)}, such as the email and userId of a new user, are read from the
+ * primary for {@code users.replicas.read-your-writes} afterwards, so a client that has just signed up can log in
+ * and read itself back on this instance however far the replicas lag. With no replicas every read goes to the
+ * primary and none of this costs anything.
+ */
+@Component
+@Profile("!reactive")
+public class ReplicaRouting implements MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRouting.class);
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private static final int HEARTBEAT_ID = 1;
+
+    private final DataSourceProperties dataSourceProperties;
+
+    private final int replicaCount;
+
+    private final String urlTemplate;
+
+    private final ReplicaRoutingDataSource.Balancing balancing;
+
+    private final Duration maxLag;
+
+    private final Duration lagCheckInterval;
+
+    private final Cache<String, Boolean> recentWrites;
+
+    private final List<ReplicaRoutingDataSource> routedShards = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile MeterRegistry meterRegistry;
+
+    @Autowired
+    public ReplicaRouting(DataSourceProperties dataSourceProperties,
+                          @Value("${users.replicas.count:0}") int replicaCount,
+                          @Value("${users.replicas.url:}") String urlTemplate,
+                          @Value("${users.replicas.balancing:round-robin}") ReplicaRoutingDataSource.Balancing balancing,
+                          @Value("${users.replicas.max-lag:PT5S}") Duration maxLag,
+                          @Value("${users.replicas.read-your-writes:PT10S}") Duration readYourWrites,
+                          @Value("${users.replicas.lag-check-interval:PT1S}") Duration lagCheckInterval) {
+        if (replicaCount < 0)
+            throw new IllegalArgumentException("users.replicas.count must not be negative");
+
+        this.dataSourceProperties = dataSourceProperties;
+        this.replicaCount = replicaCount;
+        this.urlTemplate = urlTemplate;
+        this.balancing = balancing;
+        this.maxLag = maxLag;
+        this.lagCheckInterval = lagCheckInterval;
+        if (replicaCount == 0) {
+            this.recentWrites = null;
+            this.scheduler = null;
+        } else {
+            this.recentWrites = Caffeine.newBuilder()
+                    .maximumSize(100_000)
+                    .expireAfterWrite(readYourWrites)
+                    .build();
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-lag-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Without replicas, for code that is handed a {@code ReplicaRouting} but runs outside Spring.
+     */
+    public ReplicaRouting() {
+        this(null, 0, "", ReplicaRoutingDataSource.Balancing.ROUND_ROBIN, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+    }
+
+    public int getReplicaCount() {
+        return replicaCount;
+    }
+
+    /**
+     * Returns {@code primary} itself when there are no replicas, otherwise a data source that sends read-only
+     * transactions on {@code shard} to that shard's replicas.
+     */
+    public DataSource route(DataSource primary, int shard) {
+        if (replicaCount == 0)
+            return primary;
+
+        List<DataSource> replicas = new ArrayList<>(replicaCount);
+        for (int replica = 0; replica < replicaCount; replica++) {
+            replicas.add(dataSourceProperties.initializeDataSourceBuilder()
+                    .url(urlTemplate.replace("{shard}", Integer.toString(shard)).replace("{replica}", Integer.toString(replica)))
+                    .build());
+        }
+        ReplicaRoutingDataSource returnValue = new ReplicaRoutingDataSource(primary, replicas, balancing, maxLag);
+        synchronized (routedShards) {
+            routedShards.add(returnValue);
+            if (meterRegistry != null)
+                registerMeters(meterRegistry, routedShards.size() - 1);
+        }
+
+        return new LazyConnectionDataSourceProxy(returnValue);
+    }
+
+    /**
+     * Shard 0 is routed while {@code spring.datasource} is created, before any registry exists, so meters are
+     * registered here for the shards routed so far and by {@link #route} for the rest.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        synchronized (routedShards) {
+            meterRegistry = registry;
+            for (int shard = 0; shard < routedShards.size(); shard++) {
+                registerMeters(registry, shard);
+            }
+        }
+    }
+
+    public void recordWrite(String... keys) {
+        if (recentWrites == null)
+            return;
+
+        for (String key : keys) {
+            recentWrites.put(key, Boolean.TRUE);
+        }
+    }
+
+    public boolean wasRecentlyWritten(String key) {
+        return recentWrites != null && recentWrites.getIfPresent(key) != null;
+    }
+
+    /**
+     * Runs {@code read} against the primary if {@code key} was written within the read-your-writes window.
+     */
+    public <T> T readYourWrites(String key, Supplier<T> read) {
+        return wasRecentlyWritten(key) ? onPrimary(read) : read.get();
+    }
+
+    /**
+     * Runs {@code work} with every connection it opens, read-only or not, taken from the primary.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        Boolean previous = PRIMARY_REQUIRED.get();
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null)
+                PRIMARY_REQUIRED.remove();
+        }
+    }
+
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get() != null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (scheduler == null)
+            return;
+
+        long intervalNanos = lagCheckInterval.toNanos();
+        scheduler.scheduleWithFixedDelay(this::checkLag, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Measures every replica against its primary. A replica is only as fresh as the last heartbeat it has
+     * applied, so the lag reported is accurate to within one check interval.
+     */
+    public void checkLag() {
+        for (ReplicaRoutingDataSource routed : routedShards) {
+            long beatMillis = System.currentTimeMillis();
+            try {
+                JdbcTemplate primary = new JdbcTemplate(routed.getPrimary());
+                if (primary.update("update replica_heartbeat set beat_millis = ? where id = ?", beatMillis, HEARTBEAT_ID) == 0)
+                    primary.update("insert into replica_heartbeat (id, beat_millis) values (?, ?)", HEARTBEAT_ID, beatMillis);
+            } catch (DataAccessException e) {
+                LOGGER.warn("Could not write the replica heartbeat, reads stay on the primary: {}", e.getMessage());
+                for (int replica = 0; replica < routed.getReplicaCount(); replica++) {
+                    routed.setLag(replica, null);
+                }
+                continue;
+            }
+
+            for (int replica = 0; replica < routed.getReplicaCount(); replica++) {
+                try {
+                    Long replicaBeatMillis = new JdbcTemplate(routed.getReplica(replica)).queryForObject(
+                            "select beat_millis from replica_heartbeat where id = ?", Long.class, HEARTBEAT_ID);
+                    routed.setLag(replica, Duration.ofMillis(Math.max(0, beatMillis - replicaBeatMillis)));
+                } catch (DataAccessException e) {
+                    LOGGER.debug("Could not read the heartbeat of replica {}: {}", replica, e.getMessage());
+                    routed.setLag(replica, null);
+                }
+            }
+        }
+    }
+
+    private void registerMeters(MeterRegistry registry, int shard) {
+        ReplicaRoutingDataSource routed = routedShards.get(shard);
+        for (int replica = 0; replica < routed.getReplicaCount(); replica++) {
+            int index = replica;
+            Gauge.builder("users.replica.lag", routed, dataSource -> dataSource.getLagSeconds(index))
+                    .tags(Tags.of("shard", Integer.toString(shard), "replica", Integer.toString(replica)))
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+        FunctionCounter.builder("users.replica.reads", routed, ReplicaRoutingDataSource::getReplicaReads)
+                .tags(Tags.of("shard", Integer.toString(shard), "target", "replica"))
+                .register(registry);
+        FunctionCounter.builder("users.replica.reads", routed, ReplicaRoutingDataSource::getPrimaryReads)
+                .tags(Tags.of("shard", Integer.toString(shard), "target", "primary"))
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+        for (ReplicaRoutingDataSource routed : routedShards) {
+            routed.closeReplicas();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.tutorials.junit.io;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+
+@Configuration
+@Profile("!reactive")
+public class ReplicaRoutingConfiguration {
+
+    /**
+     * Puts the replicas of shard 0 behind {@code spring.datasource} itself, so JPA, {@code JdbcTemplate} and
+     * {@link ShardingConfiguration} all route through them; the other shards are routed where they are created.
+     */
+    @Bean
+    public static BeanPostProcessor replicaRoutingPostProcessor(ObjectProvider<ReplicaRouting> replicaRouting) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof DataSource && "dataSource".equals(beanName))
+                    return replicaRouting.getObject().route((DataSource) bean, 0);
+                return bean;
+            }
+        };
+    }
+}
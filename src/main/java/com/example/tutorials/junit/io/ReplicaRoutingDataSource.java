@@ -0,0 +1,184 @@
+package com.example.tutorials.junit.io;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A primary database and its read replicas. Connections opened inside a read-only transaction go to a
+ * replica whose last measured lag is within {@code maxLag}, picked round-robin or by fewest open
+ * connections; everything else, and read-only work when no replica qualifies or inside
+ * {@link ReplicaRouting#onPrimary}, goes to the primary.
+ * <p>
+ * The transaction's read-only flag is only set once its connection has been requested, so this has to sit
+ * behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which defers the
+ * choice to the first statement. {@link #unwrap(Class)} reaches the primary, e.g. its connection pool.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    public enum Balancing {
+        ROUND_ROBIN, LEAST_CONNECTIONS
+    }
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final Balancing balancing;
+
+    private final long maxLagMillis;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final AtomicLong replicaReads = new AtomicLong();
+
+    private final AtomicLong primaryReads = new AtomicLong();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Balancing balancing, Duration maxLag) {
+        this.primary = primary;
+        for (DataSource replica : replicas) {
+            this.replicas.add(new Replica(replica));
+        }
+        this.balancing = balancing;
+        this.maxLagMillis = maxLag.toMillis();
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public DataSource getReplica(int replica) {
+        return replicas.get(replica).dataSource;
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    /**
+     * Records how far {@code replica} was behind at the last check, or {@code null} if it could not be measured.
+     */
+    public void setLag(int replica, Duration lag) {
+        replicas.get(replica).lagMillis = lag == null ? Long.MAX_VALUE : lag.toMillis();
+    }
+
+    /**
+     * Seconds {@code replica} was behind at the last check, NaN if it could not be measured.
+     */
+    public double getLagSeconds(int replica) {
+        long lagMillis = replicas.get(replica).lagMillis;
+        return lagMillis == Long.MAX_VALUE ? Double.NaN : lagMillis / 1000.0;
+    }
+
+    public long getReplicaReads() {
+        return replicaReads.get();
+    }
+
+    public long getPrimaryReads() {
+        return primaryReads.get();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+            return primary.getConnection();
+
+        Replica replica = ReplicaRouting.isPrimaryRequired() ? null : selectReplica();
+        if (replica == null) {
+            primaryReads.incrementAndGet();
+            return primary.getConnection();
+        }
+
+        replicaReads.incrementAndGet();
+        return balancing == Balancing.LEAST_CONNECTIONS
+                ? counted(replica, replica.dataSource.getConnection())
+                : replica.dataSource.getConnection();
+    }
+
+    /**
+     * Explicit credentials are the primary's, as replicas may use their own, so these connections always go there.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return (T) this;
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    /**
+     * The primary is left open for whoever created it.
+     */
+    public void closeReplicas() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable)
+                ((Closeable) replica.dataSource).close();
+        }
+    }
+
+    private Replica selectReplica() {
+        Replica returnValue = null;
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(1, replicas.size()));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica candidate = replicas.get((start + i) % replicas.size());
+            if (candidate.lagMillis > maxLagMillis)
+                continue;
+            if (balancing == Balancing.ROUND_ROBIN)
+                return candidate;
+            if (returnValue == null || candidate.openConnections.get() < returnValue.openConnections.get())
+                returnValue = candidate;
+        }
+        return returnValue;
+    }
+
+    private Connection counted(Replica replica, Connection connection) {
+        replica.openConnections.incrementAndGet();
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && closed.compareAndSet(false, true))
+                        replica.openConnections.decrementAndGet();
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    private static final class Replica {
+
+        private final DataSource dataSource;
+
+        private final AtomicInteger openConnections = new AtomicInteger();
+
+        private volatile long lagMillis = Long.MAX_VALUE;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
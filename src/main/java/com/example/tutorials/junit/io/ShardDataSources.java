@@ -0,0 +1,40 @@
+package com.example.tutorials.junit.io;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * One {@link DataSource} per shard. Shard 0 is the application's own {@code spring.datasource}; the others
+ * are created for sharding and closed with it, through any routing wrapper in front of them.
+ */
+public class ShardDataSources implements Closeable {
+
+    private final List<DataSource> dataSources;
+
+    public ShardDataSources(List<DataSource> dataSources) {
+        this.dataSources = dataSources;
+    }
+
+    public DataSource get(int shard) {
+        return dataSources.get(shard);
+    }
+
+    public int size() {
+        return dataSources.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource dataSource : dataSources.subList(1, dataSources.size())) {
+            try {
+                if (dataSource.isWrapperFor(Closeable.class))
+                    dataSource.unwrap(Closeable.class).close();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
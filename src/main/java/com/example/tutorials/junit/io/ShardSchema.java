@@ -0,0 +1,103 @@
+package com.example.tutorials.junit.io;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.tool.schema.Action;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Creates the schema on every shard when Hibernate manages it ({@code ddl-auto} create or create-drop).
+ * Hibernate only creates it through its "any" connection, shard 0, so the DDL is also captured as a script
+ * while the entity manager factory boots and replayed on the other shards once all beans exist.
+ * <p>
+ * Each sequence passed in, by name with its allocation size, is then striped: shard {@code s} of N hands out
+ * blocks {@code s}, {@code s + N}, {@code s + 2N}, ... so ids stay unique across shards and keyset pages can be
+ * merged by id. Startup fails if a shard has a sequence that was not striped this way.
+ */
+public class ShardSchema implements SmartInitializingSingleton {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardSchema.class);
+
+    private final ShardDataSources dataSources;
+
+    private final Map<String, Integer> sequenceAllocationSizes;
+
+    private final StringWriter createScript = new StringWriter();
+
+    private boolean capturing;
+
+    public ShardSchema(ShardDataSources dataSources, Map<String, Integer> sequenceAllocationSizes) {
+        this.dataSources = dataSources;
+        this.sequenceAllocationSizes = sequenceAllocationSizes;
+    }
+
+    void capture(Map<String, Object> hibernateProperties) {
+        Object ddlAuto = hibernateProperties.get(AvailableSettings.HBM2DDL_AUTO);
+        if (!"create".equals(ddlAuto) && !"create-drop".equals(ddlAuto))
+            return;
+
+        // Any JPA schema-generation action makes Hibernate ignore ddl-auto, so keep its database action explicitly
+        hibernateProperties.put(AvailableSettings.HBM2DDL_DATABASE_ACTION, Action.interpretHbm2ddlSetting(ddlAuto));
+        hibernateProperties.put(AvailableSettings.HBM2DDL_SCRIPTS_ACTION, "create");
+        hibernateProperties.put(AvailableSettings.HBM2DDL_SCRIPTS_CREATE_TARGET, createScript);
+        hibernateProperties.put(AvailableSettings.HBM2DDL_DELIMITER, ";");
+        capturing = true;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!capturing)
+            return;
+
+        String script = createScript.toString();
+        for (int shard = 1; shard < dataSources.size(); shard++) {
+            DataSource dataSource = dataSources.get(shard);
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            try {
+                ScriptUtils.executeSqlScript(connection, new ByteArrayResource(script.getBytes(StandardCharsets.UTF_8)));
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        }
+
+        for (int shard = 0; shard < dataSources.size(); shard++) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSources.get(shard));
+            for (Map.Entry<String, Integer> sequence : sequenceAllocationSizes.entrySet()) {
+                // Hibernate's pooled optimizer reads each value as the top of a block of allocation size ids
+                int allocationSize = sequence.getValue();
+                jdbcTemplate.execute("alter sequence " + sequence.getKey()
+                        + " restart with " + (long) allocationSize * (shard + 1)
+                        + " increment by " + (long) allocationSize * dataSources.size());
+            }
+            verifyStriped(jdbcTemplate, shard);
+        }
+
+        LOGGER.info("Created the users schema on {} shards", dataSources.size());
+    }
+
+    private void verifyStriped(JdbcTemplate jdbcTemplate, int shard) {
+        List<Map<String, Object>> sequences = jdbcTemplate.queryForList("select sequence_name, increment"
+                + " from information_schema.sequences where sequence_schema = current_schema");
+        for (Map<String, Object> sequence : sequences) {
+            String name = ((String) sequence.get("sequence_name")).toLowerCase(Locale.ROOT);
+            Integer allocationSize = sequenceAllocationSizes.get(name);
+            long increment = ((Number) sequence.get("increment")).longValue();
+            if (allocationSize == null || increment != (long) allocationSize * dataSources.size())
+                throw new IllegalStateException("Sequence " + name + " on shard " + shard + " increments by "
+                        + increment + " and is not striped across " + dataSources.size() + " shards");
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.tutorials.junit.io;
+
+import org.hibernate.MultiTenancyStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+import org.hibernate.engine.jdbc.connections.spi.AbstractDataSourceBasedMultiTenantConnectionProviderImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spreads the {@code users} store over {@code users.sharding.shards} databases using Hibernate's
+ * database-per-tenant multi-tenancy, with shards as tenants: every session, and so every repository call
+ * and transaction, opens its connection on {@link UserShards#currentShard()}. Hibernate keeps sequence
+ * allocation state per tenant, so pooled ids never leak from one shard into another.
+ * <p>
+ * Shard 0 is {@code spring.datasource}; shard {@code s} connects to {@code users.sharding.url} with
+ * {@code {shard}} replaced by {@code s}, using the same driver and credentials. Each shard has its own
+ * replicas, see {@link ReplicaRouting}.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnExpression("${users.sharding.shards:1} > 1")
+public class ShardingConfiguration {
+
+    @Bean
+    public ShardDataSources shardDataSources(DataSource dataSource, DataSourceProperties dataSourceProperties,
+                                             UserShards userShards, ReplicaRouting replicaRouting,
+                                             @Value("${users.sharding.url}") String urlTemplate) {
+        List<DataSource> dataSources = new ArrayList<>(userShards.getShardCount());
+        dataSources.add(dataSource);
+        for (int shard = 1; shard < userShards.getShardCount(); shard++) {
+            DataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                    .url(urlTemplate.replace("{shard}", Integer.toString(shard)))
+                    .build();
+            dataSources.add(replicaRouting.route(primary, shard));
+        }
+        return new ShardDataSources(dataSources);
+    }
+
+    @Bean
+    public ShardSchema shardSchema(ShardDataSources shardDataSources) {
+        return new ShardSchema(shardDataSources, Map.of(
+                UserEntity.SEQUENCE, UserEntity.SEQUENCE_ALLOCATION_SIZE,
+                OutboxEventEntity.SEQUENCE, OutboxEventEntity.SEQUENCE_ALLOCATION_SIZE));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardingHibernatePropertiesCustomizer(ShardDataSources shardDataSources,
+                                                                              ShardSchema shardSchema) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.MULTI_TENANT, MultiTenancyStrategy.DATABASE);
+            hibernateProperties.put(AvailableSettings.MULTI_TENANT_CONNECTION_PROVIDER, new ShardConnectionProvider(shardDataSources));
+            hibernateProperties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, new CurrentShardResolver());
+            shardSchema.capture(hibernateProperties);
+        };
+    }
+
+    private static class ShardConnectionProvider extends AbstractDataSourceBasedMultiTenantConnectionProviderImpl {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ShardDataSources shardDataSources;
+
+        private ShardConnectionProvider(ShardDataSources shardDataSources) {
+            this.shardDataSources = shardDataSources;
+        }
+
+        @Override
+        protected DataSource selectAnyDataSource() {
+            return shardDataSources.get(0);
+        }
+
+        @Override
+        protected DataSource selectDataSource(String tenantIdentifier) {
+            return shardDataSources.get(Integer.parseInt(tenantIdentifier));
+        }
+    }
+
+    private static class CurrentShardResolver implements CurrentTenantIdentifierResolver {
+
+        @Override
+        public String resolveCurrentTenantIdentifier() {
+            return Integer.toString(UserShards.currentShard());
+        }
+
+        @Override
+        public boolean validateExistingCurrentSessions() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.tutorials.junit.io;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Version 7 UUIDs (RFC 9562): a 48-bit Unix millisecond timestamp, then a 12-bit counter, then random bits.
+ * New ids sort after older ones, so inserts append to the right edge of the {@code users.user_id} index
+ * instead of landing on a random page.
+ * <p>
+ * Every thread keeps its own timestamp and counter, which makes its ids strictly increasing without any
+ * shared lock. The counter starts at a random value below 2048 each millisecond; if it runs out, the thread
+ * borrows the next millisecond. Random bits come from {@link ThreadLocalRandom}, not a shared
+ * {@code SecureRandom}; a userId names a user but grants nothing, since access is checked on the token.
+ */
+@Component
+@ConditionalOnProperty(name = "users.id.generator", havingValue = "time-ordered", matchIfMissing = true)
+public class TimeOrderedUserIdGenerator implements UserIdGenerator {
+
+    private static final int MAX_COUNTER = 0xFFF;
+
+    private final LongSupplier clock;
+
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    public TimeOrderedUserIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    TimeOrderedUserIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID next() {
+        State current = state.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long now = clock.getAsLong();
+        if (now > current.millis) {
+            current.millis = now;
+            current.counter = random.nextInt(MAX_COUNTER / 2 + 1);
+        } else if (++current.counter > MAX_COUNTER) {
+            current.millis++;
+            current.counter = 0;
+        }
+
+        long mostSignificantBits = (current.millis << 16) | 0x7000L | current.counter;
+        long leastSignificantBits = (random.nextLong() & 0x3FFF_FFFF_FFFF_FFFFL) | 0x8000_0000_0000_0000L;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    public static long timestampMillis(UUID id) {
+        return id.getMostSignificantBits() >>> 16;
+    }
+
+    private static final class State {
+
+        private long millis = Long.MIN_VALUE;
+
+        private int counter;
+    }
+}
@@ -2,18 +2,28 @@ package com.example.tutorials.junit.io;
 
 import javax.persistence.*;
 import java.io.Serializable;
+import java.time.Instant;
 
 @Entity
-@Table(name="users")
+@Table(name="users", indexes = {
+        @Index(name = "ux_users_email", columnList = "email", unique = true),
+        @Index(name = "ix_users_email_reversed", columnList = "email_reversed")
+})
 public class UserEntity implements Serializable {
 
     private static final long serialVersionUID = 5313493413859894403L;
 
+    public static final String SEQUENCE = "users_seq";
+
+    public static final int SEQUENCE_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = SEQUENCE)
+    @SequenceGenerator(name = SEQUENCE, sequenceName = SEQUENCE, allocationSize = SEQUENCE_ALLOCATION_SIZE)
     private long id;
 
-    @Column(nullable=false, unique = true)
+    @Convert(converter = UserIdConverter.class)
+    @Column(nullable=false, unique = true, columnDefinition = "binary(" + UserIdConverter.BYTES + ")")
     private String userId;
 
     @Column(nullable=false, length=50)
@@ -25,9 +35,24 @@ public class UserEntity implements Serializable {
     @Column(nullable=false, length=120)
     private String email;
 
+    @Column(name="email_reversed", nullable=false, length=120)
+    private String emailReversed;
+
     @Column(nullable=false)
     private String encryptedPassword;
 
+    @Version
+    private long version;
+
+    @Column(name="updated_at", nullable=false)
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+    }
+
     public long getId() {
         return id;
     }
@@ -66,6 +91,11 @@ public class UserEntity implements Serializable {
 
     public void setEmail(String email) {
         this.email = email;
+        this.emailReversed = reverse(email);
+    }
+
+    public String getEmailReversed() {
+        return emailReversed;
     }
 
     public String getEncryptedPassword() {
@@ -76,4 +106,15 @@ public class UserEntity implements Serializable {
         this.encryptedPassword = encryptedPassword;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public static String reverse(String value) {
+        return value == null ? null : new StringBuilder(value).reverse().toString();
+    }
 }
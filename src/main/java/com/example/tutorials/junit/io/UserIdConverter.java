@@ -0,0 +1,56 @@
+package com.example.tutorials.junit.io;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Stores a {@code userId} as its 16 raw bytes, most significant first, so binary order is UUID order, while
+ * everything above the database keeps the canonical 36-character string.
+ */
+@Converter
+public class UserIdConverter implements AttributeConverter<String, byte[]> {
+
+    public static final int BYTES = 16;
+
+    @Override
+    public byte[] convertToDatabaseColumn(String userId) {
+        return userId == null ? null : toBytes(userId);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] bytes) {
+        return bytes == null ? null : fromBytes(bytes);
+    }
+
+    /**
+     * Returns {@code null} unless {@code userId} is a UUID in the canonical 8-4-4-4-12 hex form.
+     */
+    public static UUID parse(String userId) {
+        if (userId == null || userId.length() != 36)
+            return null;
+
+        try {
+            return UUID.fromString(userId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public static byte[] toBytes(String userId) {
+        UUID uuid = parse(userId);
+        if (uuid == null)
+            throw new IllegalArgumentException("Not a userId: " + userId);
+
+        return ByteBuffer.allocate(BYTES)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static String fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.tutorials.junit.io;
+
+import java.util.UUID;
+
+/**
+ * Source of new {@code userId}s, chosen with {@code users.id.generator}. Implementations are called from many
+ * threads at once. {@link UserShards#newUserId(String)} overwrites the low 12 bits with the user's shard.
+ */
+public interface UserIdGenerator {
+
+    UUID next();
+}
@@ -0,0 +1,190 @@
+package com.example.tutorials.junit.io;
+
+import com.example.tutorials.junit.shared.StringHash;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Places every user on one of {@code users.sharding.shards} databases. A user lives on the shard its email
+ * hashes to, by jump consistent hash (Lamping and Veach, 2014), so growing from N to N + 1 shards moves only
+ * 1/(N + 1) of the users. The shard is also written into the last three hex digits of the generated
+ * {@code userId}, so a lookup by either key goes straight to one shard without a directory.
+ * <p>
+ * Repository calls and transactions are routed by running them inside {@link #onShard(int, Supplier)};
+ * queries that need every shard go through {@link #scatter(IntFunction)}, which runs them in parallel.
+ * With the default single shard all of this runs inline against the one database.
+ */
+@Component
+@Profile("!reactive")
+public class UserShards {
+
+    public static final int MAX_SHARDS = 0x1000;
+
+    private static final long SHARD_MASK = MAX_SHARDS - 1;
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int shardCount;
+
+    private final UserIdGenerator idGenerator;
+
+    private final ExecutorService scatterExecutor;
+
+    @Autowired
+    public UserShards(@Value("${users.sharding.shards:1}") int shardCount,
+                      @Value("${users.sharding.scatter-threads:0}") int scatterThreads,
+                      UserIdGenerator idGenerator) {
+        if (shardCount < 1 || shardCount > MAX_SHARDS)
+            throw new IllegalArgumentException("users.sharding.shards must be between 1 and " + MAX_SHARDS);
+
+        this.shardCount = shardCount;
+        this.idGenerator = idGenerator;
+        if (shardCount == 1) {
+            this.scatterExecutor = null;
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            this.scatterExecutor = Executors.newFixedThreadPool(
+                    scatterThreads > 0 ? scatterThreads : shardCount * Runtime.getRuntime().availableProcessors(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "user-shards-" + threadNumber.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    public UserShards(int shardCount) {
+        this(shardCount, 0, new TimeOrderedUserIdGenerator());
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int shardForEmail(String email) {
+        return jumpHash(StringHash.hash64(email), shardCount);
+    }
+
+    /**
+     * A new UUID string from the {@link UserIdGenerator} whose last three hex digits name the shard of {@code email}.
+     */
+    public String newUserId(String email) {
+        UUID generated = idGenerator.next();
+        long leastSignificantBits = (generated.getLeastSignificantBits() & ~SHARD_MASK) | shardForEmail(email);
+        return new UUID(generated.getMostSignificantBits(), leastSignificantBits).toString();
+    }
+
+    /**
+     * Returns -1 when {@code userId} is malformed or does not name one of the shards, i.e. no such user can exist.
+     */
+    public int shardOfUserId(String userId) {
+        UUID uuid = UserIdConverter.parse(userId);
+        if (uuid == null)
+            return -1;
+
+        if (shardCount == 1)
+            return 0;
+
+        int returnValue = (int) (uuid.getLeastSignificantBits() & SHARD_MASK);
+        return returnValue < shardCount ? returnValue : -1;
+    }
+
+    /**
+     * Runs {@code work} with its repository calls and transactions routed to {@code shard}. A transaction
+     * is bound to the shard it started on, so switching shards inside one is refused.
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        int current = previous == null ? 0 : previous;
+        if (shard != current && TransactionSynchronizationManager.isActualTransactionActive())
+            throw new IllegalStateException("Cannot switch to shard " + shard + " inside a transaction on shard " + current);
+
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null)
+                CURRENT.remove();
+            else
+                CURRENT.set(previous);
+        }
+    }
+
+    public void forEachShard(IntConsumer work) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            onShard(target, () -> {
+                work.accept(target);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Runs {@code work} on every shard in parallel and returns the results by shard.
+     */
+    public <T> List<T> scatter(IntFunction<T> work) {
+        if (shardCount == 1)
+            return Collections.singletonList(onShard(0, () -> work.apply(0)));
+
+        List<CompletableFuture<T>> futures = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            int target = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> onShard(target, () -> work.apply(target)), scatterExecutor));
+        }
+
+        List<T> returnValue = new ArrayList<>(shardCount);
+        try {
+            for (CompletableFuture<T> future : futures) {
+                returnValue.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+        return returnValue;
+    }
+
+    /**
+     * The shard the calling thread is routed to; 0 outside {@link #onShard(int, Supplier)}.
+     */
+    public static int currentShard() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scatterExecutor != null)
+            scatterExecutor.shutdown();
+    }
+
+    static int jumpHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.tutorials.junit.io;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Read-through caching of {@link UserEntity} lookups. The provider is whatever
+ * {@code spring.cache.type} selects (Caffeine in-process by default, or Redis, Hazelcast, JCache, ...
+ * for multi-node deployments); every cache manager is made transaction-aware so entries written
+ * inside a transaction only become visible once it commits.
+ */
+@Configuration
+@EnableCaching
+public class UsersCacheConfiguration {
+
+    public static final String USERS_BY_EMAIL = "usersByEmail";
+
+    public static final String USERS_BY_USER_ID = "usersByUserId";
+
+    @Bean
+    public static BeanPostProcessor transactionAwareCacheManagerPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof CacheManager && !(bean instanceof TransactionAwareCacheManagerProxy))
+                    return new TransactionAwareCacheManagerProxy((CacheManager) bean);
+                return bean;
+            }
+        };
+    }
+}
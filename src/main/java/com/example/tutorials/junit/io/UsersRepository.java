@@ -1,21 +1,74 @@
 package com.example.tutorials.junit.io;
 
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import static com.example.tutorials.junit.io.UsersCacheConfiguration.USERS_BY_EMAIL;
+import static com.example.tutorials.junit.io.UsersCacheConfiguration.USERS_BY_USER_ID;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+/**
+ * Query methods run in read-only transactions, which {@link ReplicaRoutingDataSource} may send to a replica,
+ * unless they join the caller's read-write transaction.
+ */
 @Repository
+@Transactional(readOnly = true)
 public interface UsersRepository extends PagingAndSortingRepository<UserEntity, Long> {
 
+    @Cacheable(cacheNames = USERS_BY_EMAIL, key = "#p0", unless = "#result == null")
     UserEntity findByEmail(String email);
 
+    @Cacheable(cacheNames = USERS_BY_USER_ID, key = "#p0", unless = "#result == null")
     UserEntity findByUserId(String userId);
 
+    @Override
+    @Transactional
+    @Caching(put = {
+            @CachePut(cacheNames = USERS_BY_EMAIL, key = "#result.email"),
+            @CachePut(cacheNames = USERS_BY_USER_ID, key = "#result.userId")
+    })
+    <S extends UserEntity> S save(S entity);
+
+    @Query("select user.email from UserEntity user where user.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
     UserEntity findByEmailEndsWith(String email);
 
-    @Query("select user from UserEntity user where user.email like %:emailDomain")
-    List<UserEntity> findUsersWithEmailEndingWith(@Param("emailDomain") String emailDomain);
+    List<UserEntity> findByEmailReversedStartingWith(String emailReversedPrefix);
+
+    default List<UserEntity> findUsersWithEmailEndingWith(String emailDomain) {
+        return findByEmailReversedStartingWith(UserEntity.reverse(emailDomain));
+    }
+
+    List<UserEntity> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    List<UserEntity> findByOrderByIdAsc(Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select user from UserEntity user order by user.id")
+    Stream<UserEntity> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select user.email from UserEntity user")
+    Stream<String> streamAllEmails();
+
+    /**
+     * Email, encrypted password and userId of every user, without loading the entities.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select user.email, user.encryptedPassword, user.userId from UserEntity user")
+    Stream<Object[]> streamAllCredentials();
 }
@@ -0,0 +1,43 @@
+package com.example.tutorials.junit.io;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A change counter for the {@code users} table of one shard, bumped in the same transaction as every write to it,
+ * so the users list's validators are read from one row instead of scanning the table and a rolled back write
+ * never moves them. The single row is created by the first write through {@link UsersVersionRepository}.
+ */
+@Entity
+@Table(name="users_version")
+public class UsersVersionEntity implements Serializable {
+
+    private static final long serialVersionUID = 2690422315046738114L;
+
+    public static final int ID = 1;
+
+    @Id
+    private int id;
+
+    @Column(nullable=false)
+    private long version;
+
+    @Column(name="updated_at", nullable=false)
+    private Instant updatedAt;
+
+    protected UsersVersionEntity() {
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.tutorials.junit.io;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface UsersVersionRepository extends JpaRepository<UsersVersionEntity, Integer> {
+
+    /**
+     * Counts one more change at {@code now}; returns 0 if the row does not exist yet.
+     */
+    @Transactional
+    @Modifying
+    @Query("update UsersVersionEntity usersVersion set usersVersion.version = usersVersion.version + 1,"
+            + " usersVersion.updatedAt = :now where usersVersion.id = " + UsersVersionEntity.ID)
+    int bump(@Param("now") Instant now);
+
+    /**
+     * Creates the row at version 0; fails with a unique violation if another transaction created it first.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into users_version (id, version, updated_at) values (" + UsersVersionEntity.ID
+            + ", 0, :now)", nativeQuery = true)
+    int create(@Param("now") Instant now);
+}
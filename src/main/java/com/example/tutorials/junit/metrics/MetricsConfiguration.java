@@ -0,0 +1,63 @@
+package com.example.tutorials.junit.metrics;
+
+import com.example.tutorials.junit.security.VerifiedTokenCache;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics beyond what Actuator records on its own ({@code http.server.requests} and
+ * {@code spring.data.repository.invocations}): {@code @Timed} support for the service layer,
+ * verified token cache metrics and per-request phase tracing.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public MeterBinder verifiedTokenCacheMetrics(VerifiedTokenCache verifiedTokenCache) {
+        return meterRegistry -> CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokenCache.getCache(), "verifiedTokens");
+    }
+
+    /**
+     * Runs just inside Actuator's own metrics filter, so the trace covers Spring Security as well.
+     */
+    @Bean
+    public FilterRegistrationBean<RequestTracingFilter> requestTracingFilter(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<RequestTracingFilter> returnValue =
+                new FilterRegistrationBean<>(new RequestTracingFilter(meterRegistry));
+        returnValue.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return returnValue;
+    }
+
+    /**
+     * Charges every repository call to the {@link RequestTrace#PERSISTENCE} phase of the current request.
+     */
+    @Bean
+    public static BeanPostProcessor requestTraceRepositoryListenerPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof RepositoryFactoryBeanSupport)
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addInvocationListener(invocation ->
+                                    RequestTrace.record(RequestTrace.PERSISTENCE, invocation.getDuration(TimeUnit.NANOSECONDS))));
+                return bean;
+            }
+        };
+    }
+}
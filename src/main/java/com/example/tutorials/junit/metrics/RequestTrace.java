@@ -0,0 +1,129 @@
+package com.example.tutorials.junit.metrics;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Per-request breakdown of where the calling thread spent its time. Phases nest, and each phase
+ * is charged only its exclusive time: a repository call made while hashing counts as persistence,
+ * not hashing. Whatever no phase claims is reported as {@link #OTHER}.
+ * <p>
+ * Outside a traced request every method is a no-op, so callers never need to check.
+ */
+public final class RequestTrace {
+
+    public static final String FILTER = "filter";
+
+    public static final String MAPPING = "mapping";
+
+    public static final String HASHING = "hashing";
+
+    public static final String PERSISTENCE = "persistence";
+
+    public static final String OTHER = "other";
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+
+    private final Deque<OpenPhase> openPhases = new ArrayDeque<>();
+
+    private long totalNanos;
+
+    private RequestTrace() {
+    }
+
+    public static RequestTrace start() {
+        RequestTrace returnValue = new RequestTrace();
+        CURRENT.set(returnValue);
+        return returnValue;
+    }
+
+    public static <T> T time(String phase, Supplier<T> work) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null)
+            return work.get();
+
+        trace.enter(phase);
+        try {
+            return work.get();
+        } finally {
+            trace.exit();
+        }
+    }
+
+    /**
+     * Charges work that has already been timed elsewhere, e.g. by a repository invocation listener.
+     */
+    public static void record(String phase, long nanos) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null)
+            return;
+
+        trace.add(phase, nanos);
+        OpenPhase enclosing = trace.openPhases.peek();
+        if (enclosing != null)
+            enclosing.resumedAtNanos += nanos;
+    }
+
+    /**
+     * Ends the trace and returns the exclusive nanoseconds per phase, {@link #OTHER} included.
+     */
+    public Map<String, Long> finish() {
+        CURRENT.remove();
+
+        totalNanos = System.nanoTime() - startNanos;
+        long claimedNanos = 0;
+        for (long nanos : phaseNanos.values()) {
+            claimedNanos += nanos;
+        }
+        phaseNanos.put(OTHER, Math.max(0, totalNanos - claimedNanos));
+
+        return phaseNanos;
+    }
+
+    /**
+     * Wall-clock length of the request, available once {@link #finish()} has been called.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    private void enter(String phase) {
+        long now = System.nanoTime();
+        OpenPhase enclosing = openPhases.peek();
+        if (enclosing != null)
+            add(enclosing.phase, now - enclosing.resumedAtNanos);
+        openPhases.push(new OpenPhase(phase, now));
+    }
+
+    private void exit() {
+        long now = System.nanoTime();
+        OpenPhase closing = openPhases.pop();
+        add(closing.phase, now - closing.resumedAtNanos);
+        OpenPhase enclosing = openPhases.peek();
+        if (enclosing != null)
+            enclosing.resumedAtNanos = now;
+    }
+
+    private void add(String phase, long nanos) {
+        phaseNanos.merge(phase, nanos, Long::sum);
+    }
+
+    private static final class OpenPhase {
+
+        private final String phase;
+
+        private long resumedAtNanos;
+
+        private OpenPhase(String phase, long resumedAtNanos) {
+            this.phase = phase;
+            this.resumedAtNanos = resumedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.tutorials.junit.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens a {@link RequestTrace} around the whole filter chain and, once the request is done, records
+ * each phase in the {@code users.request.phase} timer and logs the breakdown at DEBUG.
+ */
+public class RequestTracingFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestTracingFilter.class);
+
+    private final MeterRegistry meterRegistry;
+
+    public RequestTracingFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req,
+                                    HttpServletResponse res,
+                                    FilterChain chain) throws ServletException, IOException {
+        RequestTrace trace = RequestTrace.start();
+        try {
+            chain.doFilter(req, res);
+        } finally {
+            Map<String, Long> phases = trace.finish();
+
+            StringBuilder breakdown = LOGGER.isDebugEnabled() ? new StringBuilder() : null;
+            for (Map.Entry<String, Long> phase : phases.entrySet()) {
+                Timer.builder("users.request.phase")
+                        .tag("phase", phase.getKey())
+                        .register(meterRegistry)
+                        .record(phase.getValue(), TimeUnit.NANOSECONDS);
+                if (breakdown != null)
+                    breakdown.append(' ').append(phase.getKey()).append('=').append(millis(phase.getValue()));
+            }
+
+            if (breakdown != null)
+                LOGGER.debug("{} {} {} total={}{}", req.getMethod(), req.getRequestURI(), res.getStatus(),
+                        millis(trace.getTotalNanos()), breakdown);
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3fms", nanos / 1_000_000.0);
+    }
+}
@@ -1,52 +1,114 @@
 package com.example.tutorials.junit.security;
 
-import com.example.tutorials.junit.service.UsersService;
-import com.example.tutorials.junit.shared.SpringApplicationContext;
-import com.example.tutorials.junit.shared.UserDto;
+import com.example.tutorials.junit.metrics.RequestTrace;
+import com.example.tutorials.junit.ui.request.UserLoginRequestModel;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
-import org.springframework.util.StreamUtils;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.Map;
 
 public class AuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
+    /**
+     * Login bodies larger than this are rejected with 400 before they are parsed any further.
+     */
+    public static final int MAX_LOGIN_BODY_BYTES = 4096;
+
+    private static final String LOGIN_EMAIL_ATTRIBUTE = AuthenticationFilter.class.getName() + ".email";
+
+    private static final ObjectReader LOGIN_READER = new ObjectMapper()
+            .readerFor(UserLoginRequestModel.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
     private final AuthenticationManager authenticationManager;
 
-    public AuthenticationFilter(AuthenticationManager authenticationManager) {
+    private final JwtTokens jwtTokens;
+
+    private final RateLimits rateLimits;
+
+    private final Timer signTimer;
+
+    public AuthenticationFilter(AuthenticationManager authenticationManager,
+                                JwtTokens jwtTokens,
+                                RateLimits rateLimits,
+                                MeterRegistry meterRegistry) {
         this.authenticationManager = authenticationManager;
+        this.jwtTokens = jwtTokens;
+        this.rateLimits = rateLimits;
+        this.signTimer = Timer.builder("users.jwt").tag("operation", "sign").register(meterRegistry);
     }
 
     @Override
     public Authentication attemptAuthentication(HttpServletRequest req,
                                                 HttpServletResponse res) throws AuthenticationException {
-        try {
-            byte[] inputStreamBytes = StreamUtils.copyToByteArray(req.getInputStream());
-            Map<String, String> jsonRequest = new ObjectMapper().readValue(inputStreamBytes, Map.class);
+        UserLoginRequestModel login = readLogin(req);
+        if (login == null) {
+            res.setStatus(HttpStatus.BAD_REQUEST.value());
+            return null;
+        }
 
-            return authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            jsonRequest.get("email"),
-                            jsonRequest.get("password"),
-                            new ArrayList<>())
-            );
+        long waitNanos = rateLimits.checkLogin(login.getEmail(), req.getRemoteAddr());
+        if (waitNanos > 0) {
+            RateLimitingFilter.reject(res, waitNanos);
+            return null;
+        }
+        req.setAttribute(LOGIN_EMAIL_ATTRIBUTE, login.getEmail());
+
+        return RequestTrace.time(RequestTrace.HASHING, () -> authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(
+                        login.getEmail(),
+                        login.getPassword(),
+                        new ArrayList<>())
+        ));
+    }
+
+    /**
+     * Streams the body into a {@link UserLoginRequestModel}, or returns {@code null} when it is too large,
+     * not valid JSON, or lacks the email or password.
+     */
+    private static UserLoginRequestModel readLogin(HttpServletRequest req) {
+        if (req.getContentLengthLong() > MAX_LOGIN_BODY_BYTES)
+            return null;
 
+        try (InputStream body = new LimitedInputStream(req.getInputStream(), MAX_LOGIN_BODY_BYTES)) {
+            return parseLogin(body);
+        } catch (BodyTooLargeException e) {
+            return null;
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses a login body, shared with {@link ReactiveAuthenticationFilter}; {@code null} when it is not valid
+     * JSON or lacks the email or password. Unknown properties are ignored.
+     */
+    static UserLoginRequestModel parseLogin(InputStream body) throws IOException {
+        try {
+            UserLoginRequestModel returnValue = LOGIN_READER.readValue(body);
+            if (returnValue == null || returnValue.getEmail() == null || returnValue.getPassword() == null)
+                return null;
+            return returnValue;
+        } catch (JsonProcessingException e) {
+            return null;
         }
     }
 
@@ -56,17 +118,61 @@ public class AuthenticationFilter extends UsernamePasswordAuthenticationFilter {
                                             FilterChain chain,
                                             Authentication auth) throws IOException, ServletException {
 
-        String userName = ((UserDetails) auth.getPrincipal()).getUsername();
+        UserPrincipal principal = (UserPrincipal) auth.getPrincipal();
+        String userName = principal.getUsername();
 
-        String token = Jwts.builder()
-                .setSubject(userName)
-                .setExpiration(new Date(System.currentTimeMillis() + (long) 864000000))
-                .signWith(SignatureAlgorithm.HS512, SecurityConstants.TOKEN_SECRET)
-                .compact();
-        UsersService userService = (UsersService) SpringApplicationContext.getBean("usersService");
-        UserDto userDto = userService.getUser(userName);
+        String token = RequestTrace.time(RequestTrace.FILTER, () -> signTimer.record(() -> jwtTokens.issue(userName)));
 
         res.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
-        res.addHeader("UserID", userDto.getUserId());
+        res.addHeader("UserID", principal.getUserId());
+    }
+
+    /**
+     * Charges the failed attempt to the email and client's login bucket before answering as usual.
+     */
+    @Override
+    protected void unsuccessfulAuthentication(HttpServletRequest req,
+                                              HttpServletResponse res,
+                                              AuthenticationException failed) throws IOException, ServletException {
+        rateLimits.recordFailedLogin((String) req.getAttribute(LOGIN_EMAIL_ATTRIBUTE), req.getRemoteAddr());
+        super.unsuccessfulAuthentication(req, res, failed);
+    }
+
+    /**
+     * Fails once more than {@code maxBytes} have been read, for bodies sent without a Content-Length.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        private LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.remaining = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int returnValue = super.read();
+            if (returnValue >= 0)
+                consume(1);
+            return returnValue;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int returnValue = super.read(b, off, (int) Math.min(len, remaining + 1));
+            if (returnValue > 0)
+                consume(returnValue);
+            return returnValue;
+        }
+
+        private void consume(int bytes) throws BodyTooLargeException {
+            remaining -= bytes;
+            if (remaining < 0)
+                throw new BodyTooLargeException();
+        }
+    }
+
+    private static final class BodyTooLargeException extends IOException {
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,10 @@
 package com.example.tutorials.junit.security;
 
 import com.example.tutorials.junit.io.UsersRepository;
-import io.jsonwebtoken.Jwts;
+import com.example.tutorials.junit.metrics.RequestTrace;
+import com.example.tutorials.junit.security.VerifiedTokenCache.VerifiedToken;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -17,10 +20,22 @@ public class AuthorizationFilter extends BasicAuthenticationFilter {
 
     private UsersRepository userRepository;
 
+    private VerifiedTokenCache verifiedTokenCache;
+
+    private JwtTokens jwtTokens;
+
+    private Timer parseTimer;
+
     public AuthorizationFilter(AuthenticationManager authManager,
-                               UsersRepository userRepository) {
+                               UsersRepository userRepository,
+                               VerifiedTokenCache verifiedTokenCache,
+                               JwtTokens jwtTokens,
+                               MeterRegistry meterRegistry) {
         super(authManager);
         this.userRepository = userRepository;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.jwtTokens = jwtTokens;
+        this.parseTimer = Timer.builder("users.jwt").tag("operation", "parse").register(meterRegistry);
     }
 
     @Override
@@ -45,13 +60,10 @@ public class AuthorizationFilter extends BasicAuthenticationFilter {
 
         if (token != null) {
 
-            token = token.replace(SecurityConstants.TOKEN_PREFIX, "");
+            String jwt = token.replace(SecurityConstants.TOKEN_PREFIX, "");
 
-            String user = Jwts.parser()
-                    .setSigningKey( SecurityConstants.TOKEN_SECRET)
-                    .parseClaimsJws( token )
-                    .getBody()
-                    .getSubject();
+            String user = RequestTrace.time(RequestTrace.FILTER,
+                    () -> verifiedTokenCache.getSubject(jwt, this::verify));
 
             if (user != null) {
                 return new UsernamePasswordAuthenticationToken(user, null, null);
@@ -62,4 +74,8 @@ public class AuthorizationFilter extends BasicAuthenticationFilter {
 
         return null;
     }
+
+    private VerifiedToken verify(String token) {
+        return parseTimer.record(() -> jwtTokens.parse(token));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.example.tutorials.junit.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+public final class BCryptStrengthCalibrator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BCryptStrengthCalibrator.class);
+
+    private static final String SAMPLE_PASSWORD = "calibration-sample";
+
+    private static final int SAMPLES = 3;
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    /**
+     * Picks the highest strength in {@code [minStrength, maxStrength]} whose hash time stays within
+     * {@code targetMillis} on this machine. Each extra strength step doubles the work, so only the
+     * minimum strength is measured (best of a few samples, so JIT warm-up does not skew it) and the
+     * rest is extrapolated.
+     */
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        new BCryptPasswordEncoder(4).encode(SAMPLE_PASSWORD);
+
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+        double hashMillis = Double.MAX_VALUE;
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            long startNanos = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            hashMillis = Math.min(hashMillis, (System.nanoTime() - startNanos) / 1_000_000.0);
+        }
+
+        int strength = minStrength;
+        while (strength < maxStrength && hashMillis * 2 <= targetMillis) {
+            strength++;
+            hashMillis *= 2;
+        }
+
+        if (hashMillis > targetMillis)
+            LOGGER.warn("BCrypt strength {} takes ~{} ms, above the {} ms target", strength, Math.round(hashMillis), targetMillis);
+        else
+            LOGGER.info("Calibrated BCrypt strength {} (~{} ms per hash, target {} ms)", strength, Math.round(hashMillis), targetMillis);
+
+        return strength;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.tutorials.junit.security;
+
+/**
+ * JWS algorithms the login tokens can be signed with. EdDSA (Ed25519) and ES256 are asymmetric, so their
+ * public keys are published as a JWKS; HS512 tokens can only be verified by holders of the shared secret.
+ */
+public enum JwtAlgorithm {
+
+    EdDSA,
+
+    ES256,
+
+    HS512
+}
@@ -0,0 +1,125 @@
+package com.example.tutorials.junit.security;
+
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.Jwks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The generated keys of a {@link JwtKeyRing} on disk, one private JWK per line, so tokens signed before a
+ * restart still verify after it. Each JWK also records whether its key is the active, next or a retired one
+ * and when it was created and retired. The file is replaced atomically and, where the file system has POSIX
+ * permissions, only its owner can read it.
+ */
+final class JwtKeyFile {
+
+    static final String ACTIVE = "active";
+
+    static final String NEXT = "next";
+
+    static final String RETIRED = "retired";
+
+    private static final String STATUS_MEMBER = "users_status";
+
+    private static final String CREATED_AT_MEMBER = "users_created_at";
+
+    private static final String RETIRED_AT_MEMBER = "users_retired_at";
+
+    private final Path path;
+
+    JwtKeyFile(Path path) {
+        this.path = path;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * The keys in the file, none if it does not exist yet; fails if one is not an {@code algorithm} key.
+     */
+    List<Entry> read(JwtAlgorithm algorithm) throws IOException {
+        if (!Files.exists(path))
+            return List.of();
+
+        List<Entry> returnValue = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank())
+                continue;
+
+            Jwk<?> jwk = Jwks.parser().build().parse(line);
+            JwtSigningKey key = JwtSigningKey.fromJwk(algorithm, jwk, toMillis(jwk.get(CREATED_AT_MEMBER)));
+            returnValue.add(new Entry(key, String.valueOf(jwk.get(STATUS_MEMBER)), toMillis(jwk.get(RETIRED_AT_MEMBER))));
+        }
+        return returnValue;
+    }
+
+    void write(List<Entry> entries) throws IOException {
+        List<String> lines = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            Map<String, Object> members = new HashMap<>();
+            members.put(STATUS_MEMBER, entry.status);
+            members.put(CREATED_AT_MEMBER, entry.key.getCreatedAtMillis());
+            if (RETIRED.equals(entry.status))
+                members.put(RETIRED_AT_MEMBER, entry.retiredAtMillis);
+            lines.add(Jwks.UNSAFE_JSON(entry.key.toPrivateJwk(members)));
+        }
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = directory.getFileSystem().supportedFileAttributeViews().contains("posix")
+                ? Files.createTempFile(directory, path.getFileName().toString(), ".tmp", ownerOnly())
+                : Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, lines, StandardCharsets.UTF_8);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static FileAttribute<?> ownerOnly() {
+        return PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"));
+    }
+
+    private static long toMillis(Object member) {
+        return member instanceof Number ? ((Number) member).longValue() : 0;
+    }
+
+    static final class Entry {
+
+        private final JwtSigningKey key;
+
+        private final String status;
+
+        private final long retiredAtMillis;
+
+        Entry(JwtSigningKey key, String status, long retiredAtMillis) {
+            this.key = key;
+            this.status = status;
+            this.retiredAtMillis = retiredAtMillis;
+        }
+
+        JwtSigningKey getKey() {
+            return key;
+        }
+
+        String getStatus() {
+            return status;
+        }
+
+        long getRetiredAtMillis() {
+            return retiredAtMillis;
+        }
+    }
+}
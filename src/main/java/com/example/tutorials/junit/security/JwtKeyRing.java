@@ -0,0 +1,352 @@
+package com.example.tutorials.junit.security;
+
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.PublicJwk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Signing keys of the login tokens, looked up by {@code kid}. A new key is generated ahead of time and
+ * published in the JWKS before it becomes active, so verifiers that cache the key set already know it;
+ * the active key is replaced once it is older than {@code rotation-period}. Retired keys keep verifying
+ * until every token they signed has expired.
+ * <p>
+ * Keys are generated at startup, or read back from {@code key-file}, which is rewritten on every rotation
+ * so that tokens stay valid across restarts; without a key file a restart logs every user out. Each instance
+ * signs with its own keys. Tokens signed by another instance verify only if its JWK set is listed in
+ * {@code peer-jwks-uris}. Those sets are refetched in the background every {@code peer-refresh-interval},
+ * and early, at most once per interval, when a token names an unknown {@code kid}; that token itself is
+ * rejected rather than waiting for the fetch. Alternatively every instance is given the same key, either a
+ * {@code private-jwk} or an HS512 {@code hmac-secret}, which survives restarts and is never rotated. With
+ * more than one of {@code users.instances} and none of these the ring refuses to start.
+ */
+@Component
+public class JwtKeyRing {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private static final int PEER_TIMEOUT_MILLIS = 2000;
+
+    private final JwtAlgorithm algorithm;
+
+    private final long rotationMillis;
+
+    private final Map<String, JwtSigningKey> keys = new ConcurrentHashMap<>();
+
+    private final Deque<RetiredKey> retiredKeys = new ArrayDeque<>();
+
+    private volatile JwtSigningKey activeKey;
+
+    private volatile JwtSigningKey nextKey;
+
+    private volatile Map<String, List<PublicJwk<?>>> jwkSet;
+
+    private final List<URI> peerJwksUris;
+
+    private final long peerRefreshMillis;
+
+    private final ScheduledExecutorService peerRefresher;
+
+    private final AtomicBoolean peerRefreshPending = new AtomicBoolean();
+
+    private final Map<URI, Map<String, JwtSigningKey>> keysByPeer = new HashMap<>();
+
+    private volatile Map<String, JwtSigningKey> peerKeys = Collections.emptyMap();
+
+    private volatile long peerKeysFetchedAtMillis;
+
+    private final JwtKeyFile keyFile;
+
+    @Autowired
+    public JwtKeyRing(@Value("${users.security.jwt.algorithm:EdDSA}") JwtAlgorithm algorithm,
+                      @Value("${users.security.jwt.rotation-period:P1D}") Duration rotationPeriod,
+                      @Value("${users.security.jwt.hmac-secret:}") String hmacSecret,
+                      @Value("${users.security.jwt.private-jwk:}") String privateJwk,
+                      @Value("${users.security.jwt.key-file:}") String keyFile,
+                      @Value("${users.security.jwt.peer-jwks-uris:}") List<URI> peerJwksUris,
+                      @Value("${users.security.jwt.peer-refresh-interval:PT10S}") Duration peerRefreshInterval,
+                      @Value("${users.instances:1}") int instances) {
+        this.algorithm = algorithm;
+        this.peerJwksUris = List.copyOf(peerJwksUris);
+        this.peerRefreshMillis = peerRefreshInterval.toMillis();
+
+        if (StringUtils.hasText(hmacSecret) && StringUtils.hasText(privateJwk))
+            throw new IllegalArgumentException("Set only one of users.security.jwt.hmac-secret and private-jwk");
+        if (instances > 1 && !StringUtils.hasText(hmacSecret) && !StringUtils.hasText(privateJwk) && this.peerJwksUris.isEmpty())
+            throw new IllegalStateException("users.instances is " + instances + " but each instance would sign with its own"
+                    + " keys; set users.security.jwt.private-jwk, hmac-secret or peer-jwks-uris");
+
+        if (StringUtils.hasText(privateJwk)) {
+            this.keyFile = null;
+            this.rotationMillis = 0;
+            this.activeKey = JwtSigningKey.fromPrivateJwk(algorithm, privateJwk, System.currentTimeMillis());
+        } else if (StringUtils.hasText(hmacSecret)) {
+            if (algorithm != JwtAlgorithm.HS512)
+                throw new IllegalArgumentException("users.security.jwt.hmac-secret requires the HS512 algorithm");
+
+            byte[] secret = Decoders.BASE64.decode(hmacSecret);
+            if (secret.length < 64)
+                throw new IllegalArgumentException("users.security.jwt.hmac-secret must be at least 64 bytes for HS512");
+
+            this.keyFile = null;
+            this.rotationMillis = 0;
+            this.activeKey = JwtSigningKey.fromSecret(Keys.hmacShaKeyFor(secret), System.currentTimeMillis());
+        } else {
+            this.keyFile = StringUtils.hasText(keyFile) ? new JwtKeyFile(Paths.get(keyFile)) : null;
+            this.rotationMillis = rotationPeriod.toMillis();
+            if (this.keyFile != null)
+                readKeyFile();
+            if (activeKey == null)
+                this.activeKey = JwtSigningKey.generate(algorithm);
+            if (nextKey == null && rotationMillis > 0)
+                this.nextKey = JwtSigningKey.generate(algorithm);
+        }
+
+        register(activeKey);
+        register(nextKey);
+        publish();
+
+        if (this.keyFile != null) {
+            try {
+                this.keyFile.write(keyFileEntries());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write the JWT keys to " + this.keyFile.getPath(), e);
+            }
+        }
+
+        if (this.peerJwksUris.isEmpty()) {
+            this.peerRefresher = null;
+        } else {
+            this.peerRefresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jwks-peer-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            requestPeerRefresh();
+            if (peerRefreshMillis > 0)
+                peerRefresher.scheduleWithFixedDelay(this::refreshPeerKeys, peerRefreshMillis, peerRefreshMillis,
+                        TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public JwtAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * The key new tokens are signed with, rotated first if it has reached the end of its period.
+     */
+    public JwtSigningKey getActiveKey() {
+        JwtSigningKey returnValue = activeKey;
+        if (rotationMillis > 0 && System.currentTimeMillis() - returnValue.getCreatedAtMillis() >= rotationMillis)
+            returnValue = rotate(returnValue);
+        return returnValue;
+    }
+
+    /**
+     * The key with the given {@code kid}, own or a peer's, or {@code null} if it is unknown or has been
+     * retired for longer than a token lives. Never waits for the peers' key sets to be fetched.
+     */
+    public JwtSigningKey getKey(String keyId) {
+        if (keyId == null)
+            return null;
+
+        JwtSigningKey returnValue = keys.get(keyId);
+        if (returnValue == null && peerRefresher != null) {
+            returnValue = peerKeys.get(keyId);
+            if (returnValue == null && System.currentTimeMillis() - peerKeysFetchedAtMillis >= peerRefreshMillis)
+                requestPeerRefresh();
+        }
+        return returnValue;
+    }
+
+    /**
+     * The public keys of the ring as a JWK set document; its {@code keys} are empty for HS512.
+     */
+    public Map<String, List<PublicJwk<?>>> getJwkSet() {
+        return jwkSet;
+    }
+
+    /**
+     * Promotes the pre-published next key to active right away.
+     */
+    public JwtSigningKey rotate() {
+        return rotate(activeKey);
+    }
+
+    private synchronized JwtSigningKey rotate(JwtSigningKey expected) {
+        if (activeKey != expected || nextKey == null)
+            return activeKey;
+
+        long now = System.currentTimeMillis();
+        retiredKeys.addLast(new RetiredKey(activeKey, now));
+        while (!retiredKeys.isEmpty() && now - retiredKeys.peekFirst().retiredAtMillis > JwtTokens.EXPIRATION_MILLIS) {
+            keys.remove(retiredKeys.removeFirst().key.getKeyId());
+        }
+
+        activeKey = nextKey;
+        nextKey = JwtSigningKey.generate(algorithm);
+        register(nextKey);
+        publish();
+
+        if (keyFile != null) {
+            try {
+                keyFile.write(keyFileEntries());
+            } catch (IOException e) {
+                LOGGER.warn("Could not write the JWT keys to {}, tokens signed from now on will not verify after a"
+                        + " restart", keyFile.getPath(), e);
+            }
+        }
+
+        return activeKey;
+    }
+
+    /**
+     * Takes the active, next and still needed retired keys from the key file, if it exists; a file that cannot
+     * be read stops startup rather than being overwritten with new keys.
+     */
+    private void readKeyFile() {
+        List<JwtKeyFile.Entry> entries;
+        try {
+            entries = keyFile.read(algorithm);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Could not read the " + algorithm + " JWT keys from " + keyFile.getPath()
+                    + "; delete it to start over with new keys", e);
+        }
+
+        long now = System.currentTimeMillis();
+        for (JwtKeyFile.Entry entry : entries) {
+            if (JwtKeyFile.ACTIVE.equals(entry.getStatus())) {
+                activeKey = entry.getKey();
+            } else if (JwtKeyFile.NEXT.equals(entry.getStatus())) {
+                nextKey = entry.getKey();
+            } else if (now - entry.getRetiredAtMillis() <= JwtTokens.EXPIRATION_MILLIS) {
+                retiredKeys.addLast(new RetiredKey(entry.getKey(), entry.getRetiredAtMillis()));
+                register(entry.getKey());
+            }
+        }
+    }
+
+    private List<JwtKeyFile.Entry> keyFileEntries() {
+        List<JwtKeyFile.Entry> returnValue = new ArrayList<>();
+        returnValue.add(new JwtKeyFile.Entry(activeKey, JwtKeyFile.ACTIVE, 0));
+        if (nextKey != null)
+            returnValue.add(new JwtKeyFile.Entry(nextKey, JwtKeyFile.NEXT, 0));
+        for (RetiredKey retiredKey : retiredKeys) {
+            returnValue.add(new JwtKeyFile.Entry(retiredKey.key, JwtKeyFile.RETIRED, retiredKey.retiredAtMillis));
+        }
+        return returnValue;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (peerRefresher != null)
+            peerRefresher.shutdownNow();
+    }
+
+    /**
+     * Queues a refetch of the peers' key sets unless one is already queued.
+     */
+    private void requestPeerRefresh() {
+        if (peerRefreshPending.compareAndSet(false, true)) {
+            try {
+                peerRefresher.execute(this::refreshPeerKeys);
+            } catch (RejectedExecutionException e) {
+                peerRefreshPending.set(false);
+            }
+        }
+    }
+
+    /**
+     * Refetches every peer's JWK set on the refresher thread, which alone touches {@code keysByPeer}; a peer
+     * that cannot be reached keeps the keys it published last.
+     */
+    private void refreshPeerKeys() {
+        peerRefreshPending.set(false);
+        peerKeysFetchedAtMillis = System.currentTimeMillis();
+
+        Map<String, JwtSigningKey> refreshed = new HashMap<>();
+        for (URI uri : peerJwksUris) {
+            try {
+                keysByPeer.put(uri, fetchKeys(uri));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Could not fetch the JWK set of {}", uri, e);
+            }
+            refreshed.putAll(keysByPeer.getOrDefault(uri, Collections.emptyMap()));
+        }
+        peerKeys = refreshed;
+    }
+
+    private static Map<String, JwtSigningKey> fetchKeys(URI uri) throws IOException {
+        URLConnection connection = uri.toURL().openConnection();
+        connection.setConnectTimeout(PEER_TIMEOUT_MILLIS);
+        connection.setReadTimeout(PEER_TIMEOUT_MILLIS);
+
+        Map<String, JwtSigningKey> returnValue = new HashMap<>();
+        try (InputStream body = connection.getInputStream()) {
+            for (Jwk<?> jwk : Jwks.setParser().build().parse(body)) {
+                if (jwk instanceof PublicJwk) {
+                    JwtSigningKey key = JwtSigningKey.fromPublicJwk((PublicJwk<?>) jwk);
+                    returnValue.put(key.getKeyId(), key);
+                }
+            }
+        }
+        return returnValue;
+    }
+
+    private void register(JwtSigningKey key) {
+        if (key != null)
+            keys.put(key.getKeyId(), key);
+    }
+
+    private void publish() {
+        List<PublicJwk<?>> publicJwks = new ArrayList<>();
+        for (JwtSigningKey key : keys.values()) {
+            if (key.getPublicJwk() != null)
+                publicJwks.add(key.getPublicJwk());
+        }
+        jwkSet = Collections.singletonMap("keys", Collections.unmodifiableList(publicJwks));
+    }
+
+    private static final class RetiredKey {
+
+        private final JwtSigningKey key;
+
+        private final long retiredAtMillis;
+
+        private RetiredKey(JwtSigningKey key, long retiredAtMillis) {
+            this.key = key;
+            this.retiredAtMillis = retiredAtMillis;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.tutorials.junit.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PrivateJwk;
+import io.jsonwebtoken.security.PublicJwk;
+import io.jsonwebtoken.security.SecretJwk;
+
+import javax.crypto.SecretKey;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPublicKey;
+import java.util.Map;
+
+/**
+ * One entry of the {@link JwtKeyRing}: the key id ({@code kid}, the RFC 7638 thumbprint of the key), the
+ * key tokens are signed with and the key they are verified with. For HS512 both are the same secret.
+ */
+public final class JwtSigningKey {
+
+    private final String keyId;
+
+    private final JwtAlgorithm algorithm;
+
+    private final Key signingKey;
+
+    private final Key verificationKey;
+
+    private final PublicJwk<?> publicJwk;
+
+    private final long createdAtMillis;
+
+    private JwtSigningKey(JwtAlgorithm algorithm, Key signingKey, Key verificationKey, long createdAtMillis) {
+        this.algorithm = algorithm;
+        this.signingKey = signingKey;
+        this.verificationKey = verificationKey;
+        this.createdAtMillis = createdAtMillis;
+
+        if (verificationKey instanceof PublicKey) {
+            this.publicJwk = Jwks.builder().key((PublicKey) verificationKey).idFromThumbprint().build();
+            this.keyId = publicJwk.getId();
+        } else {
+            this.publicJwk = null;
+            this.keyId = Jwks.builder().key((SecretKey) verificationKey).idFromThumbprint().build().getId();
+        }
+    }
+
+    public static JwtSigningKey generate(JwtAlgorithm algorithm) {
+        long now = System.currentTimeMillis();
+        switch (algorithm) {
+            case EdDSA:
+                return fromKeyPair(algorithm, Jwks.CRV.Ed25519.keyPair().build(), now);
+            case ES256:
+                return fromKeyPair(algorithm, Jwts.SIG.ES256.keyPair().build(), now);
+            case HS512:
+                return fromSecret(Jwts.SIG.HS512.key().build(), now);
+            default:
+                throw new IllegalArgumentException("Unsupported algorithm " + algorithm);
+        }
+    }
+
+    public static JwtSigningKey fromSecret(SecretKey secretKey, long createdAtMillis) {
+        return new JwtSigningKey(JwtAlgorithm.HS512, secretKey, secretKey, createdAtMillis);
+    }
+
+    /**
+     * The key of a private JWK, which must be an Ed25519 key for EdDSA or a P-256 key for ES256.
+     */
+    public static JwtSigningKey fromPrivateJwk(JwtAlgorithm algorithm, String json, long createdAtMillis) {
+        Jwk<?> jwk = Jwks.parser().build().parse(json);
+        if (!(jwk instanceof PrivateJwk))
+            throw new IllegalArgumentException("Not a private JWK: " + jwk.getType());
+
+        return fromJwk(algorithm, jwk, createdAtMillis);
+    }
+
+    /**
+     * The key of a private JWK, or of a secret JWK for HS512, as written by {@link #toPrivateJwk}.
+     */
+    static JwtSigningKey fromJwk(JwtAlgorithm algorithm, Jwk<?> jwk, long createdAtMillis) {
+        if (jwk instanceof SecretJwk) {
+            if (algorithm != JwtAlgorithm.HS512)
+                throw new IllegalArgumentException("Secret JWK is not a " + algorithm + " key");
+            return fromSecret(((SecretJwk) jwk).toKey(), createdAtMillis);
+        }
+        if (!(jwk instanceof PrivateJwk))
+            throw new IllegalArgumentException("Not a private JWK: " + jwk.getType());
+
+        KeyPair keyPair = ((PrivateJwk<?, ?, ?>) jwk).toKeyPair().toJavaKeyPair();
+        if (algorithmOf(keyPair.getPublic()) != algorithm)
+            throw new IllegalArgumentException("Private JWK is not a " + algorithm + " key");
+        return fromKeyPair(algorithm, keyPair, createdAtMillis);
+    }
+
+    /**
+     * A key that only verifies, from the JWK set another instance publishes.
+     */
+    public static JwtSigningKey fromPublicJwk(PublicJwk<?> jwk) {
+        PublicKey publicKey = jwk.toKey();
+        return new JwtSigningKey(algorithmOf(publicKey), null, publicKey, 0);
+    }
+
+    private static JwtSigningKey fromKeyPair(JwtAlgorithm algorithm, KeyPair keyPair, long createdAtMillis) {
+        return new JwtSigningKey(algorithm, keyPair.getPrivate(), keyPair.getPublic(), createdAtMillis);
+    }
+
+    private static JwtAlgorithm algorithmOf(PublicKey publicKey) {
+        if (publicKey instanceof ECPublicKey)
+            return JwtAlgorithm.ES256;
+        if (publicKey instanceof EdECPublicKey)
+            return JwtAlgorithm.EdDSA;
+        throw new IllegalArgumentException("Unsupported key type " + publicKey.getAlgorithm());
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    public JwtAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * The key tokens are signed with, or {@code null} for a key of another instance.
+     */
+    public Key getSigningKey() {
+        return signingKey;
+    }
+
+    public Key getVerificationKey() {
+        return verificationKey;
+    }
+
+    /**
+     * The public key as a JWK, or {@code null} for HS512 whose secret must never be published.
+     */
+    public PublicJwk<?> getPublicJwk() {
+        return publicJwk;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    /**
+     * The whole key as a JWK with {@code members} added, private or secret parts included, so it must never
+     * be published.
+     */
+    Jwk<?> toPrivateJwk(Map<String, ?> members) {
+        if (signingKey == null)
+            throw new IllegalStateException("Key " + keyId + " of another instance has no private part");
+
+        if (signingKey instanceof SecretKey)
+            return Jwks.builder().key((SecretKey) signingKey).idFromThumbprint().add(members).build();
+        return Jwks.builder().keyPair(new KeyPair((PublicKey) verificationKey, (PrivateKey) signingKey))
+                .idFromThumbprint().add(members).build();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.tutorials.junit.security;
+
+import com.example.tutorials.junit.security.VerifiedTokenCache.VerifiedToken;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.UnsupportedJwtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.security.Key;
+import java.util.Date;
+
+/**
+ * Signs and parses the login JWTs, shared by the servlet and the reactive security filters. Tokens carry
+ * the {@code kid} of the {@link JwtKeyRing} key that signed them. The parser is built once and is
+ * thread-safe; it resolves the verification key by {@code kid} and rejects tokens whose {@code alg}
+ * does not match that key.
+ */
+@Component
+public class JwtTokens {
+
+    public static final long EXPIRATION_MILLIS = 864000000;
+
+    private final JwtKeyRing keyRing;
+
+    private final JwtParser parser;
+
+    @Autowired
+    public JwtTokens(JwtKeyRing keyRing) {
+        this.keyRing = keyRing;
+        this.parser = Jwts.parser()
+                .keyLocator(new KeyRingLocator(keyRing))
+                .build();
+    }
+
+    public String issue(String subject) {
+        JwtSigningKey key = keyRing.getActiveKey();
+
+        return Jwts.builder()
+                .header().keyId(key.getKeyId()).and()
+                .subject(subject)
+                .expiration(new Date(System.currentTimeMillis() + EXPIRATION_MILLIS))
+                .signWith(key.getSigningKey())
+                .compact();
+    }
+
+    public VerifiedToken parse(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+
+        long expiresAtMillis = claims.getExpiration() != null ? claims.getExpiration().getTime() : 0;
+
+        return new VerifiedToken(claims.getSubject(), expiresAtMillis);
+    }
+
+    private static final class KeyRingLocator extends LocatorAdapter<Key> {
+
+        private final JwtKeyRing keyRing;
+
+        private KeyRingLocator(JwtKeyRing keyRing) {
+            this.keyRing = keyRing;
+        }
+
+        @Override
+        protected Key locate(JwsHeader header) {
+            JwtSigningKey key = keyRing.getKey(header.getKeyId());
+            if (key == null)
+                throw new UnsupportedJwtException("Unknown signing key " + header.getKeyId());
+            if (!key.getAlgorithm().name().equals(header.getAlgorithm()))
+                throw new UnsupportedJwtException("Signing key " + header.getKeyId() + " does not use " + header.getAlgorithm());
+
+            return key.getVerificationKey();
+        }
+    }
+}
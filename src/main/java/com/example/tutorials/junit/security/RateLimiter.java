@@ -0,0 +1,79 @@
+package com.example.tutorials.junit.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket per key, holding {@code capacity} permits that refill evenly over {@code period}.
+ * It is implemented as the generic cell rate algorithm: each key stores only the theoretical arrival time
+ * of its next request in an {@link AtomicLong}, advanced with a compare-and-set, so no refill task runs
+ * and no lock is taken.
+ * <p>
+ * Keys live in a bounded Caffeine cache and are dropped once idle for a whole {@code period}, by which
+ * time their bucket would be full again anyway.
+ */
+public class RateLimiter {
+
+    private final long emissionIntervalNanos;
+
+    private final long burstToleranceNanos;
+
+    private final Ticker ticker;
+
+    private final Cache<String, AtomicLong> buckets;
+
+    public RateLimiter(int capacity, Duration period, long maximumKeys) {
+        this(capacity, period, maximumKeys, Ticker.systemTicker());
+    }
+
+    RateLimiter(int capacity, Duration period, long maximumKeys, Ticker ticker) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive");
+
+        this.emissionIntervalNanos = period.toNanos() / capacity;
+        this.burstToleranceNanos = period.toNanos() - emissionIntervalNanos;
+        this.ticker = ticker;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(period)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Takes a permit for {@code key} and returns 0, or leaves the bucket untouched and returns how many
+     * nanoseconds remain until the next permit.
+     */
+    public long tryAcquire(String key) {
+        AtomicLong theoreticalArrival = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+        long now = ticker.read();
+
+        while (true) {
+            long current = theoreticalArrival.get();
+            long arrival = Math.max(current, now);
+            long waitNanos = arrival - burstToleranceNanos - now;
+            if (waitNanos > 0)
+                return waitNanos;
+            if (theoreticalArrival.compareAndSet(current, arrival + emissionIntervalNanos))
+                return 0;
+        }
+    }
+
+    /**
+     * How many nanoseconds remain until {@code key}'s next permit, or 0 if one is available; takes nothing.
+     */
+    public long waitNanos(String key) {
+        AtomicLong theoreticalArrival = buckets.getIfPresent(key);
+        if (theoreticalArrival == null)
+            return 0;
+        return Math.max(0, theoreticalArrival.get() - burstToleranceNanos - ticker.read());
+    }
+
+    public long estimatedSize() {
+        return buckets.estimatedSize();
+    }
+}
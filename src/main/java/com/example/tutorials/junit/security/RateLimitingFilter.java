@@ -0,0 +1,55 @@
+package com.example.tutorials.junit.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects signup and login requests with 429 and {@code Retry-After} once the client IP has used up its
+ * {@link RateLimits} bucket. Runs ahead of {@link AuthenticationFilter}, so a rejected request never
+ * reaches BCrypt. The client IP is the remote address, which {@code server.forward-headers-strategy} resolves
+ * from {@code X-Forwarded-For} for requests coming through a trusted proxy.
+ */
+public class RateLimitingFilter extends OncePerRequestFilter {
+
+    private static final RequestMatcher HASHING_REQUESTS = new AntPathRequestMatcher("/users/**", HttpMethod.POST.name());
+
+    private final RateLimits rateLimits;
+
+    public RateLimitingFilter(RateLimits rateLimits) {
+        this.rateLimits = rateLimits;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HASHING_REQUESTS.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req,
+                                    HttpServletResponse res,
+                                    FilterChain chain) throws ServletException, IOException {
+        long waitNanos = rateLimits.tryAcquireForIp(req.getRemoteAddr());
+        if (waitNanos > 0) {
+            reject(res, waitNanos);
+            return;
+        }
+
+        chain.doFilter(req, res);
+    }
+
+    static void reject(HttpServletResponse res, long waitNanos) {
+        res.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        res.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+    }
+}
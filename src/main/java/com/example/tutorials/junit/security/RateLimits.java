@@ -0,0 +1,86 @@
+package com.example.tutorials.junit.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * The request rate limits in front of the BCrypt endpoints: one bucket per client IP for signup and
+ * login, and one per email and client IP that only failed logins take from, so guessing one account's
+ * password is slowed down further while its owner, on another address, can still log in.
+ */
+@Component
+@Profile("!reactive")
+public class RateLimits {
+
+    private final boolean enabled;
+
+    private final RateLimiter byIp;
+
+    private final RateLimiter byEmail;
+
+    private final Counter ipRejections;
+
+    private final Counter emailRejections;
+
+    @Autowired
+    public RateLimits(@Value("${users.rate-limit.enabled:true}") boolean enabled,
+                      @Value("${users.rate-limit.ip.capacity:20}") int ipCapacity,
+                      @Value("${users.rate-limit.ip.period:PT1M}") Duration ipPeriod,
+                      @Value("${users.rate-limit.email.capacity:5}") int emailCapacity,
+                      @Value("${users.rate-limit.email.period:PT1M}") Duration emailPeriod,
+                      @Value("${users.rate-limit.maximum-keys:100000}") long maximumKeys,
+                      MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.byIp = new RateLimiter(ipCapacity, ipPeriod, maximumKeys);
+        this.byEmail = new RateLimiter(emailCapacity, emailPeriod, maximumKeys);
+
+        this.ipRejections = Counter.builder("users.rate.limit.rejected").tag("limit", "ip").register(meterRegistry);
+        this.emailRejections = Counter.builder("users.rate.limit.rejected").tag("limit", "email").register(meterRegistry);
+        Gauge.builder("users.rate.limit.keys", byIp, RateLimiter::estimatedSize).tag("limit", "ip").register(meterRegistry);
+        Gauge.builder("users.rate.limit.keys", byEmail, RateLimiter::estimatedSize).tag("limit", "email").register(meterRegistry);
+    }
+
+    /**
+     * Returns 0 if the client may proceed, otherwise the nanoseconds until it may retry.
+     */
+    public long tryAcquireForIp(String ip) {
+        if (!enabled)
+            return 0;
+
+        long returnValue = byIp.tryAcquire(ip);
+        if (returnValue > 0)
+            ipRejections.increment();
+        return returnValue;
+    }
+
+    /**
+     * Returns 0 if a login for this email from this client may proceed, otherwise the nanoseconds until it
+     * may retry. Takes no permit; only {@link #recordFailedLogin(String, String)} does.
+     */
+    public long checkLogin(String email, String ip) {
+        if (!enabled || email == null)
+            return 0;
+
+        long returnValue = byEmail.waitNanos(loginKey(email, ip));
+        if (returnValue > 0)
+            emailRejections.increment();
+        return returnValue;
+    }
+
+    public void recordFailedLogin(String email, String ip) {
+        if (enabled && email != null)
+            byEmail.tryAcquire(loginKey(email, ip));
+    }
+
+    private static String loginKey(String email, String ip) {
+        return email.toLowerCase(Locale.ROOT) + ' ' + ip;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.tutorials.junit.security;
+
+import com.example.tutorials.junit.ui.request.UserLoginRequestModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.server.WebFilterExchange;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.authentication.HttpBasicServerAuthenticationEntryPoint;
+import org.springframework.security.web.server.authentication.ServerAuthenticationEntryPointFailureHandler;
+import org.springframework.security.web.server.authentication.ServerAuthenticationFailureHandler;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+
+/**
+ * Reactive counterpart of {@link AuthenticationFilter}: {@code POST /users/login} with a JSON body
+ * answers with the JWT in the {@code Authorization} header and the public user id in {@code UserID}.
+ * Bodies over {@link AuthenticationFilter#MAX_LOGIN_BODY_BYTES}, malformed or incomplete ones get 400.
+ */
+public class ReactiveAuthenticationFilter extends AuthenticationWebFilter {
+
+    private final JwtTokens jwtTokens;
+
+    private final Timer signTimer;
+
+    public ReactiveAuthenticationFilter(ReactiveAuthenticationManager authenticationManager,
+                                        JwtTokens jwtTokens,
+                                        MeterRegistry meterRegistry) {
+        super(authenticationManager);
+        this.jwtTokens = jwtTokens;
+        this.signTimer = Timer.builder("users.jwt").tag("operation", "sign").register(meterRegistry);
+
+        setRequiresAuthenticationMatcher(ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, "/users/login"));
+        setServerAuthenticationConverter(ReactiveAuthenticationFilter::readCredentials);
+        setAuthenticationSuccessHandler(this::issueToken);
+        setAuthenticationFailureHandler(badRequestOr(
+                new ServerAuthenticationEntryPointFailureHandler(new HttpBasicServerAuthenticationEntryPoint())));
+        setSecurityContextRepository(NoOpServerSecurityContextRepository.getInstance());
+    }
+
+    private static Mono<Authentication> readCredentials(ServerWebExchange exchange) {
+        if (exchange.getRequest().getHeaders().getContentLength() > AuthenticationFilter.MAX_LOGIN_BODY_BYTES)
+            return Mono.error(new MalformedLoginException());
+
+        return DataBufferUtils.join(exchange.getRequest().getBody(), AuthenticationFilter.MAX_LOGIN_BODY_BYTES)
+                .onErrorMap(DataBufferLimitException.class, e -> new MalformedLoginException())
+                .map(ReactiveAuthenticationFilter::toAuthentication)
+                .switchIfEmpty(Mono.error(MalformedLoginException::new));
+    }
+
+    private static Authentication toAuthentication(DataBuffer body) {
+        try (InputStream inputStream = body.asInputStream(true)) {
+            UserLoginRequestModel login = AuthenticationFilter.parseLogin(inputStream);
+            if (login == null)
+                throw new MalformedLoginException();
+            return new UsernamePasswordAuthenticationToken(login.getEmail(), login.getPassword(), new ArrayList<>());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Answers 400 for a {@link MalformedLoginException} and leaves every other failure to {@code delegate}.
+     */
+    private static ServerAuthenticationFailureHandler badRequestOr(ServerAuthenticationFailureHandler delegate) {
+        return (webFilterExchange, exception) -> {
+            if (!(exception instanceof MalformedLoginException))
+                return delegate.onAuthenticationFailure(webFilterExchange, exception);
+
+            ServerHttpResponse response = webFilterExchange.getExchange().getResponse();
+            response.setStatusCode(HttpStatus.BAD_REQUEST);
+            return response.setComplete();
+        };
+    }
+
+    private Mono<Void> issueToken(WebFilterExchange webFilterExchange, Authentication auth) {
+        UserPrincipal principal = (UserPrincipal) auth.getPrincipal();
+        String token = signTimer.record(() -> jwtTokens.issue(principal.getUsername()));
+
+        ServerHttpResponse response = webFilterExchange.getExchange().getResponse();
+        response.getHeaders().add(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
+        response.getHeaders().add("UserID", principal.getUserId());
+
+        return response.setComplete();
+    }
+
+    private static final class MalformedLoginException extends AuthenticationException {
+
+        private MalformedLoginException() {
+            super("Malformed login request");
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.tutorials.junit.security;
+
+import com.example.tutorials.junit.security.VerifiedTokenCache.VerifiedToken;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+
+/**
+ * Reactive counterpart of {@link AuthorizationFilter}: a valid bearer token authenticates the exchange
+ * through the reactive security context. Verification goes through the same {@link VerifiedTokenCache};
+ * an invalid token leaves the exchange anonymous.
+ */
+public class ReactiveAuthorizationFilter implements WebFilter {
+
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    private final JwtTokens jwtTokens;
+
+    private final Timer parseTimer;
+
+    public ReactiveAuthorizationFilter(VerifiedTokenCache verifiedTokenCache, JwtTokens jwtTokens, MeterRegistry meterRegistry) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.jwtTokens = jwtTokens;
+        this.parseTimer = Timer.builder("users.jwt").tag("operation", "parse").register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String header = exchange.getRequest().getHeaders().getFirst(SecurityConstants.HEADER_STRING);
+
+        if (header == null || !header.startsWith(SecurityConstants.TOKEN_PREFIX))
+            return chain.filter(exchange);
+
+        String user;
+        try {
+            user = verifiedTokenCache.getSubject(header.replace(SecurityConstants.TOKEN_PREFIX, ""), this::verify);
+        } catch (JwtException e) {
+            return chain.filter(exchange);
+        }
+
+        if (user == null)
+            return chain.filter(exchange);
+
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(user, null, new ArrayList<>());
+        return chain.filter(exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
+    }
+
+    private VerifiedToken verify(String token) {
+        return parseTimer.record(() -> jwtTokens.parse(token));
+    }
+}
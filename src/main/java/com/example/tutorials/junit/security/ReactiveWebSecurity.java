@@ -0,0 +1,91 @@
+package com.example.tutorials.junit.security;
+
+import com.example.tutorials.junit.service.ReactivePasswordHasher;
+import com.example.tutorials.junit.service.ReactiveUsersService;
+import com.example.tutorials.junit.ui.controllers.JwksController;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.ReactiveAuthenticationManagerAdapter;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+
+/**
+ * WebFlux equivalent of {@link WebSecurity} for the {@code reactive} profile: the same public endpoints,
+ * stateless JWT authentication, and 403 for anonymous requests elsewhere, with the actuator endpoints behind
+ * the scrape credentials.
+ */
+@EnableWebFluxSecurity
+@Profile("reactive")
+public class ReactiveWebSecurity {
+
+    /**
+     * The actuator endpoints as in {@link WebSecurity#actuator}: health is public, the rest need the
+     * {@link ScrapeCredentials} over HTTP Basic.
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public SecurityWebFilterChain actuator(ServerHttpSecurity http,
+                                           ScrapeCredentials scrapeCredentials,
+                                           VerifiedTokenCache verifiedTokenCache,
+                                           JwtTokens jwtTokens,
+                                           MeterRegistry meterRegistry) {
+        http
+                .securityMatcher(ServerWebExchangeMatchers.pathMatchers("/actuator/**"))
+                .csrf().disable()
+                .formLogin().disable()
+                .httpBasic().authenticationManager(new ReactiveAuthenticationManagerAdapter(scrapeCredentials)).and()
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange()
+                .pathMatchers(HttpMethod.GET, "/actuator/health")
+                .permitAll()
+                .anyExchange().hasAuthority(ScrapeCredentials.AUTHORITY).and()
+                .addFilterAt(new ReactiveAuthorizationFilter(verifiedTokenCache, jwtTokens, meterRegistry), SecurityWebFiltersOrder.AUTHENTICATION);
+
+        return http.build();
+    }
+
+    @Bean
+    public SecurityWebFilterChain configure(ServerHttpSecurity http,
+                                            ReactiveUsersService usersService,
+                                            BCryptPasswordEncoder bCryptPasswordEncoder,
+                                            ReactivePasswordHasher passwordHasher,
+                                            VerifiedTokenCache verifiedTokenCache,
+                                            JwtTokens jwtTokens,
+                                            MeterRegistry meterRegistry) {
+
+        UserDetailsRepositoryReactiveAuthenticationManager authenticationManager =
+                new UserDetailsRepositoryReactiveAuthenticationManager(usersService);
+        authenticationManager.setPasswordEncoder(bCryptPasswordEncoder);
+        authenticationManager.setScheduler(passwordHasher.getScheduler());
+
+        http
+                .csrf().disable()
+                .httpBasic().disable()
+                .formLogin().disable()
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .exceptionHandling()
+                .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN)).and()
+                .authorizeExchange()
+                .pathMatchers(HttpMethod.POST, "/users", "/users/login")
+                .permitAll()
+                .pathMatchers(HttpMethod.GET, JwksController.PATH)
+                .permitAll()
+                .anyExchange().authenticated().and()
+                .addFilterAt(new ReactiveAuthenticationFilter(authenticationManager, jwtTokens, meterRegistry), SecurityWebFiltersOrder.AUTHENTICATION)
+                .addFilterAt(new ReactiveAuthorizationFilter(verifiedTokenCache, jwtTokens, meterRegistry), SecurityWebFiltersOrder.AUTHENTICATION);
+
+        return http.build();
+    }
+}
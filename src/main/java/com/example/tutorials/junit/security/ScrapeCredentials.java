@@ -0,0 +1,56 @@
+package com.example.tutorials.junit.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The one HTTP Basic account that may read the actuator endpoints besides health, so a metrics scraper needs
+ * no user's JWT and a user's JWT, which anyone can get by signing up, does not reach the metrics. Without a
+ * configured {@code users.metrics.scrape.password} nobody may. Passwords are compared as SHA-256 digests in
+ * constant time rather than with BCrypt, since the scraper authenticates on every scrape.
+ */
+@Component
+public class ScrapeCredentials implements AuthenticationManager {
+
+    public static final String AUTHORITY = "METRICS_SCRAPE";
+
+    private final String username;
+
+    private final byte[] passwordDigest;
+
+    @Autowired
+    public ScrapeCredentials(@Value("${users.metrics.scrape.username:prometheus}") String username,
+                             @Value("${users.metrics.scrape.password:}") String password) {
+        this.username = username;
+        this.passwordDigest = StringUtils.hasText(password) ? sha256(password) : null;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (passwordDigest == null || !username.equals(authentication.getName())
+                || !MessageDigest.isEqual(passwordDigest, sha256(String.valueOf(authentication.getCredentials()))))
+            throw new BadCredentialsException("Bad scrape credentials");
+
+        return new UsernamePasswordAuthenticationToken(username, null, AuthorityUtils.createAuthorityList(AUTHORITY));
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -5,6 +5,4 @@ public class SecurityConstants {
     public static final String TOKEN_PREFIX = "Bearer ";
 
     public static final String HEADER_STRING = "Authorization";
-
-    public static final String TOKEN_SECRET = "qaWr3Dwa";
 }
@@ -0,0 +1,23 @@
+package com.example.tutorials.junit.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+public class UserPrincipal extends User {
+
+    private static final long serialVersionUID = -3719446391532618520L;
+
+    private final String userId;
+
+    public UserPrincipal(String username, String password, String userId,
+                         Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.userId = userId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+}
@@ -1,22 +1,77 @@
 package com.example.tutorials.junit.security;
 
 import com.example.tutorials.junit.io.UsersRepository;
+import com.example.tutorials.junit.ui.controllers.JwksController;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 @EnableWebSecurity
+@Profile("!reactive")
 public class WebSecurity {
 
     @Autowired
     UsersRepository usersRepository;
 
+    @Autowired
+    VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    JwtTokens jwtTokens;
+
+    @Autowired
+    RateLimits rateLimits;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    /**
+     * The actuator endpoints: health is public, the rest need the {@link ScrapeCredentials} over HTTP Basic.
+     * A user's JWT still authenticates here, but only to be answered 403.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuator(HttpSecurity http, ScrapeCredentials scrapeCredentials) throws Exception {
+        http
+                .antMatcher("/actuator/**")
+                .csrf().disable().authorizeRequests()
+                .antMatchers(HttpMethod.GET, "/actuator/health")
+                .permitAll()
+                .anyRequest().hasAuthority(ScrapeCredentials.AUTHORITY).and()
+                .httpBasic().authenticationEntryPoint(WebSecurity::challengeScraper).and()
+                .addFilter(new AuthorizationFilter(scrapeCredentials, usersRepository, verifiedTokenCache, jwtTokens, meterRegistry))
+                .authenticationManager(scrapeCredentials)
+                .sessionManagement()
+                .sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+
+        return http.build();
+    }
+
+    /**
+     * Answers 401 with a Basic challenge directly, since an error dispatch would go through the main chain,
+     * which turns it into a 403.
+     */
+    private static void challengeScraper(HttpServletRequest req, HttpServletResponse res, AuthenticationException e) {
+        res.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"actuator\"");
+        res.setStatus(HttpStatus.UNAUTHORIZED.value());
+    }
+
     @Bean
     public SecurityFilterChain configure(HttpSecurity http) throws Exception {
 
@@ -32,11 +87,16 @@ public class WebSecurity {
                 .csrf().disable().authorizeRequests()
                 .antMatchers(HttpMethod.POST, "/users")
                 .permitAll()
+                .antMatchers(HttpMethod.POST, "/users/async")
+                .permitAll()
                 .antMatchers(HttpMethod.POST, "/users/login")
                 .permitAll()
+                .antMatchers(HttpMethod.GET, JwksController.PATH)
+                .permitAll()
                 .anyRequest().authenticated().and()
+                .addFilterBefore(new RateLimitingFilter(rateLimits), UsernamePasswordAuthenticationFilter.class)
                 .addFilter(getAuthenticationFilter(authenticationManager))
-                .addFilter(new AuthorizationFilter(authenticationManager, usersRepository))
+                .addFilter(new AuthorizationFilter(authenticationManager, usersRepository, verifiedTokenCache, jwtTokens, meterRegistry))
                 .authenticationManager(authenticationManager)
                 .sessionManagement()
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS);
@@ -47,7 +107,7 @@ public class WebSecurity {
     }
 
     protected AuthenticationFilter getAuthenticationFilter(AuthenticationManager authenticationManager) throws Exception {
-        final AuthenticationFilter filter = new AuthenticationFilter(authenticationManager);
+        final AuthenticationFilter filter = new AuthenticationFilter(authenticationManager, jwtTokens, rateLimits, meterRegistry);
         filter.setFilterProcessesUrl("/users/login");
         return filter;
     }
@@ -0,0 +1,121 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.io.UserShards;
+import com.example.tutorials.junit.io.UsersRepository;
+import com.example.tutorials.junit.security.UserPrincipal;
+import com.example.tutorials.junit.shared.CompactUserDirectory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Off-heap copy of what a login needs from every user, so that {@code loadUserByUsername} does not query the
+ * database. It is filled from the {@code users} table of every shard once the application is ready and kept
+ * in sync with this node's signups; until then, and for users it does not hold, {@link #find(String)} returns
+ * {@code null} and the caller falls back to the database. Disabled unless {@code users.auth-directory.enabled}.
+ */
+@Component
+@Profile("!reactive")
+public class AuthenticationDirectory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthenticationDirectory.class);
+
+    private final UsersRepository usersRepository;
+
+    private final UserShards userShards;
+
+    private final TransactionTemplate readOnlyTransactions;
+
+    private final CompactUserDirectory users;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private volatile boolean ready;
+
+    @Autowired
+    public AuthenticationDirectory(UsersRepository usersRepository,
+                                   UserShards userShards,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${users.auth-directory.enabled:false}") boolean enabled,
+                                   @Value("${users.auth-directory.initial-capacity:100000}") int initialCapacity) {
+        this.usersRepository = usersRepository;
+        this.userShards = userShards;
+        this.readOnlyTransactions = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactions.setReadOnly(true);
+        this.users = enabled ? new CompactUserDirectory(initialCapacity) : null;
+
+        this.hits = Counter.builder("users.auth.directory.lookups").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("users.auth.directory.lookups").tag("result", "miss").register(meterRegistry);
+        if (enabled) {
+            Gauge.builder("users.auth.directory.size", users, CompactUserDirectory::size).register(meterRegistry);
+            Gauge.builder("users.auth.directory.memory", users, CompactUserDirectory::memoryBytes)
+                    .baseUnit("bytes").register(meterRegistry);
+            Gauge.builder("users.auth.directory.memory.per.user", users, AuthenticationDirectory::bytesPerUser)
+                    .baseUnit("bytes").register(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (users == null)
+            return;
+
+        long startNanos = System.nanoTime();
+        long[] skipped = new long[1];
+        userShards.forEachShard(shard -> readOnlyTransactions.executeWithoutResult(status -> {
+            try (Stream<Object[]> credentials = usersRepository.streamAllCredentials()) {
+                credentials.forEach(user -> {
+                    if (!users.put((String) user[0], (String) user[1], (String) user[2]))
+                        skipped[0]++;
+                });
+            }
+        }));
+        ready = true;
+
+        LOGGER.info("Authentication directory built with {} users in {} ms ({} KB, {} bytes per user, {} skipped)",
+                users.size(), (System.nanoTime() - startNanos) / 1_000_000, users.memoryBytes() / 1024,
+                Math.round(bytesPerUser(users)), skipped[0]);
+    }
+
+    /**
+     * The user's principal, or {@code null} if the directory is disabled, not built yet or does not hold the email.
+     */
+    public UserPrincipal find(String email) {
+        if (!ready)
+            return null;
+
+        CompactUserDirectory.Credentials credentials = users.get(email);
+        if (credentials == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return new UserPrincipal(email, credentials.getEncryptedPassword(), credentials.getUserId(), new ArrayList<>());
+    }
+
+    public void add(String email, String encryptedPassword, String userId) {
+        if (users != null)
+            users.put(email, encryptedPassword, userId);
+    }
+
+    private static double bytesPerUser(CompactUserDirectory users) {
+        return users.size() == 0 ? 0 : (double) users.memoryBytes() / users.size();
+    }
+}
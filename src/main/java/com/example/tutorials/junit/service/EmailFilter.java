@@ -0,0 +1,107 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.io.UserShards;
+import com.example.tutorials.junit.io.UsersRepository;
+import com.example.tutorials.junit.shared.ScalableBloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Stream;
+
+/**
+ * In-memory Bloom filter of every registered email, so that signup only has to query the database
+ * when the email might already be taken. It is filled from the {@code users} table of every shard once
+ * the application is ready; until then every email counts as possibly present. The unique index on
+ * {@code users.email} remains the authority for concurrent signups.
+ */
+@Component
+@Profile("!reactive")
+public class EmailFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailFilter.class);
+
+    private final UsersRepository usersRepository;
+
+    private final UserShards userShards;
+
+    private final TransactionTemplate readOnlyTransactions;
+
+    private final ScalableBloomFilter emails;
+
+    private final Counter absent;
+
+    private final Counter mightBePresent;
+
+    private final Counter falsePositives;
+
+    private volatile boolean ready;
+
+    @Autowired
+    public EmailFilter(UsersRepository usersRepository,
+                       UserShards userShards,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${users.email-filter.initial-capacity:100000}") long initialCapacity,
+                       @Value("${users.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.usersRepository = usersRepository;
+        this.userShards = userShards;
+        this.readOnlyTransactions = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactions.setReadOnly(true);
+        this.emails = new ScalableBloomFilter(initialCapacity, falsePositiveRate);
+
+        this.absent = Counter.builder("users.email.filter.checks").tag("result", "absent").register(meterRegistry);
+        this.mightBePresent = Counter.builder("users.email.filter.checks").tag("result", "might_be_present").register(meterRegistry);
+        this.falsePositives = Counter.builder("users.email.filter.false.positives").register(meterRegistry);
+        Gauge.builder("users.email.filter.size", emails, ScalableBloomFilter::size).register(meterRegistry);
+        Gauge.builder("users.email.filter.memory", emails, ScalableBloomFilter::memoryBytes).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("users.email.filter.expected.false.positive.rate", emails, ScalableBloomFilter::expectedFalsePositiveRate)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long startNanos = System.nanoTime();
+        userShards.forEachShard(shard -> readOnlyTransactions.executeWithoutResult(status -> {
+            try (Stream<String> existingEmails = usersRepository.streamAllEmails()) {
+                existingEmails.forEach(emails::add);
+            }
+        }));
+        ready = true;
+
+        LOGGER.info("Email filter built with {} emails in {} ms ({} KB)", emails.size(),
+                (System.nanoTime() - startNanos) / 1_000_000, emails.memoryBytes() / 1024);
+    }
+
+    public boolean mightContain(String email) {
+        if (!ready || emails.mightContain(email)) {
+            mightBePresent.increment();
+            return true;
+        }
+
+        absent.increment();
+        return false;
+    }
+
+    public void add(String email) {
+        emails.add(email);
+    }
+
+    /**
+     * Records that {@link #mightContain(String)} said yes but the database had no such email.
+     */
+    public void recordFalsePositive() {
+        if (ready)
+            falsePositives.increment();
+    }
+}
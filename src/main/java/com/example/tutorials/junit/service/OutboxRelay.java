@@ -0,0 +1,252 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.io.OutboxEventEntity;
+import com.example.tutorials.junit.io.OutboxEventRepository;
+import com.example.tutorials.junit.io.OutboxLeaseEntity;
+import com.example.tutorials.junit.io.OutboxLeaseRepository;
+import com.example.tutorials.junit.io.ReplicaRouting;
+import com.example.tutorials.junit.io.UserShards;
+import com.example.tutorials.junit.shared.OutboxEvent;
+import com.example.tutorials.junit.shared.UserMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains the transactional outbox on a background thread: every {@code users.outbox.poll-interval} it
+ * reads the oldest events, {@code users.outbox.batch-size} at a time, publishes them to the
+ * {@link OutboxSink} and deletes them only once the sink has accepted them. A failed batch stays at the
+ * head of the outbox and is retried on the next poll, so nothing behind it overtakes it.
+ * <p>
+ * Events about one user are written by successive transactions on the user's shard and take ids from
+ * that shard's sequence, so id order is the order they happened in. Shards are drained one after the other.
+ * <p>
+ * Every instance runs a relay, but a shard's outbox is only drained by the one holding its lease in
+ * {@code outbox_lease}. The lease is renewed before each batch and lasts {@code users.outbox.lease-duration},
+ * so when its holder stops another relay takes over after at most that long. Relays compare expiry times
+ * from their own clocks, which must be kept in sync.
+ * <p>
+ * {@code users.outbox.lag} times each event from being written to being delivered and
+ * {@code users.outbox.oldest.age} shows how long the head of the outbox has waited.
+ */
+@Component
+@Profile("!reactive")
+public class OutboxRelay {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final OutboxLeaseRepository outboxLeaseRepository;
+
+    private final OutboxSink sink;
+
+    private final UserShards userShards;
+
+    private final int batchSize;
+
+    private final Duration pollInterval;
+
+    private final Duration leaseDuration;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter published;
+
+    private final Counter failures;
+
+    private final Timer lag;
+
+    private volatile Instant oldestPending;
+
+    private volatile boolean stopping;
+
+    private volatile int drainingShard = -1;
+
+    @Autowired
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxLeaseRepository outboxLeaseRepository,
+                       OutboxSink sink,
+                       UserShards userShards,
+                       MeterRegistry meterRegistry,
+                       @Value("${users.outbox.batch-size:100}") int batchSize,
+                       @Value("${users.outbox.poll-interval:PT0.5S}") Duration pollInterval,
+                       @Value("${users.outbox.lease-duration:PT30S}") Duration leaseDuration) {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("users.outbox.batch-size must be positive");
+
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxLeaseRepository = outboxLeaseRepository;
+        this.sink = sink;
+        this.userShards = userShards;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.leaseDuration = leaseDuration;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.published = Counter.builder("users.outbox.published").register(meterRegistry);
+        this.failures = Counter.builder("users.outbox.failures").register(meterRegistry);
+        this.lag = Timer.builder("users.outbox.lag").register(meterRegistry);
+        Gauge.builder("users.outbox.oldest.age", this, OutboxRelay::getOldestPendingSeconds).baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long intervalNanos = pollInterval.toNanos();
+        scheduler.scheduleWithFixedDelay(this::poll, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Publishes batches until the outbox of every shard whose lease this relay holds is empty and returns how
+     * many events were delivered.
+     */
+    public int drain() throws IOException {
+        int returnValue = 0;
+        try {
+            for (int shard = 0; shard < userShards.getShardCount() && !stopping; shard++) {
+                drainingShard = shard;
+                returnValue += userShards.onShard(shard, this::drainShard);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            drainingShard = -1;
+        }
+        return returnValue;
+    }
+
+    private int drainShard() {
+        int returnValue = 0;
+        while (!stopping) {
+            if (!holdsLease())
+                return returnValue;
+
+            List<OutboxEventEntity> batch = outboxEventRepository.findByOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                oldestPending = null;
+                return returnValue;
+            }
+            oldestPending = batch.get(0).getCreatedAt();
+
+            List<OutboxEvent> events = new ArrayList<>(batch.size());
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (OutboxEventEntity eventEntity : batch) {
+                events.add(UserMapper.toOutboxEvent(eventEntity));
+                ids.add(eventEntity.getId());
+            }
+
+            try {
+                sink.publish(events);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            outboxEventRepository.deleteAllByIdInBatch(ids);
+
+            Instant deliveredAt = Instant.now();
+            for (OutboxEvent event : events) {
+                lag.record(Duration.between(event.getCreatedAt(), deliveredAt));
+            }
+            published.increment(events.size());
+            returnValue += events.size();
+
+            if (batch.size() < batchSize) {
+                oldestPending = null;
+                return returnValue;
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * Claims or renews the lease on the current shard's outbox, creating its row on first use.
+     */
+    private boolean holdsLease() {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(leaseDuration);
+        if (outboxLeaseRepository.claim(owner, now, expiresAt) == 1)
+            return true;
+        if (ReplicaRouting.onPrimary(() -> outboxLeaseRepository.existsById(OutboxLeaseEntity.ID)))
+            return false;
+
+        try {
+            return outboxLeaseRepository.create(owner, expiresAt) == 1;
+        } catch (DataIntegrityViolationException e) {
+            // another relay created it first and holds it
+            return false;
+        }
+    }
+
+    public double getOldestPendingSeconds() {
+        Instant oldest = oldestPending;
+        return oldest == null ? 0 : Duration.between(oldest, Instant.now()).toMillis() / 1000.0;
+    }
+
+    /**
+     * Stops polling, waits up to the lease duration for the batch being published to be deleted and gives up
+     * this relay's leases, so another instance takes over without waiting for them to expire. The lease of a
+     * shard still being drained is kept, so no other relay publishes that batch a second time while it is.
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        scheduler.shutdown();
+        boolean terminated = false;
+        try {
+            terminated = scheduler.awaitTermination(leaseDuration.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int stillDraining = terminated ? -1 : drainingShard;
+        if (stillDraining >= 0)
+            LOGGER.warn("Outbox of shard {} is still being drained, its lease expires in {} s", stillDraining,
+                    leaseDuration.toSeconds());
+        try {
+            userShards.forEachShard(shard -> {
+                if (shard != stillDraining)
+                    outboxLeaseRepository.release(owner, Instant.now());
+            });
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not release the outbox leases, they expire in {} s", leaseDuration.toSeconds(), e);
+        }
+    }
+
+    private void poll() {
+        try {
+            drain();
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            LOGGER.warn("Outbox delivery failed, retrying in {} ms", pollInterval.toMillis(), e);
+        }
+    }
+}
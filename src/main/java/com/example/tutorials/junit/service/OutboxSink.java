@@ -0,0 +1,22 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.shared.OutboxEvent;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where {@link OutboxRelay} delivers outbox events. {@code users.outbox.sink} selects the built-in
+ * {@code file} or {@code memory} sink; set it to anything else and declare an {@code OutboxSink} bean
+ * to deliver elsewhere, e.g. to a message broker.
+ * <p>
+ * Delivery is at-least-once: a batch whose {@link #publish(List)} throws, or that was accepted just
+ * before a crash, is published again, so consumers should deduplicate on {@link OutboxEvent#getId()}.
+ */
+public interface OutboxSink {
+
+    /**
+     * Publishes the events in the given order, returning only once they are durably accepted.
+     */
+    void publish(List<OutboxEvent> events) throws IOException;
+}
@@ -0,0 +1,129 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.exceptions.ServiceUnavailableException;
+import com.example.tutorials.junit.metrics.RequestTrace;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt hashing on a dedicated, bounded pool so that signup bursts cannot
+ * occupy every request thread. Once both the workers and the queue are busy new
+ * work is rejected with {@link ServiceUnavailableException} instead of queueing.
+ * <p>
+ * {@code users.password.hashing} times the BCrypt work alone, without the time spent queued.
+ */
+@Component
+@Profile("!reactive")
+public class PasswordHasher {
+
+    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer hashingTimer;
+
+    @Autowired
+    public PasswordHasher(BCryptPasswordEncoder bCryptPasswordEncoder,
+                          MeterRegistry meterRegistry,
+                          @Value("${users.password.hashing.threads:0}") int threads,
+                          @Value("${users.password.hashing.queue-capacity:100}") int queueCapacity) {
+        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.hashingTimer = Timer.builder("users.password.hashing").register(meterRegistry);
+        Gauge.builder("users.password.hashing.queued", this, PasswordHasher::getQueueSize).register(meterRegistry);
+        Gauge.builder("users.password.hashing.active", this, PasswordHasher::getActiveCount).register(meterRegistry);
+    }
+
+    public String encode(String rawPassword) {
+        try {
+            return RequestTrace.time(RequestTrace.HASHING, () -> encodeAsync(rawPassword).join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    public CompletableFuture<String> encodeAsync(String rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> hashingTimer.record(() -> bCryptPasswordEncoder.encode(rawPassword)), executor);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("Password hashing capacity exceeded");
+        }
+    }
+
+    /**
+     * Hashes the passwords in parallel, submitting at most one task per worker at a time so a
+     * large batch never fills the queue that interactive signups rely on.
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        return RequestTrace.time(RequestTrace.HASHING, () -> encodeInWindows(rawPasswords));
+    }
+
+    private List<String> encodeInWindows(List<String> rawPasswords) {
+        List<String> returnValue = new ArrayList<>(rawPasswords.size());
+        int window = executor.getMaximumPoolSize();
+
+        for (int from = 0; from < rawPasswords.size(); from += window) {
+            List<CompletableFuture<String>> hashes = new ArrayList<>(window);
+            for (String rawPassword : rawPasswords.subList(from, Math.min(from + window, rawPasswords.size()))) {
+                hashes.add(encodeAsync(rawPassword));
+            }
+            for (CompletableFuture<String> hash : hashes) {
+                returnValue.add(hash.join());
+            }
+        }
+
+        return returnValue;
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Reactive counterpart of {@link PasswordHasher}: BCrypt runs on a bounded elastic scheduler sized
+ * by the same properties, never on the event loop, and work beyond its queue is rejected with
+ * {@link ServiceUnavailableException}. The scheduler is also used for password checks at login.
+ */
+@Component
+@Profile("reactive")
+public class ReactivePasswordHasher {
+
+    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+
+    private final Scheduler scheduler;
+
+    private final Timer hashingTimer;
+
+    @Autowired
+    public ReactivePasswordHasher(BCryptPasswordEncoder bCryptPasswordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${users.password.hashing.threads:0}") int threads,
+                                  @Value("${users.password.hashing.queue-capacity:100}") int queueCapacity) {
+        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.scheduler = Schedulers.newBoundedElastic(poolSize, queueCapacity, "password-hasher");
+        this.hashingTimer = Timer.builder("users.password.hashing").register(meterRegistry);
+    }
+
+    public Mono<String> encode(String rawPassword) {
+        return Mono.fromCallable(() -> hashingTimer.record(() -> bCryptPasswordEncoder.encode(rawPassword)))
+                .subscribeOn(scheduler)
+                .onErrorMap(RejectedExecutionException.class,
+                        e -> new ServiceUnavailableException("Password hashing capacity exceeded"));
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.shared.UserDto;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveUsersService extends ReactiveUserDetailsService {
+
+    Mono<UserDto> createUser(UserDto user);
+
+    Flux<UserDto> getUsers(int page, int limit);
+
+    Flux<UserDto> getUsersAfter(long afterId, int limit);
+
+    Flux<UserDto> streamUsers();
+
+    Mono<UserDto> getUser(String email);
+}
@@ -0,0 +1,106 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.exceptions.UsersServiceException;
+import com.example.tutorials.junit.io.ReactiveUserEntity;
+import com.example.tutorials.junit.io.ReactiveUsersRepository;
+import com.example.tutorials.junit.io.UserIdGenerator;
+import com.example.tutorials.junit.security.UserPrincipal;
+import com.example.tutorials.junit.shared.UserDto;
+import com.example.tutorials.junit.shared.UserMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+
+@Service("reactiveUsersService")
+@Profile("reactive")
+public class ReactiveUsersServiceImpl implements ReactiveUsersService {
+
+    private ReactiveUsersRepository usersRepository;
+
+    private ReactivePasswordHasher passwordHasher;
+
+    private UserIdGenerator idGenerator;
+
+    private TransactionalOperator transactionalOperator;
+
+    @Autowired
+    public ReactiveUsersServiceImpl(ReactiveUsersRepository usersRepository, ReactivePasswordHasher passwordHasher,
+                                    UserIdGenerator idGenerator, TransactionalOperator transactionalOperator) {
+        this.usersRepository = usersRepository;
+        this.passwordHasher = passwordHasher;
+        this.idGenerator = idGenerator;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    @Override
+    public Mono<UserDto> createUser(UserDto user) {
+        return usersRepository.findByEmail(user.getEmail())
+                .flatMap(existingUser -> Mono.<UserDto>error(new UsersServiceException("Record already exists")))
+                .switchIfEmpty(Mono.defer(() -> passwordHasher.encode(user.getPassword())
+                        .flatMap(encryptedPassword -> saveUser(user, encryptedPassword))));
+    }
+
+    private Mono<UserDto> saveUser(UserDto user, String encryptedPassword) {
+        ReactiveUserEntity userEntity = UserMapper.toReactiveUserEntity(user);
+
+        userEntity.setUserId(idGenerator.next().toString());
+        userEntity.setEncryptedPassword(encryptedPassword);
+
+        return transactionalOperator.transactional(usersRepository.save(userEntity)
+                        .flatMap(savedUser -> bumpUsersVersion().thenReturn(savedUser)))
+                .map(UserMapper::toUserDto);
+    }
+
+    /**
+     * Moves the users list's version in the signup's transaction, so the servlet stack's ETags see reactive
+     * signups when both run against one database.
+     */
+    private Mono<Integer> bumpUsersVersion() {
+        Instant now = Instant.now();
+        return usersRepository.bumpUsersVersion(now)
+                .flatMap(updated -> updated > 0 ? Mono.just(updated) : usersRepository.createUsersVersion(now));
+    }
+
+    @Override
+    public Flux<UserDto> getUsers(int page, int limit) {
+        if (page > 0) page -=1;
+
+        return usersRepository.findAllByOrderByIdAsc(PageRequest.of(page, limit))
+                .map(UserMapper::toUserDto);
+    }
+
+    @Override
+    public Flux<UserDto> getUsersAfter(long afterId, int limit) {
+        return usersRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit))
+                .map(UserMapper::toUserDto);
+    }
+
+    @Override
+    public Flux<UserDto> streamUsers() {
+        return usersRepository.findAll()
+                .map(UserMapper::toUserDto);
+    }
+
+    @Override
+    public Mono<UserDto> getUser(String email) {
+        return usersRepository.findByEmail(email)
+                .switchIfEmpty(Mono.error(() -> new UsernameNotFoundException(email)))
+                .map(UserMapper::toUserDto);
+    }
+
+    @Override
+    public Mono<UserDetails> findByUsername(String email) {
+        return usersRepository.findByEmail(email)
+                .map(userEntity -> new UserPrincipal(userEntity.getEmail(), userEntity.getEncryptedPassword(),
+                        userEntity.getUserId(), new ArrayList<>()));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.tutorials.junit.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Merges concurrent calls for the same key into one: the first caller runs the loader on its own
+ * thread and every caller that arrives while it is still running gets the same result (or exception).
+ * Nothing is remembered once the call completes, so this never serves stale data; it only removes
+ * duplicate work that is in flight at the same moment.
+ * <p>
+ * {@code users.singleflight.calls{name, result=executed|coalesced}} counts both kinds of caller.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter executed;
+
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.executed = Counter.builder("users.singleflight.calls")
+                .tag("name", name).tag("result", "executed").register(meterRegistry);
+        this.coalesced = Counter.builder("users.singleflight.calls")
+                .tag("name", name).tag("result", "coalesced").register(meterRegistry);
+        Gauge.builder("users.singleflight.in.flight", inFlight, ConcurrentMap::size)
+                .tag("name", name).register(meterRegistry);
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existingCall = inFlight.putIfAbsent(key, call);
+
+        if (existingCall != null) {
+            coalesced.increment();
+            return await(existingCall);
+        }
+
+        executed.increment();
+        try {
+            V returnValue = loader.get();
+            call.complete(returnValue);
+            return returnValue;
+        } catch (Throwable e) {
+            // Errors too, or coalesced callers would wait forever
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
+    }
+}
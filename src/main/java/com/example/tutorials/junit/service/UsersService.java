@@ -1,15 +1,34 @@
 package com.example.tutorials.junit.service;
 
+import com.example.tutorials.junit.shared.ResourceVersion;
 import com.example.tutorials.junit.shared.UserDto;
+import com.example.tutorials.junit.shared.UserImportReport;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface UsersService extends UserDetailsService {
 
     UserDto createUser(UserDto user);
 
+    CompletableFuture<UserDto> createUserAsync(UserDto user);
+
+    UserImportReport createUsers(List<UserDto> users);
+
     List<UserDto> getUsers(int page, int limit);
 
+    List<UserDto> getUsersAfter(long afterId, int limit);
+
+    void streamUsers(Consumer<UserDto> consumer);
+
     UserDto getUser(String email);
+
+    UserDto getUserByUserId(String userId);
+
+    /**
+     * Changes whenever any user is created, updated or deleted.
+     */
+    ResourceVersion getUsersVersion();
 }
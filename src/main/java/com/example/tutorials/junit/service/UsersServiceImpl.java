@@ -1,97 +1,478 @@
 package com.example.tutorials.junit.service;
 
 import com.example.tutorials.junit.exceptions.UsersServiceException;
+import com.example.tutorials.junit.io.OutboxEventEntity;
+import com.example.tutorials.junit.io.OutboxEventRepository;
+import com.example.tutorials.junit.io.ReplicaRouting;
 import com.example.tutorials.junit.io.UserEntity;
+import com.example.tutorials.junit.io.UserShards;
 import com.example.tutorials.junit.io.UsersRepository;
+import com.example.tutorials.junit.io.UsersVersionEntity;
+import com.example.tutorials.junit.io.UsersVersionRepository;
+import com.example.tutorials.junit.metrics.RequestTrace;
+import com.example.tutorials.junit.security.UserPrincipal;
+import com.example.tutorials.junit.shared.ResourceVersion;
+import com.example.tutorials.junit.shared.SortedMerge;
 import com.example.tutorials.junit.shared.UserDto;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
-import org.springframework.beans.BeanUtils;
+import com.example.tutorials.junit.shared.UserImportReport;
+import com.example.tutorials.junit.shared.UserImportResult;
+import com.example.tutorials.junit.shared.UserMapper;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.lang.reflect.Type;
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service("usersService")
+@Profile("!reactive")
 public class UsersServiceImpl implements UsersService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(UsersServiceImpl.class);
+
+    private static final Comparator<UserEntity> BY_ID = Comparator.comparingLong(UserEntity::getId);
+
     private UsersRepository usersRepository;
 
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private OutboxEventRepository outboxEventRepository;
+
+    private UsersVersionRepository usersVersionRepository;
+
+    private UserShards userShards;
+
+    private ReplicaRouting replicaRouting;
+
+    private TransactionTemplate transactions;
+
+    private TransactionTemplate readOnlyTransactions;
+
+    private TransactionTemplate newTransactions;
+
+    private PasswordHasher passwordHasher;
+
+    private EntityManager entityManager;
+
+    private EmailFilter emailFilter;
+
+    private AuthenticationDirectory authenticationDirectory;
+
+    private SingleFlight<String, UserEntity> userLookups;
+
+    private Executor saveExecutor;
 
     @Autowired
-    public UsersServiceImpl(UsersRepository usersRepository, BCryptPasswordEncoder bCryptPasswordEncoder) {
+    public UsersServiceImpl(UsersRepository usersRepository, OutboxEventRepository outboxEventRepository,
+                            UsersVersionRepository usersVersionRepository, UserShards userShards, ReplicaRouting replicaRouting,
+                            PlatformTransactionManager transactionManager,
+                            PasswordHasher passwordHasher, EntityManager entityManager, EmailFilter emailFilter,
+                            AuthenticationDirectory authenticationDirectory, MeterRegistry meterRegistry,
+                            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor saveExecutor) {
         this.usersRepository = usersRepository;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.outboxEventRepository = outboxEventRepository;
+        this.usersVersionRepository = usersVersionRepository;
+        this.userShards = userShards;
+        this.replicaRouting = replicaRouting;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactions = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactions.setReadOnly(true);
+        this.newTransactions = new TransactionTemplate(transactionManager);
+        this.newTransactions.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.passwordHasher = passwordHasher;
+        this.entityManager = entityManager;
+        this.emailFilter = emailFilter;
+        this.authenticationDirectory = authenticationDirectory;
+        this.userLookups = new SingleFlight<>("usersByEmail", meterRegistry);
+        this.saveExecutor = saveExecutor;
     }
 
     @Override
+    @Timed("users.service")
     public UserDto createUser(UserDto user) {
 
-        if (usersRepository.findByEmail(user.getEmail()) != null)
+        if (emailExists(user.getEmail()))
+            throw new UsersServiceException("Record already exists");
+
+        return saveUser(user, passwordHasher.encode(user.getPassword()));
+    }
+
+    /**
+     * The save runs on the application task executor once the hash is ready, so the bounded hashing pool is
+     * never held up by the database.
+     */
+    @Override
+    @Timed("users.service")
+    public CompletableFuture<UserDto> createUserAsync(UserDto user) {
+
+        if (emailExists(user.getEmail()))
             throw new UsersServiceException("Record already exists");
 
-        ModelMapper modelMapper = new ModelMapper();
-        UserEntity userEntity = modelMapper.map(user, UserEntity.class);
+        return passwordHasher.encodeAsync(user.getPassword())
+                .thenApplyAsync(encryptedPassword -> saveUser(user, encryptedPassword), saveExecutor);
+    }
+
+    @Override
+    @Timed("users.service")
+    public UserImportReport createUsers(List<UserDto> users) {
+        long startNanos = System.nanoTime();
+
+        List<List<String>> emailsByShard = newShardLists();
+        for (UserDto user : users) {
+            if (emailFilter.mightContain(user.getEmail()))
+                emailsByShard.get(userShards.shardForEmail(user.getEmail())).add(user.getEmail());
+        }
+        Set<String> takenEmails = new HashSet<>();
+        for (List<String> existingEmails : userShards.scatter(shard -> emailsByShard.get(shard).isEmpty()
+                ? Collections.<String>emptyList()
+                : ReplicaRouting.onPrimary(() -> usersRepository.findExistingEmails(emailsByShard.get(shard))))) {
+            takenEmails.addAll(existingEmails);
+        }
+
+        UserImportResult[] results = new UserImportResult[users.size()];
+        List<Integer> newUserIndexes = new ArrayList<>(users.size());
+        List<String> rawPasswords = new ArrayList<>(users.size());
+
+        for (int index = 0; index < users.size(); index++) {
+            UserDto user = users.get(index);
+            if (!takenEmails.add(user.getEmail())) {
+                results[index] = new UserImportResult(index, user.getEmail(), UserImportResult.Status.DUPLICATE, null);
+                continue;
+            }
+            newUserIndexes.add(index);
+            rawPasswords.add(user.getPassword());
+        }
+
+        List<String> encryptedPasswords = passwordHasher.encodeAll(rawPasswords);
+
+        List<UserEntity> userEntities = RequestTrace.time(RequestTrace.MAPPING,
+                () -> toNewUserEntities(users, newUserIndexes, encryptedPasswords));
+
+        List<List<UserEntity>> userEntitiesByShard = newShardLists();
+        for (UserEntity userEntity : userEntities) {
+            userEntitiesByShard.get(userShards.shardForEmail(userEntity.getEmail())).add(userEntity);
+        }
+        Map<String, UserImportResult.Status> unsavedEmails = new HashMap<>();
+        for (Map<String, UserImportResult.Status> shardUnsaved : userShards.scatter(shard -> saveShard(userEntitiesByShard.get(shard)))) {
+            unsavedEmails.putAll(shardUnsaved);
+        }
+
+        int createdCount = 0;
+        for (int i = 0; i < newUserIndexes.size(); i++) {
+            int index = newUserIndexes.get(i);
+            UserEntity userEntity = userEntities.get(i);
+            UserImportResult.Status unsaved = unsavedEmails.get(userEntity.getEmail());
+            if (unsaved != UserImportResult.Status.FAILED)
+                emailFilter.add(userEntity.getEmail());
+            if (unsaved != null) {
+                results[index] = new UserImportResult(index, userEntity.getEmail(), unsaved, null);
+                continue;
+            }
+            authenticationDirectory.add(userEntity.getEmail(), userEntity.getEncryptedPassword(), userEntity.getUserId());
+            replicaRouting.recordWrite(userEntity.getEmail(), userEntity.getUserId());
+            results[index] = new UserImportResult(index, userEntity.getEmail(), UserImportResult.Status.CREATED, userEntity.getUserId());
+            createdCount++;
+        }
+
+        UserImportReport returnValue = new UserImportReport(Arrays.asList(results), createdCount,
+                System.nanoTime() - startNanos);
+
+        LOGGER.info("Imported {} of {} users in {} ms ({} rows/s)", returnValue.getCreatedCount(), users.size(),
+                returnValue.getElapsedMillis(), Math.round(returnValue.getRowsPerSecond()));
+
+        return returnValue;
+    }
+
+    /**
+     * Saves one shard's new users and their events in a single transaction and returns the emails it could not
+     * save. If a concurrent signup took one of the emails after {@code findExistingEmails}, the batch fails on
+     * the unique index; the rows are then retried one transaction each and the ones that still collide are
+     * {@code DUPLICATE}. Any other failure marks the shard's rows {@code FAILED} instead of failing the import,
+     * since the other shards commit on their own.
+     */
+    private Map<String, UserImportResult.Status> saveShard(List<UserEntity> userEntities) {
+        if (userEntities.isEmpty())
+            return Collections.emptyMap();
+
+        try {
+            transactions.executeWithoutResult(status -> saveWithEvents(userEntities));
+            return Collections.emptyMap();
+        } catch (DataIntegrityViolationException e) {
+            LOGGER.info("Import batch of {} users on shard {} hit a unique index, saving them one by one",
+                    userEntities.size(), UserShards.currentShard());
+        } catch (RuntimeException e) {
+            LOGGER.error("Import batch of {} users on shard {} failed", userEntities.size(), UserShards.currentShard(), e);
+            Map<String, UserImportResult.Status> returnValue = new HashMap<>();
+            for (UserEntity userEntity : userEntities) {
+                returnValue.put(userEntity.getEmail(), UserImportResult.Status.FAILED);
+            }
+            return returnValue;
+        }
+
+        Map<String, UserImportResult.Status> returnValue = new HashMap<>();
+        for (UserEntity userEntity : userEntities) {
+            // the id was assigned by the rolled back batch
+            userEntity.setId(0);
+            try {
+                transactions.executeWithoutResult(status -> saveWithEvents(Collections.singletonList(userEntity)));
+            } catch (DataIntegrityViolationException e) {
+                returnValue.put(userEntity.getEmail(), UserImportResult.Status.DUPLICATE);
+            } catch (RuntimeException e) {
+                LOGGER.error("Importing {} on shard {} failed", userEntity.getEmail(), UserShards.currentShard(), e);
+                returnValue.put(userEntity.getEmail(), UserImportResult.Status.FAILED);
+            }
+        }
+        return returnValue;
+    }
+
+    private void saveWithEvents(List<UserEntity> userEntities) {
+        usersRepository.saveAll(userEntities);
+        List<OutboxEventEntity> events = new ArrayList<>(userEntities.size());
+        for (UserEntity userEntity : userEntities) {
+            events.add(UserMapper.toUserCreatedEvent(userEntity));
+        }
+        outboxEventRepository.saveAll(events);
+        bumpUsersVersion();
+    }
 
-        String publicUserId = UUID.randomUUID().toString();
+    /**
+     * Counts a change to the current shard's users in the caller's transaction. The first write to a shard
+     * creates its counter row in a transaction of its own, so a concurrent first write only finds it there.
+     */
+    private void bumpUsersVersion() {
+        Instant now = Instant.now();
+        if (usersVersionRepository.bump(now) > 0)
+            return;
+
+        try {
+            newTransactions.executeWithoutResult(status -> usersVersionRepository.create(now));
+        } catch (DataIntegrityViolationException e) {
+            LOGGER.debug("Users version of shard {} was created concurrently", UserShards.currentShard());
+        }
+        usersVersionRepository.bump(now);
+    }
+
+    private List<UserEntity> toNewUserEntities(List<UserDto> users, List<Integer> newUserIndexes,
+                                               List<String> encryptedPasswords) {
+        List<UserEntity> returnValue = new ArrayList<>(newUserIndexes.size());
+        for (int i = 0; i < newUserIndexes.size(); i++) {
+            UserEntity userEntity = UserMapper.toUserEntity(users.get(newUserIndexes.get(i)));
+            userEntity.setUserId(userShards.newUserId(userEntity.getEmail()));
+            userEntity.setEncryptedPassword(encryptedPasswords.get(i));
+            returnValue.add(userEntity);
+        }
+        return returnValue;
+    }
+
+    /**
+     * The user and its {@code UserCreated} outbox event commit together on the user's shard;
+     * {@link OutboxRelay} delivers the event afterwards, off the request thread.
+     */
+    private UserDto saveUser(UserDto user, String encryptedPassword) {
+        UserEntity userEntity = RequestTrace.time(RequestTrace.MAPPING, () -> UserMapper.toUserEntity(user));
+
+        String publicUserId = userShards.newUserId(userEntity.getEmail());
         userEntity.setUserId(publicUserId);
-        userEntity.setEncryptedPassword(bCryptPasswordEncoder.encode(user.getPassword()));
+        userEntity.setEncryptedPassword(encryptedPassword);
 
-        UserEntity storedUserDetails = usersRepository.save(userEntity);
+        UserEntity storedUserDetails;
+        try {
+            storedUserDetails = userShards.onShard(userShards.shardOfUserId(publicUserId), () -> transactions.execute(status -> {
+                UserEntity savedUser = usersRepository.save(userEntity);
+                outboxEventRepository.save(UserMapper.toUserCreatedEvent(savedUser));
+                bumpUsersVersion();
+                return savedUser;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            throw new UsersServiceException("Record already exists");
+        }
+        emailFilter.add(storedUserDetails.getEmail());
+        authenticationDirectory.add(storedUserDetails.getEmail(), storedUserDetails.getEncryptedPassword(),
+                storedUserDetails.getUserId());
+        replicaRouting.recordWrite(storedUserDetails.getEmail(), storedUserDetails.getUserId());
 
-        UserDto returnValue  = modelMapper.map(storedUserDetails, UserDto.class);
+        UserDto returnValue  = RequestTrace.time(RequestTrace.MAPPING, () -> UserMapper.toUserDto(storedUserDetails));
 
         return returnValue;
     }
 
     @Override
+    @Timed("users.service")
     public List<UserDto> getUsers(int page, int limit) {
-        List<UserDto> returnValue = new ArrayList<>();
-
         if (page > 0) page -=1;
 
-        Pageable pageableRequest = PageRequest.of(page, limit);
+        List<UserEntity> users = findPage(page, limit);
 
-        Page<UserEntity> usersPage = usersRepository.findAll(pageableRequest);
-        List<UserEntity> users = usersPage.getContent();
+        return RequestTrace.time(RequestTrace.MAPPING, () -> UserMapper.toUserDtos(users));
+    }
 
-        Type listType = new TypeToken<List<UserDto>>() {}.getType();
-        returnValue = new ModelMapper().map(users, listType);
+    @Override
+    @Timed("users.service")
+    public List<UserDto> getUsersAfter(long afterId, int limit) {
+        List<List<UserEntity>> shardPages = RequestTrace.time(RequestTrace.PERSISTENCE, () -> userShards.scatter(shard ->
+                usersRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit))));
+        List<UserEntity> users = SortedMerge.merge(shardPages, BY_ID, 0, limit);
 
-        return returnValue;
+        return RequestTrace.time(RequestTrace.MAPPING, () -> UserMapper.toUserDtos(users));
     }
 
+    /**
+     * Streams one shard after the other, so the export is ordered by id within each shard only.
+     */
     @Override
+    @Timed("users.service")
+    public void streamUsers(Consumer<UserDto> consumer) {
+        userShards.forEachShard(shard -> readOnlyTransactions.executeWithoutResult(status -> {
+            try (Stream<UserEntity> users = usersRepository.streamAll()) {
+                users.forEach(userEntity -> {
+                    consumer.accept(UserMapper.toUserDto(userEntity));
+                    entityManager.detach(userEntity);
+                });
+            }
+        }));
+    }
+
+    @Override
+    @Timed("users.service")
     public UserDto getUser(String email) {
-        UserEntity userEntity = usersRepository.findByEmail(email);
+        UserEntity userEntity = findByEmailCoalesced(email);
 
         if (userEntity == null)
             throw new UsernameNotFoundException(email);
 
-        UserDto returnValue = new UserDto();
-        BeanUtils.copyProperties(userEntity, returnValue);
+        return RequestTrace.time(RequestTrace.MAPPING, () -> UserMapper.toUserDto(userEntity));
+    }
+
+    @Override
+    @Timed("users.service")
+    public UserDto getUserByUserId(String userId) {
+        int shard = userShards.shardOfUserId(userId);
+        UserEntity userEntity = shard < 0 ? null : replicaRouting.readYourWrites(userId,
+                () -> userShards.onShard(shard, () -> usersRepository.findByUserId(userId)));
 
-        return returnValue;
+        if (userEntity == null)
+            throw new UsernameNotFoundException(userId);
+
+        return RequestTrace.time(RequestTrace.MAPPING, () -> UserMapper.toUserDto(userEntity));
     }
 
+    /**
+     * Read from each shard's {@code users_version} row, so every instance hands out the same validators and only
+     * committed changes count, without scanning {@code users}: the sum of the shards' change counters and the
+     * latest time any of them moved.
+     */
     @Override
+    public ResourceVersion getUsersVersion() {
+        long version = 0;
+        Instant lastUpdatedAt = Instant.EPOCH;
+        for (Optional<UsersVersionEntity> shardVersion : userShards.scatter(shard -> usersVersionRepository.findById(UsersVersionEntity.ID))) {
+            if (shardVersion.isEmpty())
+                continue;
+            version += shardVersion.get().getVersion();
+            if (shardVersion.get().getUpdatedAt().isAfter(lastUpdatedAt))
+                lastUpdatedAt = shardVersion.get().getUpdatedAt();
+        }
+
+        String eTag = "W/\"" + version + "-" + Long.toString(ChronoUnit.MICROS.between(Instant.EPOCH, lastUpdatedAt), 36) + "\"";
+        return new ResourceVersion(eTag, lastUpdatedAt.toEpochMilli());
+    }
+
+    @Override
+    @Timed("users.service")
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        UserEntity userEntity = usersRepository.findByEmail(email);
+        UserDetails returnValue = authenticationDirectory.find(email);
+        if (returnValue != null)
+            return returnValue;
+
+        UserEntity userEntity = findByEmailCoalesced(email);
 
         if (userEntity == null)
             throw new UsernameNotFoundException(email);
 
-        return new User(userEntity.getEmail(), userEntity.getEncryptedPassword(), new ArrayList<>());
+        returnValue = new UserPrincipal(userEntity.getEmail(), userEntity.getEncryptedPassword(),
+                userEntity.getUserId(), new ArrayList<>());
+
+        return returnValue;
+    }
+
+    /**
+     * Only queries the database when the email filter cannot rule the email out, and then the primary, which
+     * has every signup a replica may still be missing; a signup racing past this check is stopped by the
+     * unique index on {@code users.email} instead.
+     */
+    private boolean emailExists(String email) {
+        if (!emailFilter.mightContain(email))
+            return false;
+
+        if (ReplicaRouting.onPrimary(() -> userShards.onShard(userShards.shardForEmail(email),
+                () -> usersRepository.findByEmail(email))) != null)
+            return true;
+
+        emailFilter.recordFalsePositive();
+        return false;
+    }
+
+    /**
+     * Concurrent lookups of the same email, e.g. a burst of logins for one account, share a single query.
+     * A user written moments ago is read from the primary instead, outside the shared query, which may be
+     * served by a replica that has not caught up yet.
+     */
+    private UserEntity findByEmailCoalesced(String email) {
+        Supplier<UserEntity> query = () ->
+                userShards.onShard(userShards.shardForEmail(email), () -> usersRepository.findByEmail(email));
+        if (replicaRouting.wasRecentlyWritten(email))
+            return ReplicaRouting.onPrimary(query);
+
+        return userLookups.execute(email, query);
+    }
+
+    /**
+     * With several shards each returns its first {@code (page + 1) * limit} users by id and the merge skips
+     * the earlier pages, so deep offset pages get expensive; the keyset {@link #getUsersAfter} does not.
+     */
+    private List<UserEntity> findPage(int page, int limit) {
+        if (userShards.getShardCount() == 1)
+            return usersRepository.findAll(PageRequest.of(page, limit)).getContent();
+
+        Pageable shardPage = PageRequest.of(0, (page + 1) * limit);
+        List<List<UserEntity>> shardPages = RequestTrace.time(RequestTrace.PERSISTENCE,
+                () -> userShards.scatter(shard -> usersRepository.findByOrderByIdAsc(shardPage)));
+        return SortedMerge.merge(shardPages, BY_ID, page * limit, limit);
+    }
+
+    private <T> List<List<T>> newShardLists() {
+        List<List<T>> returnValue = new ArrayList<>(userShards.getShardCount());
+        for (int shard = 0; shard < userShards.getShardCount(); shard++) {
+            returnValue.add(new ArrayList<>());
+        }
+        return returnValue;
     }
 }
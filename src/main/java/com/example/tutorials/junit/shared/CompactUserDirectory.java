@@ -0,0 +1,268 @@
+package com.example.tutorials.junit.shared;
+
+import com.example.tutorials.junit.io.UserIdConverter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Thread-safe map from email to the credentials a login needs, the BCrypt hash and the userId, kept in
+ * direct buffers outside the Java heap so that millions of users add nothing for the garbage collector to trace.
+ * <p>
+ * An open-addressing table with linear probing holds, per slot, the low 32 bits of the email's hash and the
+ * number of its record. Each record is fixed-width: offset and length of the email's UTF-8 bytes in a shared
+ * arena, the userId as 16 bytes and the 60-character BCrypt hash. Only version 4 or 7 UUID userIds and 60-byte
+ * ASCII hashes fit; {@link #put} refuses anything else. Buffers are int-indexed, which caps the directory at
+ * about 25 million users.
+ * <p>
+ * Lookups take an optimistic {@link StampedLock} read and only fall back to the read lock when a write
+ * interleaved, so they never block each other.
+ */
+public final class CompactUserDirectory {
+
+    public static final int PASSWORD_BYTES = 60;
+
+    private static final int SLOT_BYTES = 2 * Integer.BYTES;
+
+    private static final int EMAIL_OFFSET = 0;
+
+    private static final int EMAIL_LENGTH = EMAIL_OFFSET + Integer.BYTES;
+
+    private static final int USER_ID = EMAIL_LENGTH + Integer.BYTES;
+
+    private static final int PASSWORD = USER_ID + UserIdConverter.BYTES;
+
+    private static final int RECORD_BYTES = PASSWORD + PASSWORD_BYTES;
+
+    private static final double MAX_LOAD = 0.7;
+
+    private static final int AVERAGE_EMAIL_BYTES = 24;
+
+    private final StampedLock lock = new StampedLock();
+
+    private ByteBuffer slots;
+
+    private int slotMask;
+
+    private ByteBuffer records;
+
+    private ByteBuffer emails;
+
+    private int emailsEnd;
+
+    private int size;
+
+    public CompactUserDirectory(int initialCapacity) {
+        if (initialCapacity <= 0)
+            throw new IllegalArgumentException("Initial capacity must be positive");
+
+        int slotCount = Integer.highestOneBit((int) Math.ceil(initialCapacity / MAX_LOAD) - 1) << 1;
+        this.slots = ByteBuffer.allocateDirect(Math.max(2, slotCount) * SLOT_BYTES);
+        this.slotMask = slots.capacity() / SLOT_BYTES - 1;
+        this.records = ByteBuffer.allocateDirect(initialCapacity * RECORD_BYTES);
+        this.emails = ByteBuffer.allocateDirect(initialCapacity * AVERAGE_EMAIL_BYTES);
+    }
+
+    /**
+     * Adds the user or replaces its credentials. Returns {@code false}, storing nothing, if the hash is not a
+     * 60-character ASCII string or the userId not a UUID.
+     */
+    public boolean put(String email, String encryptedPassword, String userId) {
+        UUID uuid = UserIdConverter.parse(userId);
+        if (uuid == null || encryptedPassword.length() != PASSWORD_BYTES)
+            return false;
+        for (int i = 0; i < PASSWORD_BYTES; i++) {
+            if (encryptedPassword.charAt(i) > 0x7f)
+                return false;
+        }
+        byte[] password = encryptedPassword.getBytes(StandardCharsets.US_ASCII);
+
+        byte[] key = email.getBytes(StandardCharsets.UTF_8);
+        long hash = StringHash.hash64(key);
+        long stamp = lock.writeLock();
+        try {
+            int slot = findSlot(slots, slotMask, records, emails, key, (int) hash);
+            int record = slots.getInt(slot * SLOT_BYTES + Integer.BYTES) - 1;
+            if (record < 0) {
+                if (size + 1 > (slotMask + 1) * MAX_LOAD) {
+                    rehash();
+                    slot = findSlot(slots, slotMask, records, emails, key, (int) hash);
+                }
+                record = append(key);
+                slots.putInt(slot * SLOT_BYTES, (int) hash);
+                slots.putInt(slot * SLOT_BYTES + Integer.BYTES, record + 1);
+            }
+
+            int base = record * RECORD_BYTES;
+            records.putLong(base + USER_ID, uuid.getMostSignificantBits());
+            records.putLong(base + USER_ID + Long.BYTES, uuid.getLeastSignificantBits());
+            records.put(base + PASSWORD, password);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * The user's credentials, or {@code null} if the email was never added.
+     */
+    public Credentials get(String email) {
+        byte[] key = email.getBytes(StandardCharsets.UTF_8);
+        long hash = StringHash.hash64(key);
+        byte[] password = new byte[PASSWORD_BYTES];
+        long[] userId = new long[2];
+
+        long stamp = lock.tryOptimisticRead();
+        boolean found;
+        try {
+            found = read(key, (int) hash, password, userId);
+        } catch (IndexOutOfBoundsException e) {
+            // the buffers were replaced while reading; validation fails below
+            found = false;
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = read(key, (int) hash, password, userId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        return found ? new Credentials(new String(password, StandardCharsets.US_ASCII),
+                new UUID(userId[0], userId[1]).toString()) : null;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Off-heap bytes allocated for the table, the records and the email arena.
+     */
+    public long memoryBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) slots.capacity() + records.capacity() + emails.capacity();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private boolean read(byte[] key, int hash, byte[] password, long[] userId) {
+        ByteBuffer slots = this.slots;
+        ByteBuffer records = this.records;
+        int slot = findSlot(slots, this.slotMask, records, this.emails, key, hash);
+        int record = slots.getInt(slot * SLOT_BYTES + Integer.BYTES) - 1;
+        if (record < 0)
+            return false;
+
+        int base = record * RECORD_BYTES;
+        userId[0] = records.getLong(base + USER_ID);
+        userId[1] = records.getLong(base + USER_ID + Long.BYTES);
+        records.get(base + PASSWORD, password);
+        return true;
+    }
+
+    /**
+     * The slot holding {@code key}, or the empty slot where it belongs.
+     */
+    private static int findSlot(ByteBuffer slots, int slotMask, ByteBuffer records, ByteBuffer emails,
+                                byte[] key, int hash) {
+        int slot = hash & slotMask;
+        while (true) {
+            int record = slots.getInt(slot * SLOT_BYTES + Integer.BYTES) - 1;
+            if (record < 0)
+                return slot;
+            if (slots.getInt(slot * SLOT_BYTES) == hash && emailEquals(records, emails, record, key))
+                return slot;
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    private static boolean emailEquals(ByteBuffer records, ByteBuffer emails, int record, byte[] key) {
+        int base = record * RECORD_BYTES;
+        if (records.getInt(base + EMAIL_LENGTH) != key.length)
+            return false;
+        int offset = records.getInt(base + EMAIL_OFFSET);
+        for (int i = 0; i < key.length; i++) {
+            if (emails.get(offset + i) != key[i])
+                return false;
+        }
+        return true;
+    }
+
+    private int append(byte[] key) {
+        if ((size + 1) * (long) RECORD_BYTES > records.capacity())
+            records = grow(records, (size + 1) * (long) RECORD_BYTES);
+        if (emailsEnd + (long) key.length > emails.capacity())
+            emails = grow(emails, emailsEnd + (long) key.length);
+
+        emails.put(emailsEnd, key);
+        int base = size * RECORD_BYTES;
+        records.putInt(base + EMAIL_OFFSET, emailsEnd);
+        records.putInt(base + EMAIL_LENGTH, key.length);
+        emailsEnd += key.length;
+        return size++;
+    }
+
+    private void rehash() {
+        int slotCount = (slotMask + 1) * 2;
+        if ((long) slotCount * SLOT_BYTES > Integer.MAX_VALUE)
+            throw new IllegalStateException("Directory is full at " + size + " users");
+
+        ByteBuffer rehashed = ByteBuffer.allocateDirect(slotCount * SLOT_BYTES);
+        int rehashedMask = slotCount - 1;
+        for (int slot = 0; slot <= slotMask; slot++) {
+            int record = slots.getInt(slot * SLOT_BYTES + Integer.BYTES);
+            if (record == 0)
+                continue;
+            int hash = slots.getInt(slot * SLOT_BYTES);
+            int target = hash & rehashedMask;
+            while (rehashed.getInt(target * SLOT_BYTES + Integer.BYTES) != 0) {
+                target = (target + 1) & rehashedMask;
+            }
+            rehashed.putInt(target * SLOT_BYTES, hash);
+            rehashed.putInt(target * SLOT_BYTES + Integer.BYTES, record);
+        }
+        slots = rehashed;
+        slotMask = rehashedMask;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, long required) {
+        long capacity = Math.max(required, buffer.capacity() * 2L);
+        if (required > Integer.MAX_VALUE)
+            throw new IllegalStateException("Directory buffer cannot grow beyond 2 GB");
+
+        ByteBuffer returnValue = ByteBuffer.allocateDirect((int) Math.min(capacity, Integer.MAX_VALUE));
+        returnValue.put(0, buffer, 0, buffer.capacity());
+        return returnValue;
+    }
+
+    public static final class Credentials {
+
+        private final String encryptedPassword;
+
+        private final String userId;
+
+        private Credentials(String encryptedPassword, String userId) {
+            this.encryptedPassword = encryptedPassword;
+            this.userId = userId;
+        }
+
+        public String getEncryptedPassword() {
+            return encryptedPassword;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+    }
+}
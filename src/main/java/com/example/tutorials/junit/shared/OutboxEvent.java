@@ -0,0 +1,53 @@
+package com.example.tutorials.junit.shared;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.Instant;
+
+/**
+ * An event as delivered to an {@code OutboxSink}. The id increases with every event written, so events
+ * about the same aggregate arrive in the order they happened; {@link #getPayload()} is a JSON document.
+ */
+public final class OutboxEvent {
+
+    public static final String USER_CREATED = "UserCreated";
+
+    private final long id;
+
+    private final String aggregateId;
+
+    private final String type;
+
+    private final String payload;
+
+    private final Instant createdAt;
+
+    public OutboxEvent(long id, String aggregateId, String type, String payload, Instant createdAt) {
+        this.id = id;
+        this.aggregateId = aggregateId;
+        this.type = type;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getAggregateId() {
+        return aggregateId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    @JsonRawValue
+    public String getPayload() {
+        return payload;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.tutorials.junit.shared;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+public final class PageCursor {
+
+    private PageCursor() {
+    }
+
+    public static String encode(long lastId) {
+        byte[] bytes = ByteBuffer.allocate(Long.BYTES).putLong(lastId).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Returns the id to seek after; an empty cursor starts from the beginning.
+     *
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode(long)}
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty())
+            return 0;
+
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length != Long.BYTES)
+            throw new IllegalArgumentException("Invalid page cursor");
+
+        return ByteBuffer.wrap(bytes).getLong();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.tutorials.junit.shared;
+
+/**
+ * Validators of a representation for conditional GETs: its ETag and its Last-Modified time.
+ */
+public final class ResourceVersion {
+
+    private final String eTag;
+
+    private final long lastModifiedMillis;
+
+    public ResourceVersion(String eTag, long lastModifiedMillis) {
+        this.eTag = eTag;
+        this.lastModifiedMillis = lastModifiedMillis;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public long getLastModifiedMillis() {
+        return lastModifiedMillis;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.tutorials.junit.shared;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe scalable Bloom filter of strings (Almeida et al., 2007). It starts with one stage sized for
+ * {@code initialCapacity} elements; whenever the newest stage is full another one twice as large is
+ * added, each with half the false-positive rate of the previous, so the compound rate stays below
+ * {@code falsePositiveRate} however many elements are added.
+ * <p>
+ * {@link #mightContain(String)} never returns {@code false} for an added value.
+ */
+public final class ScalableBloomFilter {
+
+    private static final int GROWTH_FACTOR = 2;
+
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity <= 0)
+            throw new IllegalArgumentException("Initial capacity must be positive");
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+
+        stages.add(new Stage(initialCapacity, falsePositiveRate * (1 - TIGHTENING_RATIO)));
+    }
+
+    /**
+     * Returns {@code true} if the filter changed, i.e. the value was definitely not present before.
+     */
+    public boolean add(String value) {
+        long hash = StringHash.hash64(value);
+        if (mightContain(hash))
+            return false;
+
+        Stage stage = stages.get(stages.size() - 1);
+        if (stage.count.get() >= stage.capacity)
+            stage = grow(stage);
+
+        return stage.put(hash);
+    }
+
+    public boolean mightContain(String value) {
+        return mightContain(StringHash.hash64(value));
+    }
+
+    public long size() {
+        long returnValue = 0;
+        for (Stage stage : stages) {
+            returnValue += stage.count.get();
+        }
+        return returnValue;
+    }
+
+    public int stageCount() {
+        return stages.size();
+    }
+
+    public long memoryBytes() {
+        long returnValue = 0;
+        for (Stage stage : stages) {
+            returnValue += stage.bits.length() * (long) Long.BYTES;
+        }
+        return returnValue;
+    }
+
+    /**
+     * The probability that {@link #mightContain(String)} answers {@code true} for a value never added,
+     * estimated from how many bits of each stage are currently set.
+     */
+    public double expectedFalsePositiveRate() {
+        double allStagesMiss = 1;
+        for (Stage stage : stages) {
+            allStagesMiss *= 1 - stage.expectedFalsePositiveRate();
+        }
+        return 1 - allStagesMiss;
+    }
+
+    private boolean mightContain(long hash) {
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash))
+                return true;
+        }
+        return false;
+    }
+
+    private synchronized Stage grow(Stage full) {
+        Stage newest = stages.get(stages.size() - 1);
+        if (newest != full)
+            return newest;
+
+        Stage returnValue = new Stage(full.capacity * GROWTH_FACTOR, full.falsePositiveRate * TIGHTENING_RATIO);
+        stages.add(returnValue);
+        return returnValue;
+    }
+
+    private static final class Stage {
+
+        private final long capacity;
+
+        private final double falsePositiveRate;
+
+        private final long numBits;
+
+        private final int numHashes;
+
+        private final AtomicLongArray bits;
+
+        private final AtomicLong count = new AtomicLong();
+
+        private Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray(Math.toIntExact((optimalBits + Long.SIZE - 1) / Long.SIZE));
+            this.numBits = bits.length() * (long) Long.SIZE;
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+        }
+
+        private boolean put(long hash) {
+            boolean changed = false;
+            int hash1 = (int) hash;
+            int hash2 = (int) (hash >>> 32);
+            for (int i = 1; i <= numHashes; i++) {
+                changed |= setBit(bitIndex(hash1, hash2, i));
+            }
+            if (changed)
+                count.incrementAndGet();
+            return changed;
+        }
+
+        private boolean mightContain(long hash) {
+            int hash1 = (int) hash;
+            int hash2 = (int) (hash >>> 32);
+            for (int i = 1; i <= numHashes; i++) {
+                long index = bitIndex(hash1, hash2, i);
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0)
+                    return false;
+            }
+            return true;
+        }
+
+        private double expectedFalsePositiveRate() {
+            long setBits = 0;
+            for (int i = 0; i < bits.length(); i++) {
+                setBits += Long.bitCount(bits.get(i));
+            }
+            return Math.pow((double) setBits / numBits, numHashes);
+        }
+
+        /**
+         * Kirsch-Mitzenmacher double hashing, with the two halves of the 64-bit hash as the independent hashes.
+         */
+        private long bitIndex(int hash1, int hash2, int i) {
+            long combined = hash1 + (long) i * hash2;
+            if (combined < 0)
+                combined = ~combined;
+            return combined % numBits;
+        }
+
+        private boolean setBit(long index) {
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0)
+                    return false;
+            } while (!bits.compareAndSet(word, current, current | mask));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.tutorials.junit.shared;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+public final class SortedMerge {
+
+    private SortedMerge() {
+    }
+
+    /**
+     * K-way merge of lists that are each sorted by {@code comparator}: skips the first {@code skip}
+     * elements of the merged order and returns at most the following {@code limit}. Each step costs
+     * O(log k) for k lists; equal elements keep the order of the lists they came from.
+     */
+    public static <T> List<T> merge(List<List<T>> sortedLists, Comparator<? super T> comparator, int skip, int limit) {
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()), (a, b) -> {
+            int order = comparator.compare(a.head(), b.head());
+            return order != 0 ? order : Integer.compare(a.listIndex, b.listIndex);
+        });
+        for (int i = 0; i < sortedLists.size(); i++) {
+            if (!sortedLists.get(i).isEmpty())
+                heads.add(new Cursor<>(sortedLists.get(i), i));
+        }
+
+        List<T> returnValue = new ArrayList<>(Math.max(0, limit));
+        int skipped = 0;
+        while (returnValue.size() < limit && !heads.isEmpty()) {
+            Cursor<T> cursor = heads.poll();
+            T element = cursor.head();
+            if (skipped < skip)
+                skipped++;
+            else
+                returnValue.add(element);
+
+            if (++cursor.position < cursor.list.size())
+                heads.add(cursor);
+        }
+        return returnValue;
+    }
+
+    private static final class Cursor<T> {
+
+        private final List<T> list;
+
+        private final int listIndex;
+
+        private int position;
+
+        private Cursor(List<T> list, int listIndex) {
+            this.list = list;
+            this.listIndex = listIndex;
+        }
+
+        private T head() {
+            return list.get(position);
+        }
+    }
+}
@@ -1,20 +0,0 @@
-package com.example.tutorials.junit.shared;
-
-import org.springframework.beans.BeansException;
-import org.springframework.context.ApplicationContext;
-import org.springframework.context.ApplicationContextAware;
-
-public class SpringApplicationContext implements ApplicationContextAware {
-
-    private static ApplicationContext CONTEXT;
-
-    @Override
-    public void setApplicationContext(ApplicationContext context) throws BeansException {
-        CONTEXT = context;
-    }
-
-    public static Object getBean(String beanName) {
-        return CONTEXT.getBean(beanName);
-    }
-
-}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.example.tutorials.junit.shared;
+
+import java.nio.charset.StandardCharsets;
+
+public final class StringHash {
+
+    private StringHash() {
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes followed by the MurmurHash3 finalizer, so every output bit
+     * depends on every input byte. Stable across JVMs and restarts, unlike {@link String#hashCode()}.
+     */
+    public static long hash64(String value) {
+        return hash64(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * {@link #hash64(String)} of a string already encoded as UTF-8.
+     */
+    public static long hash64(byte[] utf8) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : utf8) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.tutorials.junit.shared;
 
+import java.time.Instant;
+
 public class UserDto {
 
     private long id;
@@ -16,6 +18,10 @@ public class UserDto {
 
     private String encryptedPassword;
 
+    private long version;
+
+    private Instant updatedAt;
+
     public long getId() {
         return id;
     }
@@ -71,4 +77,20 @@ public class UserDto {
     public void setEncryptedPassword(String encryptedPassword) {
         this.encryptedPassword = encryptedPassword;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
@@ -0,0 +1,37 @@
+package com.example.tutorials.junit.shared;
+
+import java.util.List;
+
+public class UserImportReport {
+
+    private List<UserImportResult> results;
+
+    private int createdCount;
+
+    private long elapsedMillis;
+
+    private double rowsPerSecond;
+
+    public UserImportReport(List<UserImportResult> results, int createdCount, long elapsedNanos) {
+        this.results = results;
+        this.createdCount = createdCount;
+        this.elapsedMillis = elapsedNanos / 1_000_000;
+        this.rowsPerSecond = elapsedNanos > 0 ? results.size() * 1_000_000_000.0 / elapsedNanos : 0;
+    }
+
+    public List<UserImportResult> getResults() {
+        return results;
+    }
+
+    public int getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+}
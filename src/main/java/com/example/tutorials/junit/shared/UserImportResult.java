@@ -0,0 +1,58 @@
+package com.example.tutorials.junit.shared;
+
+public class UserImportResult {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        /** Not saved because its shard failed; the other shards' rows are committed. */
+        FAILED
+    }
+
+    private int index;
+
+    private String email;
+
+    private Status status;
+
+    private String userId;
+
+    public UserImportResult(int index, String email, Status status, String userId) {
+        this.index = index;
+        this.email = email;
+        this.status = status;
+        this.userId = userId;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.tutorials.junit.shared;
+
+import com.example.tutorials.junit.io.OutboxEventEntity;
+import com.example.tutorials.junit.io.ReactiveUserEntity;
+import com.example.tutorials.junit.io.UserEntity;
+import com.example.tutorials.junit.ui.request.UserDetailsRequestModel;
+import com.example.tutorials.junit.ui.response.UserImportResultRest;
+import com.example.tutorials.junit.ui.response.UserRest;
+import com.example.tutorials.junit.ui.response.UsersImportRest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class UserMapper {
+
+    private static final ObjectWriter EVENT_PAYLOAD_WRITER = new ObjectMapper().writerFor(UserRest.class);
+
+    private UserMapper() {
+    }
+
+    public static UserDto toUserDto(UserDetailsRequestModel userDetails) {
+        UserDto returnValue = new UserDto();
+        returnValue.setFirstName(userDetails.getFirstName());
+        returnValue.setLastName(userDetails.getLastName());
+        returnValue.setEmail(userDetails.getEmail());
+        returnValue.setPassword(userDetails.getPassword());
+
+        return returnValue;
+    }
+
+    public static UserEntity toUserEntity(UserDto user) {
+        UserEntity returnValue = new UserEntity();
+        returnValue.setId(user.getId());
+        returnValue.setUserId(user.getUserId());
+        returnValue.setFirstName(user.getFirstName());
+        returnValue.setLastName(user.getLastName());
+        returnValue.setEmail(user.getEmail());
+        returnValue.setEncryptedPassword(user.getEncryptedPassword());
+
+        return returnValue;
+    }
+
+    public static UserDto toUserDto(UserEntity userEntity) {
+        UserDto returnValue = new UserDto();
+        returnValue.setId(userEntity.getId());
+        returnValue.setUserId(userEntity.getUserId());
+        returnValue.setFirstName(userEntity.getFirstName());
+        returnValue.setLastName(userEntity.getLastName());
+        returnValue.setEmail(userEntity.getEmail());
+        returnValue.setEncryptedPassword(userEntity.getEncryptedPassword());
+        returnValue.setVersion(userEntity.getVersion());
+        returnValue.setUpdatedAt(userEntity.getUpdatedAt());
+
+        return returnValue;
+    }
+
+    public static ReactiveUserEntity toReactiveUserEntity(UserDto user) {
+        ReactiveUserEntity returnValue = new ReactiveUserEntity();
+        returnValue.setUserId(user.getUserId());
+        returnValue.setFirstName(user.getFirstName());
+        returnValue.setLastName(user.getLastName());
+        returnValue.setEmail(user.getEmail());
+        returnValue.setEncryptedPassword(user.getEncryptedPassword());
+
+        return returnValue;
+    }
+
+    public static UserDto toUserDto(ReactiveUserEntity userEntity) {
+        UserDto returnValue = new UserDto();
+        returnValue.setId(userEntity.getId());
+        returnValue.setUserId(userEntity.getUserId());
+        returnValue.setFirstName(userEntity.getFirstName());
+        returnValue.setLastName(userEntity.getLastName());
+        returnValue.setEmail(userEntity.getEmail());
+        returnValue.setEncryptedPassword(userEntity.getEncryptedPassword());
+
+        return returnValue;
+    }
+
+    public static UserRest toUserRest(UserDto user) {
+        UserRest returnValue = new UserRest();
+        returnValue.setUserId(user.getUserId());
+        returnValue.setFirstName(user.getFirstName());
+        returnValue.setLastName(user.getLastName());
+        returnValue.setEmail(user.getEmail());
+
+        return returnValue;
+    }
+
+    /**
+     * The outbox row announcing a new user; its payload is the user's public representation.
+     */
+    public static OutboxEventEntity toUserCreatedEvent(UserEntity userEntity) {
+        UserRest user = new UserRest();
+        user.setUserId(userEntity.getUserId());
+        user.setFirstName(userEntity.getFirstName());
+        user.setLastName(userEntity.getLastName());
+        user.setEmail(userEntity.getEmail());
+
+        try {
+            return new OutboxEventEntity(userEntity.getUserId(), OutboxEvent.USER_CREATED,
+                    EVENT_PAYLOAD_WRITER.writeValueAsString(user));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize event for user " + userEntity.getUserId(), e);
+        }
+    }
+
+    public static OutboxEvent toOutboxEvent(OutboxEventEntity eventEntity) {
+        return new OutboxEvent(eventEntity.getId(), eventEntity.getAggregateId(), eventEntity.getType(),
+                eventEntity.getPayload(), eventEntity.getCreatedAt());
+    }
+
+    public static List<UserDto> toUserDtos(List<UserEntity> userEntities) {
+        List<UserDto> returnValue = new ArrayList<>(userEntities.size());
+
+        for (UserEntity userEntity : userEntities) {
+            returnValue.add(toUserDto(userEntity));
+        }
+
+        return returnValue;
+    }
+
+    public static List<UserRest> toUserRests(List<UserDto> users) {
+        List<UserRest> returnValue = new ArrayList<>(users.size());
+
+        for (UserDto user : users) {
+            returnValue.add(toUserRest(user));
+        }
+
+        return returnValue;
+    }
+
+    public static List<UserDto> toUserDtosFromRequest(List<UserDetailsRequestModel> usersDetails) {
+        List<UserDto> returnValue = new ArrayList<>(usersDetails.size());
+
+        for (UserDetailsRequestModel userDetails : usersDetails) {
+            returnValue.add(toUserDto(userDetails));
+        }
+
+        return returnValue;
+    }
+
+    public static UsersImportRest toUsersImportRest(UserImportReport report) {
+        List<UserImportResultRest> results = new ArrayList<>(report.getResults().size());
+
+        for (UserImportResult result : report.getResults()) {
+            UserImportResultRest resultRest = new UserImportResultRest();
+            resultRest.setIndex(result.getIndex());
+            resultRest.setEmail(result.getEmail());
+            resultRest.setStatus(result.getStatus().name());
+            resultRest.setUserId(result.getUserId());
+            results.add(resultRest);
+        }
+
+        UsersImportRest returnValue = new UsersImportRest();
+        returnValue.setResults(results);
+        returnValue.setCreatedCount(report.getCreatedCount());
+        returnValue.setElapsedMillis(report.getElapsedMillis());
+        returnValue.setRowsPerSecond(report.getRowsPerSecond());
+
+        return returnValue;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.tutorials.junit.ui.controllers;
+
+import com.example.tutorials.junit.service.ReactiveUsersService;
+import com.example.tutorials.junit.shared.PageCursor;
+import com.example.tutorials.junit.shared.UserMapper;
+import com.example.tutorials.junit.ui.request.UserDetailsRequestModel;
+import com.example.tutorials.junit.ui.response.UserRest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.util.List;
+
+/**
+ * The users API on WebFlux, active with the {@code reactive} profile in place of {@link UsersController}.
+ */
+@RestController
+@RequestMapping("/users")
+@Profile("reactive")
+public class ReactiveUsersController {
+
+    private ReactiveUsersService usersService;
+
+    @Autowired
+    public ReactiveUsersController(ReactiveUsersService usersService) {
+        this.usersService = usersService;
+    }
+
+    @PostMapping
+    public Mono<UserRest> createUser(@RequestBody @Valid UserDetailsRequestModel userDetails) {
+        return usersService.createUser(UserMapper.toUserDto(userDetails))
+                .map(UserMapper::toUserRest);
+    }
+
+    @GetMapping
+    public Flux<UserRest> getUsers(@RequestParam(value = "page", defaultValue = "0") int page,
+                                   @RequestParam(value = "limit", defaultValue = "2") int limit) {
+        return usersService.getUsers(page, limit)
+                .map(UserMapper::toUserRest);
+    }
+
+    @GetMapping(params = "after")
+    public Mono<ResponseEntity<List<UserRest>>> getUsersAfter(@RequestParam(value = "after") String after,
+                                                              @RequestParam(value = "limit", defaultValue = "2") int limit) {
+        long afterId;
+        try {
+            afterId = PageCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page cursor", e));
+        }
+
+        return usersService.getUsersAfter(afterId, limit)
+                .collectList()
+                .map(users -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (!users.isEmpty() && users.size() == limit)
+                        response.header(UsersController.NEXT_CURSOR_HEADER, PageCursor.encode(users.get(users.size() - 1).getId()));
+
+                    return response.body(UserMapper.toUserRests(users));
+                });
+    }
+
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserRest> exportUsers() {
+        return usersService.streamUsers()
+                .map(UserMapper::toUserRest);
+    }
+}
@@ -1,47 +1,185 @@
 package com.example.tutorials.junit.ui.controllers;
 
+import com.example.tutorials.junit.metrics.RequestTrace;
 import com.example.tutorials.junit.service.UsersService;
+import com.example.tutorials.junit.shared.PageCursor;
+import com.example.tutorials.junit.shared.ResourceVersion;
 import com.example.tutorials.junit.shared.UserDto;
+import com.example.tutorials.junit.shared.UserImportReport;
+import com.example.tutorials.junit.shared.UserMapper;
+import com.example.tutorials.junit.ui.BinaryFormatsConfiguration;
 import com.example.tutorials.junit.ui.request.UserDetailsRequestModel;
+import com.example.tutorials.junit.ui.request.UsersImportRequestModel;
 import com.example.tutorials.junit.ui.response.UserRest;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import com.example.tutorials.junit.ui.response.UsersImportRest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/users")
+@Timed("users.controller")
+@Profile("!reactive")
 public class UsersController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private UsersService usersService;
 
+    private ObjectWriter userRestWriter;
+
+    private ContentNegotiationManager contentNegotiationManager;
+
     @Autowired
-    public UsersController(UsersService usersService) {
+    public UsersController(UsersService usersService, ObjectMapper objectMapper,
+                           ContentNegotiationManager contentNegotiationManager) {
         this.usersService = usersService;
+        this.userRestWriter = objectMapper.writerFor(UserRest.class);
+        this.contentNegotiationManager = contentNegotiationManager;
     }
 
     @PostMapping
     public UserRest createUser(@RequestBody @Valid UserDetailsRequestModel userDetails) throws Exception {
-        ModelMapper modelMapper = new ModelMapper();
-        UserDto userDto = new ModelMapper().map(userDetails, UserDto.class);
+        UserDto userDto = RequestTrace.time(RequestTrace.MAPPING, () -> UserMapper.toUserDto(userDetails));
 
         UserDto createdUser = usersService.createUser(userDto);
 
-        return modelMapper.map(createdUser, UserRest.class);
+        return RequestTrace.time(RequestTrace.MAPPING, () -> UserMapper.toUserRest(createdUser));
+    }
+
+    @PostMapping(path = "/async")
+    public CompletableFuture<UserRest> createUserAsync(@RequestBody @Valid UserDetailsRequestModel userDetails) {
+        UserDto userDto = RequestTrace.time(RequestTrace.MAPPING, () -> UserMapper.toUserDto(userDetails));
+
+        return usersService.createUserAsync(userDto)
+                .thenApply(UserMapper::toUserRest);
     }
 
+    @PostMapping(path = "/batch")
+    public UsersImportRest createUsers(@RequestBody @Valid UsersImportRequestModel usersImport) {
+        List<UserDto> users = RequestTrace.time(RequestTrace.MAPPING,
+                () -> UserMapper.toUserDtosFromRequest(usersImport.getUsers()));
+
+        UserImportReport report = usersService.createUsers(users);
+
+        return RequestTrace.time(RequestTrace.MAPPING, () -> UserMapper.toUsersImportRest(report));
+    }
+
+    /**
+     * Answers 304 without loading the page when the client's ETag or Last-Modified is still current.
+     */
     @GetMapping
-    public List<UserRest> getUsers(@RequestParam(value = "page", defaultValue = "0") int page,
-                                   @RequestParam(value = "limit", defaultValue = "2") int limit) {
+    public ResponseEntity<List<UserRest>> getUsers(@RequestParam(value = "page", defaultValue = "0") int page,
+                                                   @RequestParam(value = "limit", defaultValue = "2") int limit,
+                                                   NativeWebRequest webRequest) {
+        if (isNotModified(webRequest, usersService.getUsersVersion()))
+            return null;
+
         List<UserDto> users = usersService.getUsers(page, limit);
 
-        Type listType = new TypeToken<List<UserRest>>() {
-        }.getType();
+        return ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .body(RequestTrace.time(RequestTrace.MAPPING, () -> UserMapper.toUserRests(users)));
+    }
+
+    @GetMapping(params = "after")
+    public ResponseEntity<List<UserRest>> getUsersAfter(@RequestParam(value = "after") String after,
+                                                        @RequestParam(value = "limit", defaultValue = "2") int limit,
+                                                        NativeWebRequest webRequest) {
+        long afterId;
+        try {
+            afterId = PageCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page cursor", e);
+        }
+
+        if (isNotModified(webRequest, usersService.getUsersVersion()))
+            return null;
+
+        List<UserDto> users = usersService.getUsersAfter(afterId, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(REVALIDATE);
+        if (!users.isEmpty() && users.size() == limit)
+            response.header(NEXT_CURSOR_HEADER, PageCursor.encode(users.get(users.size() - 1).getId()));
+
+        return response.body(RequestTrace.time(RequestTrace.MAPPING, () -> UserMapper.toUserRests(users)));
+    }
+
+    @GetMapping(path = "/{userId}")
+    public ResponseEntity<UserRest> getUser(@PathVariable("userId") String userId, NativeWebRequest webRequest) {
+        UserDto user = usersService.getUserByUserId(userId);
+
+        ResourceVersion version = new ResourceVersion("W/\"" + user.getVersion() + "\"", user.getUpdatedAt().toEpochMilli());
+        if (isNotModified(webRequest, version))
+            return null;
+
+        return ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .body(RequestTrace.time(RequestTrace.MAPPING, () -> UserMapper.toUserRest(user)));
+    }
+
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody exportUsers() {
+        return outputStream -> usersService.streamUsers(user -> {
+            try {
+                outputStream.write(userRestWriter.writeValueAsBytes(UserMapper.toUserRest(user)));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Sets the ETag and Last-Modified headers and returns {@code true} if the response is a 304. The ETag names
+     * the negotiated format, so a JSON ETag never validates a cached CBOR body or the other way round.
+     */
+    private boolean isNotModified(NativeWebRequest webRequest, ResourceVersion version) {
+        String eTag = version.getETag();
+        String representationETag = eTag.substring(0, eTag.length() - 1) + "-" + negotiate(webRequest).getSubtype() + "\"";
+        return webRequest.checkNotModified(representationETag, version.getLastModifiedMillis());
+    }
+
+    /**
+     * The format the response will be written in: the first of {@link BinaryFormatsConfiguration#REPRESENTATIONS}
+     * that the client's most preferred acceptable type matches, as the message converters choose it.
+     */
+    private MediaType negotiate(NativeWebRequest webRequest) {
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(contentNegotiationManager.resolveMediaTypes(webRequest));
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
 
-        return new ModelMapper().map(users, listType);
+        for (MediaType acceptable : accepted) {
+            for (MediaType representation : BinaryFormatsConfiguration.REPRESENTATIONS) {
+                if (acceptable.isCompatibleWith(representation))
+                    return representation;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
     }
 }
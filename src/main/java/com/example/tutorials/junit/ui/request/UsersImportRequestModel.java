@@ -0,0 +1,21 @@
+package com.example.tutorials.junit.ui.request;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+public class UsersImportRequestModel {
+
+    @NotEmpty
+    @Size(max=1000, message="A batch must not contain more than 1000 users")
+    private List<@Valid UserDetailsRequestModel> users;
+
+    public List<UserDetailsRequestModel> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<UserDetailsRequestModel> users) {
+        this.users = users;
+    }
+}
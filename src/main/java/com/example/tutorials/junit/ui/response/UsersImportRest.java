@@ -0,0 +1,46 @@
+package com.example.tutorials.junit.ui.response;
+
+import java.util.List;
+
+public class UsersImportRest {
+
+    private List<UserImportResultRest> results;
+
+    private int createdCount;
+
+    private long elapsedMillis;
+
+    private double rowsPerSecond;
+
+    public List<UserImportResultRest> getResults() {
+        return results;
+    }
+
+    public void setResults(List<UserImportResultRest> results) {
+        this.results = results;
+    }
+
+    public int getCreatedCount() {
+        return createdCount;
+    }
+
+    public void setCreatedCount(int createdCount) {
+        this.createdCount = createdCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+}
@@ -0,0 +1,29 @@
+-- The users table as UserEntity maps it, for the reactive profile where Hibernate does not create it. JPA and
+-- ReactiveUserEntity read and write the same columns and both take ids from users_seq, so the servlet and reactive
+-- stacks can share a database. users_version is the change counter behind the users list's ETag; both stacks bump
+-- it in the transaction that writes a user.
+create sequence if not exists users_seq start with 1 increment by 50;
+
+create table if not exists users (
+    id bigint primary key,
+    user_id binary(16) not null unique,
+    first_name varchar(50) not null,
+    last_name varchar(50) not null,
+    email varchar(120) not null,
+    email_reversed varchar(120) not null,
+    encrypted_password varchar(255) not null,
+    version bigint not null,
+    updated_at timestamp not null
+);
+
+create unique index if not exists ux_users_email on users (email);
+create index if not exists ix_users_email_reversed on users (email_reversed);
+
+create table if not exists users_version (
+    id integer primary key,
+    version bigint not null,
+    updated_at timestamp not null
+);
+
+insert into users_version (id, version, updated_at)
+select 1, 0, current_timestamp where not exists (select 1 from users_version where id = 1);
@@ -0,0 +1,38 @@
+package com.example.tutorials.junit;
+
+import org.apache.catalina.connector.Connector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@EnabledIf("isJava21OrNewer")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "users.threads.virtual.enabled=true")
+class VirtualThreadsConfigurationTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext applicationContext;
+
+    @Test
+    void testTomcatExecutor_whenVirtualThreadsEnabled_thenRunRequestsOnVirtualThreads() throws Exception {
+        Connector connector = ((TomcatWebServer) applicationContext.getWebServer()).getTomcat().getConnector();
+        Executor executor = connector.getProtocolHandler().getExecutor();
+
+        CompletableFuture<Thread> requestThread = CompletableFuture.supplyAsync(Thread::currentThread, executor);
+
+        assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(requestThread.get()),
+                "Tomcat should hand requests to virtual threads");
+    }
+
+    static boolean isJava21OrNewer() {
+        return Runtime.version().feature() >= 21;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.example.tutorials.junit.shared.CompactUserDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login lookups of a random user among {@code users}: the off-heap {@link CompactUserDirectory} against a
+ * {@link HashMap} of the same strings on the heap. Setup prints the memory each holds per user as
+ * {@code # memory: <store> <users> users = <n> bytes per user}; for the map that is the growth of the used
+ * heap, so it is approximate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticationDirectoryBenchmark {
+
+    @Param({"1000000"})
+    private int users;
+
+    @Param({"compact", "hash-map"})
+    private String store;
+
+    private CompactUserDirectory directory;
+
+    private Map<String, String[]> map;
+
+    @Setup
+    public void setUp() {
+        long heapBefore = usedHeap();
+        if ("compact".equals(store)) {
+            directory = new CompactUserDirectory(users);
+            for (int i = 0; i < users; i++) {
+                directory.put(email(i), hash(i), UUID.randomUUID().toString());
+            }
+        } else {
+            map = new HashMap<>();
+            for (int i = 0; i < users; i++) {
+                map.put(email(i), new String[]{hash(i), UUID.randomUUID().toString()});
+            }
+        }
+
+        long bytes = "compact".equals(store) ? directory.memoryBytes() : usedHeap() - heapBefore;
+        System.out.println("# memory: " + store + " " + users + " users = " + bytes / users + " bytes per user");
+    }
+
+    @Benchmark
+    public Object find() {
+        String email = email(ThreadLocalRandom.current().nextInt(users));
+        return directory != null ? directory.get(email) : map.get(email);
+    }
+
+    private static String email(int i) {
+        return "user" + i + "@mail.com";
+    }
+
+    private static String hash(int i) {
+        String suffix = Integer.toString(i);
+        return "$2a$10$" + "a".repeat(53 - suffix.length()) + suffix;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AuthenticationDirectoryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
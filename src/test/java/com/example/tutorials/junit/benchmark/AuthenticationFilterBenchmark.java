@@ -0,0 +1,88 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.example.tutorials.junit.security.AuthenticationFilter;
+import com.example.tutorials.junit.security.JwtAlgorithm;
+import com.example.tutorials.junit.security.JwtKeyRing;
+import com.example.tutorials.junit.security.JwtTokens;
+import com.example.tutorials.junit.security.UserPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT issuing cost of a successful login, i.e. {@link AuthenticationFilter#successfulAuthentication}
+ * once the credentials have been checked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticationFilterBenchmark {
+
+    private IssuingFilter authenticationFilter;
+
+    private Authentication authentication;
+
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        authenticationFilter = new IssuingFilter();
+        authentication = new UsernamePasswordAuthenticationToken(
+                new UserPrincipal("jones@email.com", "", UUID.randomUUID().toString(), new ArrayList<>()),
+                null, new ArrayList<>());
+        request = new MockHttpServletRequest("POST", "/users/login");
+    }
+
+    @Benchmark
+    public MockHttpServletResponse issueToken() throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        authenticationFilter.issue(request, response, authentication);
+        return response;
+    }
+
+    private static class IssuingFilter extends AuthenticationFilter {
+
+        IssuingFilter() {
+            super(authentication -> authentication,
+                    new JwtTokens(new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", "", "", List.of(), Duration.ZERO, 1)),
+                    null, new SimpleMeterRegistry());
+        }
+
+        void issue(MockHttpServletRequest request, MockHttpServletResponse response,
+                   Authentication authentication) throws ServletException, IOException {
+            successfulAuthentication(request, response, null, authentication);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AuthenticationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
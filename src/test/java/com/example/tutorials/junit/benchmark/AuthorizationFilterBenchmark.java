@@ -0,0 +1,85 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.example.tutorials.junit.security.AuthorizationFilter;
+import com.example.tutorials.junit.security.JwtAlgorithm;
+import com.example.tutorials.junit.security.JwtKeyRing;
+import com.example.tutorials.junit.security.JwtTokens;
+import com.example.tutorials.junit.security.SecurityConstants;
+import com.example.tutorials.junit.security.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link AuthorizationFilter} for a request carrying a valid JWT, with the verified
+ * token cache warm (steady state) and cold (every request parses and verifies the token).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthorizationFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    private AuthorizationFilter authorizationFilter;
+
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        JwtTokens jwtTokens = new JwtTokens(new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", "", "", List.of(), Duration.ZERO, 1));
+        verifiedTokenCache = new VerifiedTokenCache(10_000, Duration.ofDays(10));
+        authorizationFilter = new AuthorizationFilter(authentication -> authentication, null, verifiedTokenCache,
+                jwtTokens, new SimpleMeterRegistry());
+
+        String token = jwtTokens.issue("jones@email.com");
+
+        request = new MockHttpServletRequest("GET", "/users");
+        request.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
+    }
+
+    @Benchmark
+    public void warmCache() throws ServletException, IOException {
+        authorizationFilter.doFilter(request, new MockHttpServletResponse(), NO_OP_CHAIN);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void coldCache() throws ServletException, IOException {
+        verifiedTokenCache.invalidateAll();
+        authorizationFilter.doFilter(request, new MockHttpServletResponse(), NO_OP_CHAIN);
+        SecurityContextHolder.clearContext();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AuthorizationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file against the committed baseline and exits with status 1 when any
+ * benchmark present in both regressed by more than the tolerance: slower for time-per-operation
+ * modes, fewer operations for throughput mode.
+ * <p>
+ * Usage: {@code BenchmarkRegressionGate <result.json> <baseline.json> [tolerance]}, tolerance being
+ * a fraction such as {@code 0.25}.
+ */
+public class BenchmarkRegressionGate {
+
+    public static void main(String[] args) throws IOException {
+        Map<String, JsonNode> results = read(new File(args[0]));
+        Map<String, JsonNode> baseline = read(new File(args[1]));
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.25;
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "benchmark", "baseline", "current", "change");
+        for (Map.Entry<String, JsonNode> result : results.entrySet()) {
+            JsonNode expected = baseline.get(result.getKey());
+            if (expected == null) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", result.getKey(), "-", score(result.getValue()), "new");
+                continue;
+            }
+
+            double baselineScore = score(expected);
+            double currentScore = score(result.getValue());
+            boolean higherIsBetter = "thrpt".equals(result.getValue().get("mode").asText());
+            double change = (currentScore - baselineScore) / baselineScore;
+            boolean regressed = higherIsBetter ? change < -tolerance : change > tolerance;
+            if (regressed)
+                regressions++;
+
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%%s%n", result.getKey(), baselineScore, currentScore,
+                    change * 100, regressed ? "  REGRESSION" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.0f%%%n", regressions, tolerance * 100);
+            System.exit(1);
+        }
+        System.out.printf("No regressions beyond %.0f%%%n", tolerance * 100);
+    }
+
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> returnValue = new TreeMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            returnValue.put(key(run), run);
+        }
+        return returnValue;
+    }
+
+    private static String key(JsonNode run) {
+        StringBuilder key = new StringBuilder(run.get("benchmark").asText()
+                .replace("com.example.tutorials.junit.benchmark.", ""));
+        JsonNode params = run.get("params");
+        if (params != null) {
+            Map<String, String> sortedParams = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> param = fields.next();
+                sortedParams.put(param.getKey(), param.getValue().asText());
+            }
+            key.append(sortedParams);
+        }
+        return key.toString();
+    }
+
+    private static double score(JsonNode run) {
+        return run.get("primaryMetric").get("score").asDouble();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.example.tutorials.junit.io.UserEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Domain lookups over a seeded H2 {@code users} table: the old leading-wildcard
+ * {@code email like '%@domain'} scan against a prefix range scan on the indexed reversed email.
+ * Each domain has 10 users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailDomainLookupBenchmark {
+
+    private static final int USERS_PER_DOMAIN = 10;
+
+    @Param({"1000000"})
+    private int rows;
+
+    private Connection connection;
+
+    private PreparedStatement leadingWildcard;
+
+    private PreparedStatement reversedPrefix;
+
+    private PreparedStatement emailLookup;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:email-domain-benchmark;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table users (id bigint primary key, email varchar(120) not null, "
+                    + "email_reversed varchar(120) not null)");
+        }
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("insert into users values (?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                String email = "user" + i + "@domain" + (i / USERS_PER_DOMAIN) + ".com";
+                insert.setLong(1, i);
+                insert.setString(2, email);
+                insert.setString(3, UserEntity.reverse(email));
+                insert.addBatch();
+                if (i % 10_000 == 0)
+                    insert.executeBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create unique index ux_users_email on users (email)");
+            statement.execute("create index ix_users_email_reversed on users (email_reversed)");
+        }
+
+        leadingWildcard = connection.prepareStatement("select id from users where email like ?");
+        reversedPrefix = connection.prepareStatement("select id from users where email_reversed like ? escape '\\'");
+        emailLookup = connection.prepareStatement("select id from users where email = ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public int domain_leadingWildcardScan() throws SQLException {
+        leadingWildcard.setString(1, "%@" + randomDomain());
+        return count(leadingWildcard);
+    }
+
+    @Benchmark
+    public int domain_reversedPrefixRange() throws SQLException {
+        reversedPrefix.setString(1, UserEntity.reverse("@" + randomDomain()) + "%");
+        return count(reversedPrefix);
+    }
+
+    @Benchmark
+    public int email_uniqueIndex() throws SQLException {
+        int user = ThreadLocalRandom.current().nextInt(rows);
+        emailLookup.setString(1, "user" + user + "@domain" + (user / USERS_PER_DOMAIN) + ".com");
+        return count(emailLookup);
+    }
+
+    private String randomDomain() {
+        return "domain" + ThreadLocalRandom.current().nextInt(rows / USERS_PER_DOMAIN) + ".com";
+    }
+
+    private static int count(PreparedStatement statement) throws SQLException {
+        int count = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next())
+                count++;
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EmailDomainLookupBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.example.tutorials.junit.security.JwtAlgorithm;
+import com.example.tutorials.junit.security.JwtKeyRing;
+import com.example.tutorials.junit.security.JwtTokens;
+import com.example.tutorials.junit.security.VerifiedTokenCache.VerifiedToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign and verify throughput of {@link JwtTokens} per algorithm, with four threads sharing the one
+ * pre-built parser as the security filters do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class JwtSigningBenchmark {
+
+    @Param({"EdDSA", "ES256", "HS512"})
+    private JwtAlgorithm algorithm;
+
+    private JwtTokens jwtTokens;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokens = new JwtTokens(new JwtKeyRing(algorithm, Duration.ofDays(1), "", "", "", List.of(), Duration.ZERO, 1));
+        token = jwtTokens.issue("jones@email.com");
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtTokens.issue("jones@email.com");
+    }
+
+    @Benchmark
+    public VerifiedToken verify() {
+        return jwtTokens.parse(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtSigningBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
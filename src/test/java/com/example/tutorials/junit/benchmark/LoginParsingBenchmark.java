@@ -0,0 +1,104 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.example.tutorials.junit.security.AuthenticationFilter;
+import com.example.tutorials.junit.security.RateLimits;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.DelegatingServletInputStream;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a login body into credentials: {@link AuthenticationFilter#attemptAuthentication} with
+ * a pass-through authentication manager, against the previous copy-to-byte[], new-ObjectMapper, untyped
+ * Map parsing. Run with {@code -prof gc} (as {@link #main} does) to see the bytes allocated per login in
+ * {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoginParsingBenchmark {
+
+    private static final byte[] BODY = "{\"email\":\"jones@email.com\",\"password\":\"12345678\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private AuthenticationFilter authenticationFilter;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        authenticationFilter = new AuthenticationFilter(authentication -> authentication, null,
+                new RateLimits(false, 1, Duration.ofMinutes(1), 1, Duration.ofMinutes(1), 1, new SimpleMeterRegistry()),
+                new SimpleMeterRegistry());
+
+        request = new MockHttpServletRequest("POST", "/users/login");
+        request.setContentType("application/json");
+        request.setContent(BODY);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public Authentication streamingReader() {
+        return authenticationFilter.attemptAuthentication(new LoginRequest(request), response);
+    }
+
+    @Benchmark
+    public Map<?, ?> copyAndParseToMap() throws IOException {
+        byte[] inputStreamBytes = StreamUtils.copyToByteArray(new LoginRequest(request).getInputStream());
+        return new ObjectMapper().readValue(inputStreamBytes, Map.class);
+    }
+
+    /**
+     * Serves a fresh body stream on every call, as a real request would.
+     */
+    private static class LoginRequest extends HttpServletRequestWrapper {
+
+        LoginRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return new DelegatingServletInputStream(new ByteArrayInputStream(BODY));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LoginParsingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.example.tutorials.junit.security.RateLimiter;
+import com.example.tutorials.junit.security.RateLimitingFilter;
+import com.example.tutorials.junit.security.RateLimits;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead of rate limiting: a bare {@link RateLimiter#tryAcquire} on one hot key, and the
+ * whole {@link RateLimitingFilter} for signups spread over 10,000 client IPs. Limits are set high enough
+ * that every request is permitted, which is the path normal traffic takes; add {@code -t <threads>} to
+ * measure it under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitingFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    private static final int CLIENTS = 10_000;
+
+    private RateLimiter rateLimiter;
+
+    private RateLimitingFilter rateLimitingFilter;
+
+    private MockHttpServletRequest[] requests;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = new RateLimiter(Integer.MAX_VALUE, Duration.ofDays(1), CLIENTS);
+        rateLimitingFilter = new RateLimitingFilter(new RateLimits(true, Integer.MAX_VALUE, Duration.ofDays(1),
+                Integer.MAX_VALUE, Duration.ofDays(1), CLIENTS, new SimpleMeterRegistry()));
+
+        requests = new MockHttpServletRequest[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            requests[i] = new MockHttpServletRequest("POST", "/users");
+            requests[i].setRemoteAddr("10.0." + (i >> 8) + "." + (i & 0xff));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private int next;
+    }
+
+    @Benchmark
+    public long tryAcquireHotKey() {
+        return rateLimiter.tryAcquire("10.0.0.1");
+    }
+
+    @Benchmark
+    public MockHttpServletResponse filterManyClients(Client client) throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitingFilter.doFilter(requests[client.next++ % CLIENTS], response, NO_OP_CHAIN);
+        return response;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimitingFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.example.tutorials.junit.UsersServiceSpringBootApplication;
+import com.example.tutorials.junit.io.ShardDataSources;
+import com.example.tutorials.junit.io.UserEntity;
+import com.example.tutorials.junit.io.UserIdConverter;
+import com.example.tutorials.junit.io.UserShards;
+import com.example.tutorials.junit.service.UsersService;
+import com.example.tutorials.junit.shared.UserDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The users store spread over {@code shards} databases and seeded with {@code rows} users: a lookup by
+ * userId, which is routed to a single shard, and keyset and offset pages of {@code pageSize}, which query
+ * every shard and merge the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedUsersBenchmark {
+
+    @Param({"1", "2", "4"})
+    private int shards;
+
+    @Param({"20000"})
+    private int rows;
+
+    @Param({"50"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+
+    private UsersService usersService;
+
+    private String[] userIds;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(UsersServiceSpringBootApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--users.sharding.shards=" + shards,
+                        "--spring.cache.type=none",
+                        "--users.password.bcrypt.strength=4",
+                        "--logging.level.root=WARN");
+        usersService = context.getBean(UsersService.class);
+        UserShards userShards = context.getBean(UserShards.class);
+
+        List<JdbcTemplate> jdbcTemplates = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            DataSource dataSource = shards == 1 ? context.getBean(DataSource.class) : context.getBean(ShardDataSources.class).get(shard);
+            jdbcTemplates.add(new JdbcTemplate(dataSource));
+        }
+
+        userIds = new String[rows];
+        List<List<Object[]>> batches = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            batches.add(new ArrayList<>());
+        }
+        for (int i = 1; i <= rows; i++) {
+            String email = "user" + i + "@mail.com";
+            userIds[i - 1] = userShards.newUserId(email);
+            batches.get(userShards.shardForEmail(email)).add(
+                    new Object[]{i, UserIdConverter.toBytes(userIds[i - 1]), "John", "Smith", email, UserEntity.reverse(email), "12345678"});
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            jdbcTemplates.get(shard).batchUpdate("insert into users (id, user_id, first_name, last_name, email, email_reversed, "
+                    + "encrypted_password, version, updated_at) values (?, ?, ?, ?, ?, ?, ?, 0, current_timestamp)", batches.get(shard));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDto getUserByUserId() {
+        return usersService.getUserByUserId(userIds[ThreadLocalRandom.current().nextInt(rows)]);
+    }
+
+    @Benchmark
+    public List<UserDto> getUsersAfter() {
+        return usersService.getUsersAfter(ThreadLocalRandom.current().nextInt(rows - pageSize), pageSize);
+    }
+
+    @Benchmark
+    public List<UserDto> getUsersPage10() {
+        return usersService.getUsers(10, pageSize);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ShardedUsersBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.tutorials.junit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from launching a new application process until it answers {@code GET /actuator/health}, for each way
+ * of shipping it: the Spring Boot fat jar and the thin jar with its AppCDS archive ({@code mvn -Pcds package}).
+ * Only {@code jar} runs by default; add {@code -p mode=jar,cds} once the CDS archive is built. After each start
+ * the process's resident memory is printed as {@code # rss: <mode> = <n> MB}.
+ * <p>
+ * BCrypt strength is pinned, so calibrating it does not add to the startup time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final Path TARGET = Path.of("target");
+
+    private static final long TIMEOUT_MILLIS = 120_000;
+
+    @Param({"jar"})
+    private String mode;
+
+    private List<String> command;
+
+    private int port;
+
+    private Process application;
+
+    @Setup
+    public void findArtifact() throws IOException {
+        command = new ArrayList<>();
+        switch (mode) {
+            case "jar":
+                command.add("java");
+                command.add("-jar");
+                command.add(fatJar().toString());
+                break;
+            case "cds":
+                Path archive = require(TARGET.resolve("cds/users-service.jsa"), "mvn -Pcds package");
+                command.add("java");
+                command.add("-XX:SharedArchiveFile=" + archive);
+                command.add("-jar");
+                command.add(TARGET.resolve("cds").resolve(thinJarName()).toString());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+        command.add("--users.password.bcrypt.strength=10");
+    }
+
+    @Setup(Level.Iteration)
+    public void choosePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopApplication() throws IOException, InterruptedException {
+        System.out.println("# rss: " + mode + " = " + residentMegabytes(application.pid()) + " MB");
+        application.destroy();
+        if (!application.waitFor(30, TimeUnit.SECONDS))
+            application.destroyForcibly().waitFor();
+    }
+
+    @Benchmark
+    public int timeToFirstRequest() throws IOException, InterruptedException {
+        List<String> arguments = new ArrayList<>(command);
+        arguments.add("--server.port=" + port);
+        application = new ProcessBuilder(arguments)
+                .redirectErrorStream(true)
+                .redirectOutput(TARGET.resolve("startup-" + mode + ".log").toFile())
+                .start();
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (!application.isAlive())
+                throw new IllegalStateException(mode + " exited with " + application.exitValue()
+                        + ", see target/startup-" + mode + ".log");
+            try {
+                HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/actuator/health").openConnection();
+                connection.setConnectTimeout(100);
+                int returnValue = connection.getResponseCode();
+                connection.disconnect();
+                return returnValue;
+            } catch (IOException e) {
+                Thread.sleep(10);
+            }
+        }
+        throw new IllegalStateException(mode + " did not answer within " + TIMEOUT_MILLIS + " ms");
+    }
+
+    private static Path fatJar() throws IOException {
+        try (DirectoryStream<Path> jars = Files.newDirectoryStream(TARGET, "*.jar")) {
+            for (Path jar : jars) {
+                return jar;
+            }
+        }
+        throw new IllegalStateException("No jar in target, run mvn package first");
+    }
+
+    private static String thinJarName() throws IOException {
+        try (DirectoryStream<Path> jars = Files.newDirectoryStream(TARGET.resolve("cds"), "*-cds.jar")) {
+            for (Path jar : jars) {
+                return jar.getFileName().toString();
+            }
+        }
+        throw new IllegalStateException("No thin jar in target/cds, run mvn -Pcds package first");
+    }
+
+    private static Path require(Path artifact, String build) {
+        if (!Files.exists(artifact))
+            throw new IllegalStateException(artifact + " is missing, run " + build + " first");
+        return artifact;
+    }
+
+    /**
+     * VmRSS from {@code /proc}, so only known on Linux; -1 elsewhere.
+     */
+    private static long residentMegabytes(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status))
+            return -1;
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:"))
+                return Long.parseLong(line.replaceAll("[^0-9]", "")) / 1024;
+        }
+        return -1;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StartupBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.example.tutorials.junit.UsersServiceSpringBootApplication;
+import com.example.tutorials.junit.security.SecurityConstants;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import javax.servlet.Filter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test comparing Tomcat's platform-thread pool, {@code users.threads.virtual.enabled=true} and the
+ * WebFlux/R2DBC stack of the {@code reactive} profile on the same endpoints.
+ * <p>
+ * Each run boots the application on a random port, logs in once and then drives authenticated
+ * {@code GET /users} requests at increasing client concurrency. A filter registered only for the
+ * benchmark holds every request for {@code thinkMillis} to stand in for downstream I/O (a blocking
+ * sleep on the servlet stack, a non-blocking delay on the reactive one), and records the peak number
+ * of requests in flight on the server. For each level the p50/p99 latency, error count and peak
+ * server concurrency are printed.
+ * <p>
+ * Usage: {@code ThreadModeLoadBenchmark [thinkMillis] [requestsPerLevel]}. The virtual mode is only
+ * run on a Java 21+ runtime.
+ */
+public class ThreadModeLoadBenchmark {
+
+    private static final int[] CONCURRENCY_LEVELS = {50, 100, 200, 400, 800};
+
+    public static void main(String[] args) throws Exception {
+        long thinkMillis = args.length > 0 ? Long.parseLong(args[0]) : 20;
+        int requestsPerLevel = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+
+        System.out.printf("%-9s %11s %9s %9s %7s %14s%n", "mode", "concurrency", "p50 ms", "p99 ms", "errors", "peak in-flight");
+        run("platform", thinkMillis, requestsPerLevel);
+        if (Runtime.version().feature() >= 21)
+            run("virtual", thinkMillis, requestsPerLevel);
+        else
+            System.out.println("virtual   skipped, requires Java 21+ (running " + Runtime.version() + ")");
+        run("reactive", thinkMillis, requestsPerLevel);
+    }
+
+    private static void run(String mode, long thinkMillis, int requestsPerLevel) throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peakInFlight = new AtomicInteger();
+
+        Filter blockingIoFilter = (request, response, chain) -> {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(thinkMillis);
+                chain.doFilter(request, response);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+
+        WebFilter delayingIoFilter = new DelayingWebFilter(thinkMillis, inFlight, peakInFlight);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UsersServiceSpringBootApplication.class)
+                .initializers(applicationContext -> applicationContext.getBeanFactory().registerSingleton("ioFilter",
+                        "reactive".equals(mode) ? delayingIoFilter : blockingIoFilterRegistration(blockingIoFilter)))
+                .run("--server.port=0",
+                        "--users.threads.virtual.enabled=" + "virtual".equals(mode),
+                        "--spring.profiles.active=" + ("reactive".equals(mode) ? "reactive" : "default"),
+                        "--logging.level.root=WARN")) {
+
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+            String token = signUpAndLogin(httpClient, baseUrl);
+
+            for (int concurrency : CONCURRENCY_LEVELS) {
+                peakInFlight.set(0);
+                List<Long> latencies = Collections.synchronizedList(new ArrayList<>(requestsPerLevel));
+                AtomicInteger errors = new AtomicInteger();
+                Semaphore permits = new Semaphore(concurrency);
+                List<CompletableFuture<?>> requests = new ArrayList<>(requestsPerLevel);
+
+                HttpRequest getUsers = HttpRequest.newBuilder(URI.create(baseUrl + "/users?limit=2"))
+                        .header(SecurityConstants.HEADER_STRING, token)
+                        .timeout(Duration.ofSeconds(30))
+                        .build();
+
+                for (int i = 0; i < requestsPerLevel; i++) {
+                    permits.acquire();
+                    long startNanos = System.nanoTime();
+                    requests.add(httpClient.sendAsync(getUsers, HttpResponse.BodyHandlers.discarding())
+                            .whenComplete((response, failure) -> {
+                                permits.release();
+                                if (failure != null || response.statusCode() != 200)
+                                    errors.incrementAndGet();
+                                else
+                                    latencies.add(System.nanoTime() - startNanos);
+                            }));
+                }
+                CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).exceptionally(failure -> null).join();
+
+                List<Long> sorted = new ArrayList<>(latencies);
+                Collections.sort(sorted);
+                System.out.printf("%-9s %11d %9.1f %9.1f %7d %14d%n", mode, concurrency,
+                        percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.99), errors.get(), peakInFlight.get());
+            }
+        }
+    }
+
+    private static FilterRegistrationBean<Filter> blockingIoFilterRegistration(Filter filter) {
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        registration.addUrlPatterns("/users");
+        return registration;
+    }
+
+    private static class DelayingWebFilter implements WebFilter, Ordered {
+
+        private final long thinkMillis;
+
+        private final AtomicInteger inFlight;
+
+        private final AtomicInteger peakInFlight;
+
+        DelayingWebFilter(long thinkMillis, AtomicInteger inFlight, AtomicInteger peakInFlight) {
+            this.thinkMillis = thinkMillis;
+            this.inFlight = inFlight;
+            this.peakInFlight = peakInFlight;
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+            if (!"/users".equals(exchange.getRequest().getPath().value()))
+                return chain.filter(exchange);
+
+            return Mono.defer(() -> {
+                peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                return Mono.delay(Duration.ofMillis(thinkMillis))
+                        .then(chain.filter(exchange))
+                        .doFinally(signal -> inFlight.decrementAndGet());
+            });
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+
+    private static String signUpAndLogin(HttpClient httpClient, String baseUrl) throws Exception {
+        String user = "{\"firstName\":\"John\",\"lastName\":\"Smith\",\"email\":\"load@test.com\","
+                + "\"password\":\"12345678\",\"repeatPassword\":\"12345678\"}";
+        httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/users"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(user))
+                .build(), HttpResponse.BodyHandlers.discarding());
+
+        HttpResponse<Void> login = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/users/login"))
+                .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"load@test.com\",\"password\":\"12345678\"}"))
+                .build(), HttpResponse.BodyHandlers.discarding());
+
+        return login.headers().firstValue(SecurityConstants.HEADER_STRING)
+                .orElseThrow(() -> new IllegalStateException("Login failed with status " + login.statusCode()));
+    }
+
+    private static double percentileMillis(List<Long> sortedNanos, double percentile) {
+        if (sortedNanos.isEmpty())
+            return Double.NaN;
+        int index = (int) Math.ceil(percentile * sortedNanos.size()) - 1;
+        return sortedNanos.get(Math.max(0, index)) / 1_000_000.0;
+    }
+}
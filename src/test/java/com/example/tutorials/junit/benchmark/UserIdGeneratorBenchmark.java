@@ -0,0 +1,54 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.example.tutorials.junit.io.RandomUserIdGenerator;
+import com.example.tutorials.junit.io.TimeOrderedUserIdGenerator;
+import com.example.tutorials.junit.io.UserIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one new userId string from each {@link UserIdGenerator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserIdGeneratorBenchmark {
+
+    @Param({"random", "time-ordered"})
+    private String generator;
+
+    private UserIdGenerator userIdGenerator;
+
+    @Setup
+    public void setUp() {
+        userIdGenerator = "random".equals(generator) ? new RandomUserIdGenerator() : new TimeOrderedUserIdGenerator();
+    }
+
+    @Benchmark
+    public String next() {
+        return userIdGenerator.next().toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserIdGeneratorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.example.tutorials.junit.io.TimeOrderedUserIdGenerator;
+import com.example.tutorials.junit.io.UserIdConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting {@code rows} userIds, 1000 per transaction, into a fresh file-backed H2 table with a unique index
+ * on {@code user_id}: random UUIDs as 36-character strings (how userIds used to be stored), random UUIDs as
+ * 16 bytes, and time-ordered (version 7) UUIDs as 16 bytes. After each iteration the database is compacted and
+ * its file size printed as {@code # size: <format> <rows> rows = <n> bytes}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class UserIdInsertBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"200000"})
+    private int rows;
+
+    @Param({"random-string", "random-binary", "time-ordered-binary"})
+    private String format;
+
+    private Path directory;
+
+    private int iteration;
+
+    private Connection connection;
+
+    private Object[] userIds;
+
+    @Setup
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("user-id-insert");
+    }
+
+    @Setup(Level.Iteration)
+    public void createTable() throws SQLException {
+        TimeOrderedUserIdGenerator timeOrdered = new TimeOrderedUserIdGenerator();
+        userIds = new Object[rows];
+        for (int i = 0; i < rows; i++) {
+            UUID userId = format.startsWith("time-ordered") ? timeOrdered.next() : UUID.randomUUID();
+            userIds[i] = format.endsWith("string") ? userId.toString() : UserIdConverter.toBytes(userId.toString());
+        }
+
+        connection = DriverManager.getConnection("jdbc:h2:file:" + databaseFile(), "sa", "");
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table ids (id bigint primary key, user_id "
+                    + (format.endsWith("string") ? "varchar(36)" : "binary(16)") + " not null)");
+            statement.execute("create unique index ux_ids_user_id on ids (user_id)");
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Iteration)
+    public void dropDatabase() throws SQLException, IOException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("shutdown compact");
+        }
+        connection.close();
+        System.out.println("# size: " + format + " " + rows + " rows = " + Files.size(Path.of(databaseFile() + ".mv.db")) + " bytes");
+        Files.delete(Path.of(databaseFile() + ".mv.db"));
+        iteration++;
+    }
+
+    @TearDown
+    public void deleteDirectory() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public int insert() throws SQLException {
+        int returnValue = 0;
+        try (PreparedStatement insert = connection.prepareStatement("insert into ids (id, user_id) values (?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setLong(1, i + 1);
+                insert.setObject(2, userIds[i]);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0 || i == rows - 1) {
+                    returnValue += insert.executeBatch().length;
+                    connection.commit();
+                }
+            }
+        }
+        return returnValue;
+    }
+
+    private String databaseFile() {
+        return directory.resolve(format + "-" + iteration).toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserIdInsertBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
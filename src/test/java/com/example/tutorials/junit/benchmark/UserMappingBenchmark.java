@@ -0,0 +1,126 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.example.tutorials.junit.io.UserEntity;
+import com.example.tutorials.junit.shared.UserDto;
+import com.example.tutorials.junit.shared.UserMapper;
+import com.example.tutorials.junit.ui.request.UserDetailsRequestModel;
+import com.example.tutorials.junit.ui.response.UserRest;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request mapping cost of the users API: the previous ModelMapper-per-call approach
+ * against the handwritten {@link UserMapper}, for createUser and for getUsers pages of
+ * several sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMappingBenchmark {
+
+    private UserDetailsRequestModel userDetails;
+
+    private UserEntity storedUser;
+
+    @State(Scope.Benchmark)
+    public static class UsersPage {
+
+        @Param({"10", "100", "1000"})
+        private int pageSize;
+
+        private List<UserEntity> users;
+
+        @Setup
+        public void setUp() {
+            users = new ArrayList<>(pageSize);
+            for (int i = 0; i < pageSize; i++) {
+                users.add(newUserEntity(i));
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        userDetails = new UserDetailsRequestModel();
+        userDetails.setFirstName("John");
+        userDetails.setLastName("Smith");
+        userDetails.setEmail("johns@mail.com");
+        userDetails.setPassword("12345678");
+        userDetails.setRepeatPassword("12345678");
+
+        storedUser = newUserEntity(1);
+    }
+
+    @Benchmark
+    public UserRest createUser_modelMapper() {
+        ModelMapper modelMapper = new ModelMapper();
+        UserDto userDto = new ModelMapper().map(userDetails, UserDto.class);
+        UserEntity userEntity = new ModelMapper().map(userDto, UserEntity.class);
+        UserDto createdUser = modelMapper.map(storedUser, UserDto.class);
+
+        return userEntity != null ? modelMapper.map(createdUser, UserRest.class) : null;
+    }
+
+    @Benchmark
+    public UserRest createUser_userMapper() {
+        UserDto userDto = UserMapper.toUserDto(userDetails);
+        UserEntity userEntity = UserMapper.toUserEntity(userDto);
+        UserDto createdUser = UserMapper.toUserDto(storedUser);
+
+        return userEntity != null ? UserMapper.toUserRest(createdUser) : null;
+    }
+
+    @Benchmark
+    public List<UserRest> getUsers_modelMapper(UsersPage page) {
+        Type dtoListType = new TypeToken<List<UserDto>>() {}.getType();
+        List<UserDto> users = new ModelMapper().map(page.users, dtoListType);
+
+        Type restListType = new TypeToken<List<UserRest>>() {}.getType();
+        return new ModelMapper().map(users, restListType);
+    }
+
+    @Benchmark
+    public List<UserRest> getUsers_userMapper(UsersPage page) {
+        return UserMapper.toUserRests(UserMapper.toUserDtos(page.users));
+    }
+
+    private static UserEntity newUserEntity(int index) {
+        UserEntity userEntity = new UserEntity();
+        userEntity.setId(index);
+        userEntity.setUserId(UUID.randomUUID().toString());
+        userEntity.setFirstName("John" + index);
+        userEntity.setLastName("Smith" + index);
+        userEntity.setEmail("john" + index + "@mail.com");
+        userEntity.setEncryptedPassword("$2a$10$abcdefghijklmnopqrstuv");
+        return userEntity;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserMappingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.tutorials.junit.benchmark;
+
+import com.example.tutorials.junit.UsersServiceSpringBootApplication;
+import com.example.tutorials.junit.io.UserEntity;
+import com.example.tutorials.junit.io.UserIdConverter;
+import com.example.tutorials.junit.io.UsersRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UsersRepository#findByEmail} against the embedded H2 database seeded with {@code rows} users,
+ * with the user cache disabled ({@code none}) and enabled ({@code caffeine}). Lookups are spread over
+ * the first {@code hotUsers} emails.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UsersRepositoryBenchmark {
+
+    @Param({"100000"})
+    private int rows;
+
+    @Param({"1000"})
+    private int hotUsers;
+
+    @Param({"none", "caffeine"})
+    private String cacheType;
+
+    private ConfigurableApplicationContext context;
+
+    private UsersRepository usersRepository;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(UsersServiceSpringBootApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.cache.type=" + cacheType,
+                        "--users.password.bcrypt.strength=4",
+                        "--logging.level.root=WARN");
+        usersRepository = context.getBean(UsersRepository.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = 1; i <= rows; i++) {
+            String email = email(i);
+            batch.add(new Object[]{i, UserIdConverter.toBytes(UUID.randomUUID().toString()), "John", "Smith", email, UserEntity.reverse(email), "12345678"});
+            if (batch.size() == 10_000 || i == rows) {
+                jdbcTemplate.batchUpdate("insert into users (id, user_id, first_name, last_name, email, email_reversed, "
+                        + "encrypted_password, version, updated_at) values (?, ?, ?, ?, ?, ?, ?, 0, current_timestamp)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserEntity findByEmail() {
+        return usersRepository.findByEmail(email(1 + ThreadLocalRandom.current().nextInt(hotUsers)));
+    }
+
+    private static String email(int index) {
+        return "user" + index + "@mail.com";
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UsersRepositoryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.tutorials.junit.io;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.mapping.callback.ReactiveEntityCallbacks;
+import org.springframework.data.r2dbc.core.DefaultReactiveDataAccessStrategy;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.H2Dialect;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.data.relational.core.query.Criteria.where;
+import static org.springframework.data.relational.core.query.Query.query;
+
+/**
+ * Both stacks on one H2 database: rows JPA writes are read back through R2DBC and the other way round.
+ */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:shared-users-table;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReactiveUserEntityTest {
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    private R2dbcEntityTemplate r2dbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse("r2dbc:h2:mem:///shared-users-table?options=DB_CLOSE_DELAY=-1")
+                .mutate().option(ConnectionFactoryOptions.USER, "sa").option(ConnectionFactoryOptions.PASSWORD, "").build());
+        DatabaseClient databaseClient = DatabaseClient.create(connectionFactory);
+        r2dbcTemplate = new R2dbcEntityTemplate(databaseClient,
+                new DefaultReactiveDataAccessStrategy(H2Dialect.INSTANCE, ReactiveUsersConfiguration.userIdConverters()));
+        r2dbcTemplate.setEntityCallbacks(ReactiveEntityCallbacks.create(ReactiveUsersConfiguration.beforeConvert(databaseClient)));
+    }
+
+    @Test
+    void testSelect_whenSavedThroughJpa_thenReadBackThroughR2dbc() {
+        UserEntity userEntity = new UserEntity();
+        userEntity.setUserId(UUID.randomUUID().toString());
+        userEntity.setFirstName("john");
+        userEntity.setLastName("smith");
+        userEntity.setEmail("jpa-" + userEntity.getUserId() + "@mail.net");
+        userEntity.setEncryptedPassword("12345678");
+        UserEntity savedUser = usersRepository.save(userEntity);
+
+        ReactiveUserEntity reactiveUser = r2dbcTemplate.selectOne(
+                query(where("user_id").is(UUID.fromString(userEntity.getUserId()))), ReactiveUserEntity.class).block();
+
+        assertNotNull(reactiveUser, "R2DBC should find the user by its binary user_id");
+        assertEquals(savedUser.getId(), reactiveUser.getId(), "Id is incorrect");
+        assertEquals(userEntity.getUserId(), reactiveUser.getUserId(), "User id is incorrect");
+        assertEquals(userEntity.getEmail(), reactiveUser.getEmail(), "Email is incorrect");
+        assertEquals(0L, reactiveUser.getVersion(), "Version is incorrect");
+        assertNotNull(reactiveUser.getUpdatedAt(), "Updated at should be read");
+    }
+
+    @Test
+    void testFindByUserId_whenSavedThroughR2dbc_thenReadBackThroughJpa() {
+        ReactiveUserEntity reactiveUser = new ReactiveUserEntity();
+        reactiveUser.setUserId(UUID.randomUUID().toString());
+        reactiveUser.setFirstName("maria");
+        reactiveUser.setLastName("jones");
+        reactiveUser.setEmail("r2dbc-" + reactiveUser.getUserId() + "@mail.net");
+        reactiveUser.setEncryptedPassword("87654321");
+        ReactiveUserEntity insertedUser = r2dbcTemplate.insert(reactiveUser).block();
+        insertedUser.setFirstName("mary");
+        r2dbcTemplate.update(insertedUser).block();
+
+        UserEntity storedUser = usersRepository.findByUserId(reactiveUser.getUserId());
+
+        assertNotNull(storedUser, "JPA should find the user by its user id");
+        assertEquals(insertedUser.getId(), storedUser.getId(), "Id is incorrect");
+        assertEquals("mary", storedUser.getFirstName(), "Update should be visible");
+        assertEquals(1L, storedUser.getVersion(), "Version is incorrect");
+    }
+}
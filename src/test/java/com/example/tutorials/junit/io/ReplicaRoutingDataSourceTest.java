@@ -0,0 +1,130 @@
+package com.example.tutorials.junit.io;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+
+    private DataSource replica0;
+
+    private DataSource replica1;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = mockDataSource();
+        replica0 = mockDataSource();
+        replica1 = mockDataSource();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void testGetConnection_whenRoundRobin_thenAlternateBetweenCurrentReplicas() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN);
+
+        for (int i = 0; i < 4; i++) {
+            dataSource.getConnection();
+        }
+
+        verify(replica0, times(2)).getConnection();
+        verify(replica1, times(2)).getConnection();
+        verify(primary, times(0)).getConnection();
+        assertEquals(4, dataSource.getReplicaReads(), "Replica reads are incorrect");
+    }
+
+    @Test
+    void testGetConnection_whenLeastConnections_thenPickReplicaWithFewestOpenConnections() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Balancing.LEAST_CONNECTIONS);
+
+        Connection first = dataSource.getConnection();
+        dataSource.getConnection();
+        first.close();
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        verify(replica0, times(2)).getConnection();
+        verify(replica1, times(2)).getConnection();
+    }
+
+    @Test
+    void testGetConnection_whenReplicaLagsOrIsUnmeasured_thenSkipIt() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN);
+        dataSource.setLag(0, Duration.ofSeconds(30));
+
+        dataSource.getConnection();
+        dataSource.getConnection();
+        verify(replica1, times(2)).getConnection();
+
+        dataSource.setLag(1, null);
+        dataSource.getConnection();
+        verify(primary).getConnection();
+        verify(replica0, times(0)).getConnection();
+        assertEquals(1, dataSource.getPrimaryReads(), "Primary reads are incorrect");
+    }
+
+    @Test
+    void testGetConnection_whenNotReadOnlyOrPrimaryRequired_thenUsePrimary() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN);
+
+        ReplicaRouting.onPrimary(() -> getConnection(dataSource));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        dataSource.getConnection();
+
+        verify(primary, times(2)).getConnection();
+        verify(replica0, times(0)).getConnection();
+        verify(replica1, times(0)).getConnection();
+    }
+
+    @Test
+    void testGetConnection_whenCredentialsAreGiven_thenUsePrimary() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN);
+
+        dataSource.getConnection("sa", "secret");
+
+        verify(primary).getConnection("sa", "secret");
+        verify(replica0, times(0)).getConnection();
+        verify(replica1, times(0)).getConnection();
+    }
+
+    private ReplicaRoutingDataSource routing(ReplicaRoutingDataSource.Balancing balancing) {
+        ReplicaRoutingDataSource returnValue = new ReplicaRoutingDataSource(primary, List.of(replica0, replica1),
+                balancing, Duration.ofSeconds(5));
+        returnValue.setLag(0, Duration.ZERO);
+        returnValue.setLag(1, Duration.ofMillis(100));
+        return returnValue;
+    }
+
+    private static Connection getConnection(DataSource dataSource) {
+        try {
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DataSource mockDataSource() throws SQLException {
+        DataSource returnValue = mock(DataSource.class);
+        when(returnValue.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        return returnValue;
+    }
+}
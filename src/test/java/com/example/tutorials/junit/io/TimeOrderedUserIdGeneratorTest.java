@@ -0,0 +1,54 @@
+package com.example.tutorials.junit.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedUserIdGeneratorTest {
+
+    @Test
+    void testNext_whenCalledRepeatedly_thenReturnIncreasingVersion7Ids() {
+        TimeOrderedUserIdGenerator generator = new TimeOrderedUserIdGenerator();
+        long startMillis = System.currentTimeMillis();
+
+        UUID previous = generator.next();
+        for (int i = 0; i < 100_000; i++) {
+            UUID next = generator.next();
+            assertTrue(Long.compareUnsigned(next.getMostSignificantBits(), previous.getMostSignificantBits()) > 0,
+                    "Ids from one thread should increase");
+            assertEquals(7, next.version(), "Version is incorrect");
+            assertEquals(2, next.variant(), "Variant is incorrect");
+            previous = next;
+        }
+        assertTrue(TimeOrderedUserIdGenerator.timestampMillis(previous) >= startMillis, "Timestamp is incorrect");
+    }
+
+    @Test
+    void testNext_whenCounterRunsOutWithinOneMillisecond_thenBorrowNextMillisecond() {
+        TimeOrderedUserIdGenerator generator = new TimeOrderedUserIdGenerator(() -> 1_000L);
+
+        UUID previous = generator.next();
+        for (int i = 0; i < 10_000; i++) {
+            UUID next = generator.next();
+            assertTrue(Long.compareUnsigned(next.getMostSignificantBits(), previous.getMostSignificantBits()) > 0,
+                    "Ids should keep increasing on a stopped clock");
+            previous = next;
+        }
+        assertTrue(TimeOrderedUserIdGenerator.timestampMillis(previous) > 1_000L, "Should have borrowed later milliseconds");
+    }
+
+    @Test
+    void testToBytes_whenIdsAreTimeOrdered_thenStoredBytesSortTheSameWay() {
+        TimeOrderedUserIdGenerator generator = new TimeOrderedUserIdGenerator();
+        String earlier = generator.next().toString();
+        String later = generator.next().toString();
+
+        assertTrue(Arrays.compareUnsigned(UserIdConverter.toBytes(earlier), UserIdConverter.toBytes(later)) < 0,
+                "Stored bytes should sort in generation order");
+        assertEquals(later, UserIdConverter.fromBytes(UserIdConverter.toBytes(later)), "Round trip is incorrect");
+    }
+}
@@ -65,4 +65,27 @@ class UserEntityTest {
                 () -> testEntityManager.persistAndFlush(user),
                 "Was expecting PersistenceException to be thrown");
     }
+
+    @Test
+    void testUserEntity_whenSaveTwoUsersWithTheSameEmail_thenThrowException() {
+        testEntityManager.persistAndFlush(userEntity);
+
+        UserEntity user = new UserEntity();
+        user.setUserId(UUID.randomUUID().toString());
+        user.setFirstName("maria");
+        user.setLastName("jonson");
+        user.setEmail(userEntity.getEmail());
+        user.setEncryptedPassword("pass1234");
+
+        assertThrows(PersistenceException.class,
+                () -> testEntityManager.persistAndFlush(user),
+                "Was expecting PersistenceException to be thrown");
+    }
+
+    @Test
+    void testUserEntity_whenEmailIsSet_thenStoreReversedEmail() {
+        UserEntity storedUserEntity = testEntityManager.persistAndFlush(userEntity);
+
+        assertEquals("moc.tset@senoj", storedUserEntity.getEmailReversed(), "The stored reversed email is incorrect");
+    }
 }
\ No newline at end of file
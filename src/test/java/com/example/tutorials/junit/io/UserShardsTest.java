@@ -0,0 +1,97 @@
+package com.example.tutorials.junit.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserShardsTest {
+
+    @Test
+    void testNewUserId_whenGenerated_thenNameTheShardOfTheEmail() {
+        UserShards userShards = new UserShards(4);
+        try {
+            for (int i = 0; i < 1_000; i++) {
+                String email = "user" + i + "@mail.com";
+                String userId = userShards.newUserId(email);
+
+                assertEquals(userShards.shardForEmail(email), userShards.shardOfUserId(userId), "userId should name the email's shard");
+                assertEquals(userId, UUID.fromString(userId).toString(), "userId should stay a valid UUID");
+            }
+        } finally {
+            userShards.shutdown();
+        }
+    }
+
+    @Test
+    void testShardOfUserId_whenIdNamesNoShard_thenReturnMinusOne() {
+        UserShards userShards = new UserShards(4);
+        try {
+            assertEquals(-1, userShards.shardOfUserId("123e4567-e89b-12d3-a456-426614174fff"), "Shard 4095 does not exist");
+            assertEquals(-1, userShards.shardOfUserId("not-hex"), "Malformed ids name no shard");
+        } finally {
+            userShards.shutdown();
+        }
+    }
+
+    @Test
+    void testShardOfUserId_whenSingleShardAndIdIsMalformed_thenReturnMinusOne() {
+        UserShards userShards = new UserShards(1);
+
+        assertEquals(0, userShards.shardOfUserId(userShards.newUserId("user@mail.com")), "Valid ids live on shard 0");
+        assertEquals(-1, userShards.shardOfUserId("123e4567e89b12d3a456426614174000"), "Ids need the canonical form");
+    }
+
+    @Test
+    void testShardForEmail_whenShardIsAdded_thenOnlyItsShareOfEmailsMove() {
+        int moved = 0;
+        int[] perShard = new int[5];
+        for (int i = 0; i < 100_000; i++) {
+            long key = UUID.randomUUID().getMostSignificantBits();
+            int before = UserShards.jumpHash(key, 4);
+            int after = UserShards.jumpHash(key, 5);
+            if (before != after) {
+                moved++;
+                assertEquals(4, after, "An email may only move to the new shard");
+            }
+            perShard[after]++;
+        }
+
+        assertTrue(Math.abs(moved - 20_000) < 1_000, moved + " emails moved, expected about a fifth");
+        for (int count : perShard) {
+            assertTrue(Math.abs(count - 20_000) < 1_000, "Shards should be evenly loaded, one holds " + count);
+        }
+    }
+
+    @Test
+    void testScatter_whenRunOnEveryShard_thenRouteEachCallAndReturnResultsByShard() {
+        UserShards userShards = new UserShards(3);
+        try {
+            List<Integer> routedShards = userShards.scatter(shard -> UserShards.currentShard());
+
+            assertEquals(List.of(0, 1, 2), routedShards, "Each call should run routed to its own shard");
+            assertEquals(0, UserShards.currentShard(), "The caller's routing should be untouched");
+        } finally {
+            userShards.shutdown();
+        }
+    }
+
+    @Test
+    void testScatter_whenAShardFails_thenRethrowItsException() {
+        UserShards userShards = new UserShards(2);
+        try {
+            IllegalStateException exception = assertThrows(IllegalStateException.class, () -> userShards.scatter(shard -> {
+                if (shard == 1)
+                    throw new IllegalStateException("shard 1 is down");
+                return shard;
+            }));
+            assertEquals("shard 1 is down", exception.getMessage(), "Exception message is incorrect");
+        } finally {
+            userShards.shutdown();
+        }
+    }
+}
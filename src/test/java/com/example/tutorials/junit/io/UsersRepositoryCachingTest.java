@@ -0,0 +1,99 @@
+package com.example.tutorials.junit.io;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.UUID;
+
+import static com.example.tutorials.junit.io.UsersCacheConfiguration.USERS_BY_EMAIL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class UsersRepositoryCachingTest {
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+
+    private UserEntity userEntity;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        userEntity = new UserEntity();
+        userEntity.setUserId(UUID.randomUUID().toString());
+        userEntity.setFirstName("john");
+        userEntity.setLastName("smith");
+        userEntity.setEmail("john-" + userEntity.getUserId() + "@mail.net");
+        userEntity.setEncryptedPassword("12345678");
+    }
+
+    @Test
+    void testFindByEmail_whenUserWasJustSaved_thenServeFromCacheWithoutQuery() {
+        usersRepository.save(userEntity);
+        statistics.clear();
+
+        UserEntity byEmail = usersRepository.findByEmail(userEntity.getEmail());
+        UserEntity byUserId = usersRepository.findByUserId(userEntity.getUserId());
+
+        assertEquals(userEntity.getUserId(), byEmail.getUserId(), "Returned user id does not correspond with the saved one");
+        assertEquals(userEntity.getEmail(), byUserId.getEmail(), "Returned email does not correspond with the saved one");
+        assertEquals(0, statistics.getPrepareStatementCount(), "Lookups after save should be served from the cache");
+    }
+
+    @Test
+    void testFindByEmail_whenCalledTwice_thenQueryOnceAndRecordHit() {
+        jdbcTemplate.update("insert into users (id, user_id, first_name, last_name, email, email_reversed, encrypted_password, "
+                        + "version, updated_at) values (next value for users_seq, ?, ?, ?, ?, ?, ?, 0, current_timestamp)",
+                UserIdConverter.toBytes(userEntity.getUserId()), userEntity.getFirstName(), userEntity.getLastName(),
+                userEntity.getEmail(), userEntity.getEmailReversed(), userEntity.getEncryptedPassword());
+        double hitsBefore = cacheGets(USERS_BY_EMAIL, "hit");
+        statistics.clear();
+
+        assertNotNull(usersRepository.findByEmail(userEntity.getEmail()));
+        assertNotNull(usersRepository.findByEmail(userEntity.getEmail()));
+
+        assertEquals(1, statistics.getPrepareStatementCount(), "Only the first lookup should reach the database");
+        assertEquals(hitsBefore + 1, cacheGets(USERS_BY_EMAIL, "hit"), "Second lookup should be recorded as a cache hit");
+    }
+
+    @Test
+    void testFindByEmail_whenSaveIsRolledBack_thenDoNotCacheIt() {
+        transactionTemplate.executeWithoutResult(status -> {
+            usersRepository.save(userEntity);
+            status.setRollbackOnly();
+        });
+        statistics.clear();
+
+        assertEquals(null, usersRepository.findByEmail(userEntity.getEmail()), "Rolled back user should not be found");
+        assertTrue(statistics.getPrepareStatementCount() > 0, "Lookup should have reached the database");
+    }
+
+    private double cacheGets(String cacheName, String result) {
+        return meterRegistry.get("cache.gets").tag("cache", cacheName).tag("result", result).functionCounter().count();
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.List;
 import java.util.UUID;
@@ -75,4 +76,22 @@ class UsersRepositoryTest {
                 .allMatch(userEntity -> userEntity.getEmail().endsWith(emailDomain)),
                 "Email does not ends with the given email domain name");
     }
+
+    @Test
+    void testFindByIdGreaterThan_whenGivenLastSeenId_thenReturnFollowingUsers() {
+        List<UserEntity> storedUsers = usersRepository.findByIdGreaterThanOrderByIdAsc(userEntity1.getId(), PageRequest.of(0, 10));
+
+        assertEquals(1, storedUsers.size(), "There should be only one user after the first one");
+        assertEquals(userEntity2.getEmail(), storedUsers.get(0).getEmail(), "Returned email does not correspond with the second user");
+    }
+
+    @Test
+    void testFindExistingEmails_whenGivenKnownAndUnknownEmails_thenReturnOnlyKnownOnes() {
+        List<String> existingEmails = usersRepository.findExistingEmails(
+                List.of(userEntity1.getEmail(), "unknown@test.com", userEntity2.getEmail()));
+
+        assertEquals(2, existingEmails.size(), "There should be exactly two existing emails");
+        assertTrue(existingEmails.containsAll(List.of(userEntity1.getEmail(), userEntity2.getEmail())),
+                "Both stored emails should be returned");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.example.tutorials.junit.metrics;
+
+import com.example.tutorials.junit.security.SecurityConstants;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@AutoConfigureMetrics
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "users.metrics.scrape.password=scrape-secret")
+class MetricsIntegrationTest {
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Test
+    void testPrometheus_afterSignupLoginAndGetUsers_thenExposeTimersForEveryLayer() throws JSONException {
+        JSONObject userDetails = new JSONObject();
+        userDetails.put("firstName", "Mike");
+        userDetails.put("lastName", "Metrics");
+        userDetails.put("email", "metrics@email.com");
+        userDetails.put("password", "12345678");
+        userDetails.put("repeatPassword", "12345678");
+        HttpHeaders jsonHeaders = new HttpHeaders();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+        testRestTemplate.postForEntity("/users", new HttpEntity<>(userDetails.toString(), jsonHeaders), String.class);
+
+        JSONObject loginCredentials = new JSONObject();
+        loginCredentials.put("email", "metrics@email.com");
+        loginCredentials.put("password", "12345678");
+        String token = testRestTemplate.postForEntity("/users/login", new HttpEntity<>(loginCredentials.toString()), String.class)
+                .getHeaders().getFirst(SecurityConstants.HEADER_STRING);
+
+        HttpHeaders authorizedHeaders = new HttpHeaders();
+        authorizedHeaders.set(SecurityConstants.HEADER_STRING, token);
+        testRestTemplate.exchange("/users", HttpMethod.GET, new HttpEntity<>(authorizedHeaders), String.class);
+
+        ResponseEntity<String> anonymous = testRestTemplate.getForEntity("/actuator/prometheus", String.class);
+        ResponseEntity<String> user = testRestTemplate.exchange("/actuator/prometheus", HttpMethod.GET,
+                new HttpEntity<>(authorizedHeaders), String.class);
+        ResponseEntity<String> response = testRestTemplate.withBasicAuth("prometheus", "scrape-secret")
+                .getForEntity("/actuator/prometheus", String.class);
+        String scrape = response.getBody();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, anonymous.getStatusCode(), "Prometheus endpoint should require credentials");
+        assertEquals(HttpStatus.FORBIDDEN, user.getStatusCode(), "A user's JWT should not be enough to scrape");
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Prometheus endpoint should accept the scrape credentials");
+        assertTrue(scrape.contains("users_controller_seconds_count{"), "Controller timer is missing");
+        assertTrue(scrape.contains("users_service_seconds_count{"), "Service timer is missing");
+        assertTrue(scrape.contains("users_password_hashing_seconds_count"), "Hashing timer is missing");
+        assertTrue(scrape.contains("spring_data_repository_invocations_seconds_count{"), "Repository timer is missing");
+        assertTrue(scrape.contains("users_jwt_seconds_count{operation=\"sign\""), "JWT sign timer is missing");
+        assertTrue(scrape.contains("users_jwt_seconds_count{operation=\"parse\""), "JWT parse timer is missing");
+        assertTrue(scrape.contains("cache_gets_total{cache=\"verifiedTokens\""), "Verified token cache metrics are missing");
+        assertTrue(scrape.contains("users_service_seconds_bucket{"), "Service timer should publish a percentile histogram");
+        assertEquals(HttpStatus.UNAUTHORIZED, testRestTemplate.withBasicAuth("prometheus", "wrong")
+                .getForEntity("/actuator/prometheus", String.class).getStatusCode(), "Wrong password should be rejected");
+        assertEquals(HttpStatus.OK, testRestTemplate.getForEntity("/actuator/health", String.class).getStatusCode(),
+                "Health should stay public");
+        for (String phase : new String[]{RequestTrace.FILTER, RequestTrace.MAPPING, RequestTrace.HASHING,
+                RequestTrace.PERSISTENCE, RequestTrace.OTHER}) {
+            assertTrue(scrape.contains("users_request_phase_seconds_count{phase=\"" + phase + "\""),
+                    "Request phase " + phase + " is missing");
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.tutorials.junit.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestTraceTest {
+
+    @Test
+    void testTime_whenNoTraceIsOpen_thenRunWorkWithoutRecording() {
+        assertEquals("done", RequestTrace.time(RequestTrace.MAPPING, () -> "done"), "Work result is incorrect");
+        RequestTrace.record(RequestTrace.PERSISTENCE, 1_000_000);
+    }
+
+    @Test
+    void testTime_whenPhasesNest_thenChargeEachPhaseItsExclusiveTime() {
+        RequestTrace trace = RequestTrace.start();
+
+        RequestTrace.time(RequestTrace.HASHING, () -> {
+            sleep(20);
+            RequestTrace.time(RequestTrace.MAPPING, () -> sleep(30));
+            sleep(40);
+            RequestTrace.record(RequestTrace.PERSISTENCE, 40_000_000);
+            return null;
+        });
+
+        Map<String, Long> phases = trace.finish();
+
+        assertEquals(40_000_000, phases.get(RequestTrace.PERSISTENCE), "Recorded persistence time is incorrect");
+        assertTrue(phases.get(RequestTrace.MAPPING) >= 30_000_000, "Mapping should include its own sleep");
+        assertTrue(phases.get(RequestTrace.HASHING) >= 20_000_000, "Hashing should include its own sleep");
+        assertTrue(phases.get(RequestTrace.HASHING) < 50_000_000,
+                "Hashing should not be charged for nested mapping or recorded persistence");
+        long claimed = phases.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(trace.getTotalNanos(), claimed, "Phases including other should add up to the total");
+    }
+
+    private static Object sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.tutorials.junit.security;
+
+import com.example.tutorials.junit.io.UserEntity;
+import com.example.tutorials.junit.io.UsersRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+                "users.outbox.poll-interval=PT1H"})
+class AuthenticationFilterIntegrationTest {
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private BCryptPasswordEncoder bCryptPasswordEncoder;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private UserEntity userEntity;
+
+    @BeforeEach
+    void setUp() {
+        userEntity = new UserEntity();
+        userEntity.setUserId(UUID.randomUUID().toString());
+        userEntity.setFirstName("maria");
+        userEntity.setLastName("jones");
+        userEntity.setEmail("mariaj-" + userEntity.getUserId() + "@test.com");
+        userEntity.setEncryptedPassword(bCryptPasswordEncoder.encode("12345678"));
+
+        usersRepository.save(userEntity);
+    }
+
+    @Test
+    @DisplayName("/login issues at most one SELECT")
+    void testUserLogin_whenValidCredentialsProvided_thenIssueAtMostOneQuery() throws JSONException {
+        JSONObject loginCredentials = new JSONObject();
+        loginCredentials.put("email", userEntity.getEmail());
+        loginCredentials.put("password", "12345678");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ResponseEntity<Object> response = testRestTemplate.postForEntity("/users/login",
+                new HttpEntity<>(loginCredentials.toString()), null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Expected status code should be 200 OK");
+        assertEquals(userEntity.getUserId(), response.getHeaders().getFirst("UserID"),
+                "UserID header should carry the stored user id");
+        assertTrue(statistics.getPrepareStatementCount() <= 1,
+                "Login should issue at most one SELECT but issued " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("/.well-known/jwks.json publishes the key that signed the login token")
+    void testGetJwks_whenUserLoggedIn_thenPublishSigningKey() throws JSONException {
+        JSONObject loginCredentials = new JSONObject();
+        loginCredentials.put("email", userEntity.getEmail());
+        loginCredentials.put("password", "12345678");
+
+        ResponseEntity<Object> loginResponse = testRestTemplate.postForEntity("/users/login",
+                new HttpEntity<>(loginCredentials.toString()), null);
+        String token = loginResponse.getHeaders().getFirst(SecurityConstants.HEADER_STRING)
+                .replace(SecurityConstants.TOKEN_PREFIX, "");
+        JSONObject tokenHeader = new JSONObject(new String(
+                Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8));
+
+        ResponseEntity<String> jwksResponse = testRestTemplate.getForEntity("/.well-known/jwks.json", String.class);
+
+        assertEquals(HttpStatus.OK, jwksResponse.getStatusCode(), "JWKS should be public");
+        JSONArray keys = new JSONObject(jwksResponse.getBody()).getJSONArray("keys");
+        boolean published = false;
+        for (int i = 0; i < keys.length(); i++) {
+            JSONObject key = keys.getJSONObject(i);
+            assertTrue(!key.has("d"), "Private key material must not be published");
+            published |= key.getString("kid").equals(tokenHeader.getString("kid"));
+        }
+        assertTrue(published, "Signing key " + tokenHeader.getString("kid") + " should be published");
+    }
+
+    @Test
+    @DisplayName("/login rejects malformed, incomplete and oversized bodies with 400")
+    void testUserLogin_whenBodyInvalid_thenReturn400() throws JSONException {
+        JSONObject missingPassword = new JSONObject();
+        missingPassword.put("email", userEntity.getEmail());
+
+        JSONObject oversized = new JSONObject();
+        oversized.put("email", userEntity.getEmail());
+        oversized.put("password", "x".repeat(AuthenticationFilter.MAX_LOGIN_BODY_BYTES));
+
+        for (String body : new String[]{"{\"email\": ", "[]", missingPassword.toString(), oversized.toString()}) {
+            ResponseEntity<Object> response = testRestTemplate.postForEntity("/users/login",
+                    new HttpEntity<>(body), null);
+
+            assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode(), "Expected 400 for body " +
+                    body.substring(0, Math.min(body.length(), 40)));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.tutorials.junit.security;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtTokensTest {
+
+    @ParameterizedTest
+    @EnumSource(JwtAlgorithm.class)
+    void testParse_whenTokenIssuedByRing_thenReturnSubject(JwtAlgorithm algorithm) {
+        JwtTokens jwtTokens = new JwtTokens(new JwtKeyRing(algorithm, Duration.ofDays(1), "", "", "", List.of(), Duration.ZERO, 1));
+
+        String token = jwtTokens.issue("jones@email.com");
+
+        assertEquals("jones@email.com", jwtTokens.parse(token).getSubject(), "Subject is incorrect");
+    }
+
+    @Test
+    void testParse_whenKeyWasRotated_thenOldTokensStillVerify() {
+        JwtKeyRing keyRing = new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", "", "", List.of(), Duration.ZERO, 1);
+        JwtTokens jwtTokens = new JwtTokens(keyRing);
+        String oldToken = jwtTokens.issue("jones@email.com");
+        String oldKeyId = keyRing.getActiveKey().getKeyId();
+
+        keyRing.rotate();
+        String newToken = jwtTokens.issue("jones@email.com");
+
+        assertNotEquals(oldKeyId, keyRing.getActiveKey().getKeyId(), "Active key should have changed");
+        assertEquals("jones@email.com", jwtTokens.parse(oldToken).getSubject(), "Old token should verify");
+        assertEquals("jones@email.com", jwtTokens.parse(newToken).getSubject(), "New token should verify");
+    }
+
+    @Test
+    void testGetJwkSet_whenAsymmetric_thenPublishActiveAndNextKeys() {
+        JwtKeyRing keyRing = new JwtKeyRing(JwtAlgorithm.ES256, Duration.ofDays(1), "", "", "", List.of(), Duration.ZERO, 1);
+
+        List<PublicJwk<?>> keys = keyRing.getJwkSet().get("keys");
+
+        assertEquals(2, keys.size(), "Active and next key should be published");
+        assertTrue(keys.stream().anyMatch(jwk -> jwk.getId().equals(keyRing.getActiveKey().getKeyId())),
+                "Active key should be published");
+    }
+
+    @Test
+    void testGetJwkSet_whenHmac_thenPublishNothing() {
+        JwtKeyRing keyRing = new JwtKeyRing(JwtAlgorithm.HS512, Duration.ofDays(1), "", "", "", List.of(), Duration.ZERO, 1);
+
+        assertTrue(keyRing.getJwkSet().get("keys").isEmpty(), "HMAC secrets must not be published");
+    }
+
+    @Test
+    void testParse_whenSignedByUnknownKey_thenThrowJwtException() {
+        JwtTokens jwtTokens = new JwtTokens(new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", "", "", List.of(), Duration.ZERO, 1));
+        JwtTokens otherTokens = new JwtTokens(new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", "", "", List.of(), Duration.ZERO, 1));
+
+        String token = otherTokens.issue("jones@email.com");
+
+        assertThrows(JwtException.class, () -> jwtTokens.parse(token), "Was expecting JwtException to be thrown");
+    }
+
+    @Test
+    void testParse_whenAlgorithmDoesNotMatchKey_thenThrowJwtException() {
+        JwtKeyRing keyRing = new JwtKeyRing(JwtAlgorithm.HS512, Duration.ofDays(1), "", "", "", List.of(), Duration.ZERO, 1);
+        JwtTokens jwtTokens = new JwtTokens(keyRing);
+
+        String token = Jwts.builder()
+                .header().keyId(keyRing.getActiveKey().getKeyId()).and()
+                .subject("jones@email.com")
+                .signWith(Jwts.SIG.HS256.key().build())
+                .compact();
+
+        assertThrows(JwtException.class, () -> jwtTokens.parse(token), "Was expecting JwtException to be thrown");
+    }
+
+    @Test
+    void testParse_whenHmacSecretConfigured_thenTokensSurviveRestart() {
+        byte[] secret = new byte[64];
+        secret[0] = 1;
+        String hmacSecret = Base64.getEncoder().encodeToString(secret);
+
+        String token = new JwtTokens(new JwtKeyRing(JwtAlgorithm.HS512, Duration.ofDays(1), hmacSecret, "", "", List.of(), Duration.ZERO, 1))
+                .issue("jones@email.com");
+        JwtTokens restarted = new JwtTokens(new JwtKeyRing(JwtAlgorithm.HS512, Duration.ofDays(1), hmacSecret, "", "", List.of(), Duration.ZERO, 1));
+
+        assertEquals("jones@email.com", restarted.parse(token).getSubject(), "Token should verify after restart");
+    }
+
+    @ParameterizedTest
+    @EnumSource(JwtAlgorithm.class)
+    void testParse_whenKeyFileConfigured_thenGeneratedKeysSurviveRestart(JwtAlgorithm algorithm, @TempDir Path directory) {
+        String keyFile = directory.resolve("jwt-keys.jwks").toString();
+        JwtKeyRing keyRing = new JwtKeyRing(algorithm, Duration.ofDays(1), "", "", keyFile, List.of(), Duration.ZERO, 1);
+        JwtTokens jwtTokens = new JwtTokens(keyRing);
+        String retiredToken = jwtTokens.issue("jones@email.com");
+        keyRing.rotate();
+        String activeToken = jwtTokens.issue("smith@email.com");
+
+        JwtKeyRing restartedRing = new JwtKeyRing(algorithm, Duration.ofDays(1), "", "", keyFile, List.of(), Duration.ZERO, 1);
+        JwtTokens restarted = new JwtTokens(restartedRing);
+
+        assertEquals("jones@email.com", restarted.parse(retiredToken).getSubject(), "Retired key should verify after restart");
+        assertEquals("smith@email.com", restarted.parse(activeToken).getSubject(), "Active key should verify after restart");
+        assertEquals(keyRing.getActiveKey().getKeyId(), restartedRing.getActiveKey().getKeyId(), "Active key should be kept");
+        assertEquals(keyRing.getJwkSet(), restartedRing.getJwkSet(), "Published keys should be kept");
+    }
+
+    @Test
+    void testJwtKeyRing_whenKeyFileHoldsAnotherAlgorithm_thenFailToStart(@TempDir Path directory) {
+        String keyFile = directory.resolve("jwt-keys.jwks").toString();
+        new JwtKeyRing(JwtAlgorithm.ES256, Duration.ofDays(1), "", "", keyFile, List.of(), Duration.ZERO, 1);
+
+        assertThrows(IllegalStateException.class,
+                () -> new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", "", keyFile, List.of(), Duration.ZERO, 1),
+                "Keys of another algorithm should not be overwritten");
+    }
+
+    @Test
+    void testParse_whenTokenExpired_thenThrowJwtException() {
+        JwtKeyRing keyRing = new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", "", "", List.of(), Duration.ZERO, 1);
+        JwtSigningKey key = keyRing.getActiveKey();
+
+        String token = Jwts.builder()
+                .header().keyId(key.getKeyId()).and()
+                .subject("jones@email.com")
+                .expiration(new Date(System.currentTimeMillis() - 60_000))
+                .signWith(key.getSigningKey())
+                .compact();
+
+        assertThrows(JwtException.class, () -> new JwtTokens(keyRing).parse(token),
+                "Was expecting JwtException to be thrown");
+    }
+
+    @Test
+    void testParse_whenPrivateJwkShared_thenInstancesVerifyEachOthersTokens() {
+        String privateJwk = Jwks.UNSAFE_JSON(Jwks.builder().keyPair(Jwks.CRV.Ed25519.keyPair().build()).build());
+        JwtTokens first = new JwtTokens(new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", privateJwk, "", List.of(), Duration.ZERO, 2));
+        JwtTokens second = new JwtTokens(new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", privateJwk, "", List.of(), Duration.ZERO, 2));
+
+        String token = first.issue("jones@email.com");
+
+        assertEquals("jones@email.com", second.parse(token).getSubject(), "Token should verify on the other instance");
+    }
+
+    @Test
+    void testParse_whenSignedByPeer_thenVerifyWithPeerJwkSet(@TempDir Path directory) throws Exception {
+        JwtKeyRing peerRing = new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", "", "", List.of(), Duration.ZERO, 1);
+        StringJoiner keys = new StringJoiner(",", "{\"keys\":[", "]}");
+        peerRing.getJwkSet().get("keys").forEach(jwk -> keys.add(Jwks.json(jwk)));
+        Path peerJwks = Files.writeString(directory.resolve("jwks.json"), keys.toString());
+        JwtKeyRing keyRing = new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", "", "",
+                List.of(peerJwks.toUri()), Duration.ofMinutes(1), 2);
+        try {
+            String token = new JwtTokens(peerRing).issue("jones@email.com");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (keyRing.getKey(peerRing.getActiveKey().getKeyId()) == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals("jones@email.com", new JwtTokens(keyRing).parse(token).getSubject(), "Peer's token should verify");
+        } finally {
+            keyRing.shutdown();
+        }
+    }
+
+    @Test
+    void testGetKey_whenPeerDoesNotAnswer_thenReturnWithoutWaiting() throws Exception {
+        try (ServerSocket silentPeer = new ServerSocket(0)) {
+            JwtKeyRing keyRing = new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", "", "",
+                    List.of(URI.create("http://localhost:" + silentPeer.getLocalPort() + "/jwks.json")), Duration.ZERO, 2);
+            try {
+                long startNanos = System.nanoTime();
+                for (int i = 0; i < 10; i++) {
+                    assertNull(keyRing.getKey("unknown-" + i), "Unknown kid should not resolve");
+                }
+
+                assertTrue(System.nanoTime() - startNanos < TimeUnit.MILLISECONDS.toNanos(500),
+                        "Lookups should not wait for the peer");
+            } finally {
+                keyRing.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void testJwtKeyRing_whenSeveralInstancesWithoutSharedKeys_thenFailToStart() {
+        assertThrows(IllegalStateException.class,
+                () -> new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", "", "", List.of(), Duration.ZERO, 2),
+                "Instances signing with their own keys should not start");
+    }
+
+    @Test
+    void testJwtKeyRing_whenPrivateJwkDoesNotMatchAlgorithm_thenThrowIllegalArgumentException() {
+        String privateJwk = Jwks.UNSAFE_JSON(Jwks.builder().keyPair(Jwts.SIG.ES256.keyPair().build()).build());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new JwtKeyRing(JwtAlgorithm.EdDSA, Duration.ofDays(1), "", privateJwk, "", List.of(), Duration.ZERO, 1),
+                "Was expecting IllegalArgumentException to be thrown");
+    }
+}
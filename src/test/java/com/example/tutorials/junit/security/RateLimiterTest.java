@@ -0,0 +1,102 @@
+package com.example.tutorials.junit.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private AtomicLong nanoTime;
+
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        nanoTime = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+        rateLimiter = new RateLimiter(5, Duration.ofMinutes(1), 1000, nanoTime::get);
+    }
+
+    @Test
+    void testTryAcquire_whenBurstExceedsCapacity_thenRejectWithTimeUntilNextPermit() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("10.0.0.1"), "Request " + i + " should be permitted");
+        }
+
+        long waitNanos = rateLimiter.tryAcquire("10.0.0.1");
+
+        assertEquals(TimeUnit.SECONDS.toNanos(12), waitNanos, "One permit refills every 12 seconds");
+    }
+
+    @Test
+    void testTryAcquire_whenTimePasses_thenRefillPermitsEvenly() {
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.tryAcquire("10.0.0.1");
+        }
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(12));
+
+        assertEquals(0, rateLimiter.tryAcquire("10.0.0.1"), "One permit should have refilled");
+        assertTrue(rateLimiter.tryAcquire("10.0.0.1") > 0, "Only one permit should have refilled");
+    }
+
+    @Test
+    void testTryAcquire_whenOtherKeyExhausted_thenStillPermit() {
+        for (int i = 0; i < 6; i++) {
+            rateLimiter.tryAcquire("10.0.0.1");
+        }
+
+        assertEquals(0, rateLimiter.tryAcquire("10.0.0.2"), "Buckets should be independent per key");
+    }
+
+    @Test
+    void testTryAcquire_whenCalledConcurrently_thenPermitExactlyCapacity() throws Exception {
+        RateLimiter limiter = new RateLimiter(100, Duration.ofHours(1), 1000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger permitted = new AtomicInteger();
+        try {
+            Future<?>[] workers = new Future<?>[8];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 100; j++) {
+                        if (limiter.tryAcquire("jones@email.com") == 0)
+                            permitted.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(100, permitted.get(), "Exactly the bucket capacity should be permitted");
+    }
+
+    @Test
+    void testWaitNanos_whenCalled_thenTakeNoPermit() {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, rateLimiter.waitNanos("10.0.0.1"), "Checking should not use up the bucket");
+        }
+        for (int i = 0; i < 5; i++) {
+            rateLimiter.tryAcquire("10.0.0.1");
+        }
+
+        assertEquals(TimeUnit.SECONDS.toNanos(12), rateLimiter.waitNanos("10.0.0.1"), "Wait is incorrect");
+    }
+}
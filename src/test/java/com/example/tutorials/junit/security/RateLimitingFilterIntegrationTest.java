@@ -0,0 +1,151 @@
+package com.example.tutorials.junit.security;
+
+import com.example.tutorials.junit.io.UserEntity;
+import com.example.tutorials.junit.io.UsersRepository;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"users.rate-limit.ip.capacity=8", "users.rate-limit.email.capacity=2"})
+class RateLimitingFilterIntegrationTest {
+
+    @Autowired
+    private TestRestTemplate testRestTemplate;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private BCryptPasswordEncoder bCryptPasswordEncoder;
+
+    @Test
+    @DisplayName("/login is rate limited per email")
+    void testUserLogin_whenTooManyAttemptsForOneEmail_thenReturn429() throws JSONException {
+        JSONObject loginCredentials = new JSONObject();
+        loginCredentials.put("email", "victim@test.com");
+        loginCredentials.put("password", "wrong-password");
+
+        for (int i = 0; i < 2; i++) {
+            ResponseEntity<Object> response = testRestTemplate.postForEntity("/users/login",
+                    new HttpEntity<>(loginCredentials.toString()), null);
+            assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode(), "Attempt " + i + " should be authenticated");
+        }
+
+        ResponseEntity<Object> response = testRestTemplate.postForEntity("/users/login",
+                new HttpEntity<>(loginCredentials.toString()), null);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode(), "Third attempt should be limited");
+        assertNotNull(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER), "Retry-After header is missing");
+    }
+
+    @Test
+    @DisplayName("Failed logins from one client do not lock the account's owner out")
+    void testUserLogin_whenOtherClientFailedRepeatedly_thenCorrectPasswordStillLogsIn() throws JSONException {
+        UserEntity userEntity = new UserEntity();
+        userEntity.setUserId(UUID.randomUUID().toString());
+        userEntity.setFirstName("maria");
+        userEntity.setLastName("jones");
+        userEntity.setEmail("owner-" + userEntity.getUserId() + "@test.com");
+        userEntity.setEncryptedPassword(bCryptPasswordEncoder.encode("12345678"));
+        usersRepository.save(userEntity);
+
+        for (int i = 0; i < 3; i++) {
+            testRestTemplate.postForEntity("/users/login", login(userEntity.getEmail(), "wrong-password", "203.0.113.10"), null);
+        }
+        ResponseEntity<Object> attackerResponse = testRestTemplate.postForEntity("/users/login",
+                login(userEntity.getEmail(), "wrong-password", "203.0.113.10"), null);
+        ResponseEntity<Object> ownerResponse = testRestTemplate.postForEntity("/users/login",
+                login(userEntity.getEmail(), "12345678", "203.0.113.11"), null);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, attackerResponse.getStatusCode(), "Failing client should be limited");
+        assertEquals(HttpStatus.OK, ownerResponse.getStatusCode(), "Owner should still log in");
+    }
+
+    @Test
+    @DisplayName("Successful logins do not use up the email's bucket")
+    void testUserLogin_whenCorrectPasswordRepeated_thenNeverLimited() throws JSONException {
+        UserEntity userEntity = new UserEntity();
+        userEntity.setUserId(UUID.randomUUID().toString());
+        userEntity.setFirstName("maria");
+        userEntity.setLastName("jones");
+        userEntity.setEmail("frequent-" + userEntity.getUserId() + "@test.com");
+        userEntity.setEncryptedPassword(bCryptPasswordEncoder.encode("12345678"));
+        usersRepository.save(userEntity);
+
+        for (int i = 0; i < 4; i++) {
+            ResponseEntity<Object> response = testRestTemplate.postForEntity("/users/login",
+                    login(userEntity.getEmail(), "12345678", "203.0.113.12"), null);
+            assertEquals(HttpStatus.OK, response.getStatusCode(), "Login " + i + " should succeed");
+        }
+    }
+
+    @Test
+    @DisplayName("POST /users is rate limited per client IP")
+    void testCreateUser_whenTooManyRequestsFromOneIp_thenReturn429() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        ResponseEntity<String> response = null;
+        int attempts = 0;
+        while (attempts < 10) {
+            attempts++;
+            response = testRestTemplate.postForEntity("/users", new HttpEntity<>("{}", headers), String.class);
+            if (response.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS)
+                break;
+        }
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode(), "Signup should be limited per IP");
+        assertTrue(attempts <= 9, "No more than the IP capacity should pass, but " + (attempts - 1) + " did");
+        assertTrue(Long.parseLong(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)) > 0,
+                "Retry-After should be a positive number of seconds");
+    }
+
+    @Test
+    @DisplayName("POST /users behind a proxy is rate limited per forwarded client IP")
+    void testCreateUser_whenForwardedForOtherClient_thenUseItsOwnBucket() {
+        ResponseEntity<String> response = null;
+        for (int attempt = 0; attempt < 10; attempt++) {
+            response = testRestTemplate.postForEntity("/users", forwardedFor("203.0.113.1"), String.class);
+        }
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode(), "First client should be limited");
+
+        response = testRestTemplate.postForEntity("/users", forwardedFor("203.0.113.2"), String.class);
+
+        assertTrue(response.getStatusCode() != HttpStatus.TOO_MANY_REQUESTS,
+                "Another client behind the same proxy should not share the first one's bucket");
+    }
+
+    private static HttpEntity<String> login(String email, String password, String clientIp) throws JSONException {
+        JSONObject loginCredentials = new JSONObject();
+        loginCredentials.put("email", email);
+        loginCredentials.put("password", password);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Forwarded-For", clientIp);
+        return new HttpEntity<>(loginCredentials.toString(), headers);
+    }
+
+    private static HttpEntity<String> forwardedFor(String clientIp) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Forwarded-For", clientIp);
+        return new HttpEntity<>("{}", headers);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.tutorials.junit.security;
+
+import com.example.tutorials.junit.security.VerifiedTokenCache.VerifiedToken;
+import io.jsonwebtoken.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VerifiedTokenCacheTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    private final AtomicInteger verifications = new AtomicInteger();
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    private final Function<String, VerifiedToken> verifier = token -> {
+        verifications.incrementAndGet();
+        return new VerifiedToken("jones@email.com", System.currentTimeMillis() + 60_000);
+    };
+
+    @BeforeEach
+    void setUp() {
+        verifiedTokenCache = new VerifiedTokenCache(100, Duration.ofHours(1));
+    }
+
+    @Test
+    void testGetSubject_whenSameTokenUsedTwice_thenVerifyOnlyOnce() {
+        assertEquals("jones@email.com", verifiedTokenCache.getSubject(TOKEN, verifier));
+        assertEquals("jones@email.com", verifiedTokenCache.getSubject(TOKEN, verifier));
+
+        assertEquals(1, verifications.get(), "Token should be verified only once");
+        assertEquals(1, verifiedTokenCache.stats().hitCount(), "Second lookup should be a hit");
+        assertEquals(1, verifiedTokenCache.stats().missCount(), "First lookup should be a miss");
+    }
+
+    @Test
+    void testGetSubject_whenTokenIsInvalidated_thenVerifyAgain() {
+        verifiedTokenCache.getSubject(TOKEN, verifier);
+        verifiedTokenCache.invalidate(TOKEN);
+        verifiedTokenCache.getSubject(TOKEN, verifier);
+
+        assertEquals(2, verifications.get(), "Invalidated token should be verified again");
+    }
+
+    @Test
+    void testGetSubject_whenTokenAlreadyExpired_thenDoNotKeepIt() {
+        Function<String, VerifiedToken> expiredVerifier = token -> {
+            verifications.incrementAndGet();
+            return new VerifiedToken("jones@email.com", System.currentTimeMillis() - 1);
+        };
+
+        verifiedTokenCache.getSubject(TOKEN, expiredVerifier);
+        verifiedTokenCache.getSubject(TOKEN, expiredVerifier);
+
+        assertEquals(2, verifications.get(), "Expired token should not be served from the cache");
+    }
+
+    @Test
+    void testGetSubject_whenVerificationFails_thenPropagateAndDoNotCache() {
+        Function<String, VerifiedToken> failingVerifier = token -> {
+            verifications.incrementAndGet();
+            throw new SignatureException("JWT signature does not match");
+        };
+
+        assertThrows(SignatureException.class, () -> verifiedTokenCache.getSubject(TOKEN, failingVerifier));
+        assertThrows(SignatureException.class, () -> verifiedTokenCache.getSubject(TOKEN, failingVerifier));
+
+        assertEquals(2, verifications.get(), "Failed verifications should not be cached");
+    }
+}
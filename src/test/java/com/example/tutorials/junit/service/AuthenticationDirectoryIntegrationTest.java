@@ -0,0 +1,89 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.io.UserEntity;
+import com.example.tutorials.junit.io.UsersRepository;
+import com.example.tutorials.junit.security.UserPrincipal;
+import com.example.tutorials.junit.shared.UserDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest(properties = {"users.auth-directory.enabled=true", "users.password.bcrypt.strength=4"})
+class AuthenticationDirectoryIntegrationTest {
+
+    @Autowired
+    private UsersService usersService;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private AuthenticationDirectory authenticationDirectory;
+
+    @Autowired
+    private BCryptPasswordEncoder bCryptPasswordEncoder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testLoadUserByUsername_whenUserSignedUpOnThisNode_thenServeFromDirectory() {
+        UserDto user = new UserDto();
+        user.setFirstName("Sergey");
+        user.setLastName("Kargopolov");
+        user.setEmail("directory-signup@test.com");
+        user.setPassword("12345678");
+        UserDto createdUser = usersService.createUser(user);
+        double hits = directoryLookups("hit");
+
+        UserPrincipal principal = (UserPrincipal) usersService.loadUserByUsername(createdUser.getEmail());
+
+        assertEquals(createdUser.getUserId(), principal.getUserId(), "Directory returned the wrong userId");
+        assertEquals(createdUser.getEncryptedPassword(), principal.getPassword(), "Directory returned the wrong hash");
+        assertEquals(hits + 1, directoryLookups("hit"), "Login should have been served by the directory");
+    }
+
+    @Test
+    void testLoadUserByUsername_whenUserMissingFromDirectory_thenFallBackToDatabase() {
+        UserEntity userEntity = saveUser("directory-elsewhere@test.com");
+
+        assertNull(authenticationDirectory.find(userEntity.getEmail()), "User was not added through this node");
+        UserPrincipal principal = (UserPrincipal) usersService.loadUserByUsername(userEntity.getEmail());
+
+        assertEquals(userEntity.getUserId(), principal.getUserId(), "Database fallback returned the wrong userId");
+    }
+
+    @Test
+    void testBuild_whenUsersAreInTheDatabase_thenLoadTheirCredentials() {
+        UserEntity userEntity = saveUser("directory-existing@test.com");
+
+        authenticationDirectory.build();
+        UserPrincipal principal = authenticationDirectory.find(userEntity.getEmail());
+
+        assertNotNull(principal, "Existing user should have been loaded");
+        assertEquals(userEntity.getUserId(), principal.getUserId(), "Loaded userId is incorrect");
+        assertEquals(userEntity.getEncryptedPassword(), principal.getPassword(), "Loaded hash is incorrect");
+    }
+
+    private UserEntity saveUser(String email) {
+        UserEntity returnValue = new UserEntity();
+        returnValue.setUserId(UUID.randomUUID().toString());
+        returnValue.setFirstName("Maria");
+        returnValue.setLastName("Jones");
+        returnValue.setEmail(email);
+        returnValue.setEncryptedPassword(bCryptPasswordEncoder.encode("12345678"));
+        return usersRepository.save(returnValue);
+    }
+
+    private double directoryLookups(String result) {
+        return meterRegistry.get("users.auth.directory.lookups").tag("result", result).counter().count();
+    }
+}
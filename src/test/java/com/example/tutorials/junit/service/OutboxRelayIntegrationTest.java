@@ -0,0 +1,108 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.exceptions.UsersServiceException;
+import com.example.tutorials.junit.io.OutboxEventRepository;
+import com.example.tutorials.junit.io.OutboxLeaseEntity;
+import com.example.tutorials.junit.io.OutboxLeaseRepository;
+import com.example.tutorials.junit.io.UserEntity;
+import com.example.tutorials.junit.io.UserShards;
+import com.example.tutorials.junit.io.UsersRepository;
+import com.example.tutorials.junit.shared.OutboxEvent;
+import com.example.tutorials.junit.shared.UserDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.tutorials.junit.service.UserFixtures.newUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"users.outbox.sink=memory", "users.outbox.poll-interval=PT0.05S"})
+class OutboxRelayIntegrationTest {
+
+    @Autowired
+    private UsersService usersService;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private InMemoryOutboxSink sink;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxLeaseRepository outboxLeaseRepository;
+
+    @Autowired
+    private UserShards userShards;
+
+    @Test
+    void testCreateUser_whenUserIsCreated_thenRelayDeliversUserCreatedEvent() throws InterruptedException {
+        UserDto createdUser = usersService.createUser(newUser("outbox@email.com"));
+
+        OutboxEvent event = awaitEvent(createdUser.getUserId());
+
+        assertEquals(OutboxEvent.USER_CREATED, event.getType(), "Event type is incorrect");
+        assertTrue(event.getPayload().contains("\"email\":\"outbox@email.com\""), "Payload should describe the user");
+    }
+
+    @Test
+    void testCreateUser_whenUniqueIndexRejectsUser_thenNoEventIsDelivered() throws InterruptedException {
+        UserEntity racingUser = new UserEntity();
+        racingUser.setUserId(UUID.randomUUID().toString());
+        racingUser.setFirstName("Race");
+        racingUser.setLastName("Winner");
+        racingUser.setEmail("outbox-race@email.com");
+        racingUser.setEncryptedPassword("hashed");
+        usersRepository.save(racingUser);
+
+        assertThrows(UsersServiceException.class, () -> usersService.createUser(newUser("outbox-race@email.com")),
+                "Was expecting UsersServiceException to be thrown");
+        UserDto laterUser = usersService.createUser(newUser("outbox-later@email.com"));
+        awaitEvent(laterUser.getUserId());
+
+        for (OutboxEvent event : sink.getEvents()) {
+            assertFalse(event.getPayload().contains("outbox-race@email.com"),
+                    "The rolled back signup must not have left an event behind");
+        }
+    }
+
+    @Test
+    void testDrain_whenAnotherInstanceHoldsTheLease_thenSecondRelayDeliversNothing() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!outboxLeaseRepository.existsById(OutboxLeaseEntity.ID) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        InMemoryOutboxSink otherSink = new InMemoryOutboxSink();
+        OutboxRelay otherRelay = new OutboxRelay(outboxEventRepository, outboxLeaseRepository, otherSink, userShards,
+                new SimpleMeterRegistry(), 100, Duration.ofSeconds(1), Duration.ofSeconds(30));
+
+        UserDto createdUser = usersService.createUser(newUser("outbox-lease@email.com"));
+        int delivered = otherRelay.drain();
+        awaitEvent(createdUser.getUserId());
+
+        assertEquals(0, delivered, "Only the lease holder should drain the outbox");
+        assertTrue(otherSink.getEvents().isEmpty(), "The second relay should not publish anything");
+    }
+
+    private OutboxEvent awaitEvent(String userId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            for (OutboxEvent event : sink.getEvents()) {
+                if (event.getAggregateId().equals(userId))
+                    return event;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("No event was delivered for user " + userId);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.io.OutboxEventEntity;
+import com.example.tutorials.junit.io.OutboxEventRepository;
+import com.example.tutorials.junit.io.OutboxLeaseEntity;
+import com.example.tutorials.junit.io.OutboxLeaseRepository;
+import com.example.tutorials.junit.io.UserShards;
+import com.example.tutorials.junit.shared.OutboxEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+
+    private final TreeMap<Long, OutboxEventEntity> outbox = new TreeMap<>();
+
+    private final List<List<OutboxEvent>> publishedBatches = new ArrayList<>();
+
+    private OutboxEventRepository outboxEventRepository;
+
+    private OutboxLeaseRepository outboxLeaseRepository;
+
+    private MeterRegistry meterRegistry;
+
+    private int failuresLeft;
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository = mock(OutboxEventRepository.class);
+        when(outboxEventRepository.findByOrderByIdAsc(any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable pageable = invocation.getArgument(0);
+            return new ArrayList<>(outbox.values()).subList(0, Math.min(pageable.getPageSize(), outbox.size()));
+        });
+        doAnswer(invocation -> {
+            Iterable<Long> ids = invocation.getArgument(0);
+            ids.forEach(outbox::remove);
+            return null;
+        }).when(outboxEventRepository).deleteAllByIdInBatch(anyIterable());
+
+        outboxLeaseRepository = mock(OutboxLeaseRepository.class);
+        when(outboxLeaseRepository.claim(anyString(), any(), any())).thenReturn(1);
+
+        OutboxSink sink = events -> {
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new IOException("Sink unavailable");
+            }
+            publishedBatches.add(events);
+        };
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OutboxRelay(outboxEventRepository, outboxLeaseRepository, sink, new UserShards(1), meterRegistry, 2,
+                Duration.ofSeconds(1), Duration.ofSeconds(30));
+    }
+
+    @Test
+    void testDrain_whenOutboxHoldsSeveralBatches_thenPublishAllInIdOrderAndEmptyOutbox() throws IOException {
+        addEvents(5);
+
+        int delivered = relay.drain();
+
+        assertEquals(5, delivered, "Every event should have been delivered");
+        assertEquals(3, publishedBatches.size(), "Events should be published in batches of batch-size");
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), publishedIds(), "Events should be published in id order");
+        assertTrue(outbox.isEmpty(), "Delivered events should be deleted from the outbox");
+        assertEquals(5, meterRegistry.get("users.outbox.published").counter().count(), "Published counter is incorrect");
+        assertEquals(5, meterRegistry.get("users.outbox.lag").timer().count(), "Lag should be recorded per event");
+        assertEquals(0, relay.getOldestPendingSeconds(), "Nothing should be pending after a full drain");
+    }
+
+    @Test
+    void testDrain_whenSinkFails_thenKeepBatchAndRedeliverItNextTime() throws IOException {
+        addEvents(3);
+        failuresLeft = 1;
+
+        assertThrows(IOException.class, () -> relay.drain(), "Sink failure should propagate");
+        assertEquals(3, outbox.size(), "A failed batch must stay in the outbox");
+
+        relay.drain();
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), publishedIds(), "The failed batch should be delivered first, in order");
+        assertTrue(outbox.isEmpty(), "Delivered events should be deleted from the outbox");
+    }
+
+    @Test
+    void testDrain_whenAnotherRelayHoldsTheLease_thenLeaveOutboxToIt() throws IOException {
+        addEvents(3);
+        when(outboxLeaseRepository.claim(anyString(), any(), any())).thenReturn(0);
+        when(outboxLeaseRepository.existsById(OutboxLeaseEntity.ID)).thenReturn(true);
+
+        assertEquals(0, relay.drain(), "Nothing should be delivered without the lease");
+        assertTrue(publishedBatches.isEmpty(), "Nothing should be published without the lease");
+        assertEquals(3, outbox.size(), "The outbox should be left to the lease holder");
+    }
+
+    @Test
+    void testDrain_whenLeaseRowIsMissing_thenCreateItAndDrain() throws IOException {
+        addEvents(1);
+        when(outboxLeaseRepository.claim(anyString(), any(), any())).thenReturn(0);
+        when(outboxLeaseRepository.create(anyString(), any())).thenReturn(1);
+
+        assertEquals(1, relay.drain(), "The relay creating the lease should drain the outbox");
+    }
+
+    @Test
+    void testShutdown_whenIdle_thenReleaseTheLease() {
+        relay.start();
+
+        relay.shutdown();
+
+        verify(outboxLeaseRepository).release(anyString(), any());
+    }
+
+    @Test
+    void testShutdown_whenBatchIsStillBeingPublished_thenKeepItsLease() throws InterruptedException {
+        addEvents(1);
+        CountDownLatch publishing = new CountDownLatch(1);
+        CountDownLatch sinkReleased = new CountDownLatch(1);
+        OutboxSink stuckSink = events -> {
+            publishing.countDown();
+            try {
+                sinkReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        OutboxRelay stuckRelay = new OutboxRelay(outboxEventRepository, outboxLeaseRepository, stuckSink,
+                new UserShards(1), meterRegistry, 2, Duration.ofMillis(10), Duration.ofMillis(200));
+        stuckRelay.start();
+        assertTrue(publishing.await(5, TimeUnit.SECONDS), "The relay should have started publishing");
+
+        try {
+            stuckRelay.shutdown();
+
+            verify(outboxLeaseRepository, never()).release(anyString(), any());
+        } finally {
+            sinkReleased.countDown();
+        }
+    }
+
+    private void addEvents(int count) {
+        for (int i = 0; i < count; i++) {
+            OutboxEventEntity event = new OutboxEventEntity("user-" + i, OutboxEvent.USER_CREATED, "{}");
+            long id = outbox.size() + 1;
+            ReflectionTestUtils.setField(event, "id", id);
+            outbox.put(id, event);
+        }
+    }
+
+    private List<Long> publishedIds() {
+        List<Long> returnValue = new ArrayList<>();
+        for (List<OutboxEvent> batch : publishedBatches) {
+            for (OutboxEvent event : batch) {
+                returnValue.add(event.getId());
+            }
+        }
+        return returnValue;
+    }
+}
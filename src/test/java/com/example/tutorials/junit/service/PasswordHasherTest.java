@@ -0,0 +1,68 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PasswordHasherTest {
+
+    private final CountDownLatch releaseWorkers = new CountDownLatch(1);
+
+    private final CountDownLatch workerStarted = new CountDownLatch(1);
+
+    private PasswordHasher passwordHasher;
+
+    @BeforeEach
+    void setUp() {
+        BCryptPasswordEncoder bCryptPasswordEncoder = mock(BCryptPasswordEncoder.class);
+        when(bCryptPasswordEncoder.encode(anyString())).thenAnswer(invocation -> {
+            workerStarted.countDown();
+            releaseWorkers.await(5, TimeUnit.SECONDS);
+            return "hashed-" + invocation.getArgument(0);
+        });
+
+        passwordHasher = new PasswordHasher(bCryptPasswordEncoder, new SimpleMeterRegistry(), 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseWorkers.countDown();
+        passwordHasher.shutdown();
+    }
+
+    @Test
+    void testEncode_whenPoolIsIdle_thenReturnHashedPassword() {
+        releaseWorkers.countDown();
+
+        assertEquals("hashed-12345678", passwordHasher.encode("12345678"), "Returned hash is incorrect");
+    }
+
+    @Test
+    void testEncodeAsync_whenWorkersAndQueueAreBusy_thenThrowServiceUnavailableException() throws InterruptedException {
+        CompletableFuture<String> running = passwordHasher.encodeAsync("running1");
+        assertTrue(workerStarted.await(5, TimeUnit.SECONDS), "Worker should have picked up the first task");
+        CompletableFuture<String> queued = passwordHasher.encodeAsync("queued12");
+
+        assertThrows(ServiceUnavailableException.class,
+                () -> passwordHasher.encodeAsync("rejected"),
+                "Was expecting ServiceUnavailableException to be thrown");
+
+        releaseWorkers.countDown();
+        assertEquals("hashed-running1", running.join());
+        assertEquals("hashed-queued12", queued.join());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.io.ReplicaRouting;
+import com.example.tutorials.junit.io.ReplicaRoutingDataSource;
+import com.example.tutorials.junit.io.UserEntity;
+import com.example.tutorials.junit.io.UserIdConverter;
+import com.example.tutorials.junit.shared.UserDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two in-memory H2 databases stand in for a primary and its replica; replication is a snapshot of the
+ * primary copied over by {@link #replicate()}.
+ */
+@SpringBootTest(properties = {"users.replicas.count=1", "users.replicas.lag-check-interval=PT1H",
+        "spring.cache.type=none", "users.password.bcrypt.strength=4"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReplicaRoutingIntegrationTest {
+
+    private static final String EMAIL = "replicated@mail.com";
+
+    @Autowired
+    private UsersService usersService;
+
+    @Autowired
+    private ReplicaRouting replicaRouting;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate primary;
+
+    private JdbcTemplate replica;
+
+    @BeforeAll
+    void seedPrimary() throws SQLException {
+        ReplicaRoutingDataSource routing = dataSource.unwrap(ReplicaRoutingDataSource.class);
+        primary = new JdbcTemplate(routing.getPrimary());
+        replica = new JdbcTemplate(routing.getReplica(0));
+
+        primary.update("insert into users (id, user_id, first_name, last_name, email, email_reversed, encrypted_password, "
+                        + "version, updated_at) values (1000000, ?, 'John', 'Smith', ?, ?, 'hashed', 0, current_timestamp)",
+                UserIdConverter.toBytes(UUID.randomUUID().toString()), EMAIL, UserEntity.reverse(EMAIL));
+    }
+
+    @BeforeEach
+    void replicateAndMarkReplica() {
+        replicaRouting.checkLag();
+        replicate();
+        replica.update("update users set first_name = 'Replica'");
+        replicaRouting.checkLag();
+    }
+
+    @Test
+    void testGetUser_whenReplicaIsCurrent_thenReadFromReplica() {
+        assertEquals("Replica", usersService.getUser(EMAIL).getFirstName(), "Lookup should be served by the replica");
+        assertEquals("Replica", usersService.getUsers(1, 10).get(0).getFirstName(), "Pages should be served by the replica");
+    }
+
+    @Test
+    void testGetUser_whenReplicaLagsBeyondMaxLag_thenReadFromPrimary() {
+        replica.update("update replica_heartbeat set beat_millis = beat_millis - 60000");
+        replicaRouting.checkLag();
+
+        assertEquals("John", usersService.getUser(EMAIL).getFirstName(), "A lagging replica should get no reads");
+        assertTrue(meterRegistry.get("users.replica.lag").gauge().value() >= 60, "Lag gauge should show the lag");
+    }
+
+    @Test
+    void testGetUser_whenReplicaIsUnreachable_thenReadFromPrimary() {
+        replica.execute("drop all objects");
+        replicaRouting.checkLag();
+
+        assertEquals("John", usersService.getUser(EMAIL).getFirstName(), "An unreadable replica should get no reads");
+        assertTrue(Double.isNaN(meterRegistry.get("users.replica.lag").gauge().value()), "Lag should be unknown");
+    }
+
+    @Test
+    void testCreateUser_whenReadBackBeforeReplication_thenReadFromPrimary() {
+        UserDto user = new UserDto();
+        user.setFirstName("New");
+        user.setLastName("User");
+        user.setEmail("read-your-writes@mail.com");
+        user.setPassword("12345678");
+
+        UserDto createdUser = usersService.createUser(user);
+
+        assertEquals(createdUser.getUserId(), usersService.getUser("read-your-writes@mail.com").getUserId(),
+                "A new user should be found by email");
+        assertEquals("New", usersService.getUserByUserId(createdUser.getUserId()).getFirstName(),
+                "A new user should be found by userId");
+        assertEquals("read-your-writes@mail.com", usersService.loadUserByUsername("read-your-writes@mail.com").getUsername(),
+                "A new user should be able to log in");
+        assertEquals(1, usersService.getUsers(1, 10).size(), "Pages still come from the replica, which lacks the new user");
+    }
+
+    /**
+     * Replaces the replica with a snapshot of the primary, heartbeat included, as if it had just caught up.
+     */
+    private void replicate() {
+        replica.execute("drop all objects");
+        for (String statement : primary.queryForList("script", String.class)) {
+            replica.execute(statement);
+        }
+    }
+}
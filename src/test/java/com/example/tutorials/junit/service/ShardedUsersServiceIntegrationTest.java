@@ -0,0 +1,161 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.exceptions.UsersServiceException;
+import com.example.tutorials.junit.io.ShardDataSources;
+import com.example.tutorials.junit.io.UserEntity;
+import com.example.tutorials.junit.io.UserShards;
+import com.example.tutorials.junit.io.UsersRepository;
+import com.example.tutorials.junit.shared.UserDto;
+import com.example.tutorials.junit.shared.UserImportReport;
+import com.example.tutorials.junit.shared.UserImportResult;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.example.tutorials.junit.service.UserFixtures.newUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"users.sharding.shards=3", "users.password.bcrypt.strength=4"})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ShardedUsersServiceIntegrationTest {
+
+    private static final int USERS = 30;
+
+    @Autowired
+    private UsersService usersService;
+
+    @Autowired
+    private UserShards userShards;
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    private final List<UserDto> createdUsers = new ArrayList<>();
+
+    @BeforeAll
+    void createUsers() {
+        for (int i = 0; i < USERS; i++) {
+            createdUsers.add(usersService.createUser(newUser("sharded" + i + "@mail.com")));
+        }
+    }
+
+    @Test
+    void testCreateUser_whenUsersAreCreated_thenEachIsStoredOnlyOnItsEmailsShard() {
+        int total = 0;
+        for (int shard = 0; shard < shardDataSources.size(); shard++) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shardDataSources.get(shard));
+            for (String email : jdbcTemplate.queryForList("select email from users where email like 'sharded%'", String.class)) {
+                assertEquals(shard, userShards.shardForEmail(email), email + " is stored on the wrong shard");
+                total++;
+            }
+            assertTrue(total > 0, "Shard " + shard + " should hold some of the users");
+        }
+        assertEquals(USERS, total, "Every user should be stored exactly once");
+    }
+
+    @Test
+    void testGetUser_whenLookedUpByEmailOrUserId_thenFindUserOnItsShard() {
+        for (UserDto createdUser : createdUsers) {
+            assertEquals(createdUser.getUserId(), usersService.getUser(createdUser.getEmail()).getUserId(), "Lookup by email failed");
+            assertEquals(createdUser.getEmail(), usersService.getUserByUserId(createdUser.getUserId()).getEmail(), "Lookup by userId failed");
+        }
+        assertThrows(UsernameNotFoundException.class, () -> usersService.getUserByUserId("123e4567-e89b-12d3-a456-426614174fff"),
+                "A userId naming no shard should not be found");
+    }
+
+    @Test
+    void testCreateUser_whenEmailExistsOnItsShard_thenThrowUsersServiceException() {
+        assertThrows(UsersServiceException.class, () -> usersService.createUser(newUser("sharded0@mail.com")),
+                "Was expecting UsersServiceException to be thrown");
+    }
+
+    @Test
+    void testCreateUsers_whenConcurrentSignupTookAnEmail_thenReportItDuplicateAndCreateTheRest() {
+        String racedEmail = "raced@mail.com";
+        int shard = userShards.shardForEmail(racedEmail);
+        List<UserDto> batch = new ArrayList<>();
+        batch.add(newUser(racedEmail));
+        for (int i = 0; batch.size() < 3; i++) {
+            if (userShards.shardForEmail("batched" + i + "@mail.com") == shard)
+                batch.add(newUser("batched" + i + "@mail.com"));
+        }
+
+        // saved behind the service's back, so neither its email filter nor findExistingEmails saw it coming
+        UserEntity racedUser = new UserEntity();
+        racedUser.setFirstName("Jane");
+        racedUser.setLastName("Doe");
+        racedUser.setEmail(racedEmail);
+        racedUser.setEncryptedPassword("hashed");
+        racedUser.setUserId(userShards.newUserId(racedEmail));
+        userShards.onShard(shard, () -> usersRepository.save(racedUser));
+
+        UserImportReport report = usersService.createUsers(batch);
+
+        assertEquals(UserImportResult.Status.DUPLICATE, report.getResults().get(0).getStatus(), "Raced email should be a duplicate");
+        assertEquals(2, report.getCreatedCount(), "The rest of the batch should still be created");
+        for (UserImportResult result : report.getResults().subList(1, 3)) {
+            assertEquals(UserImportResult.Status.CREATED, result.getStatus(), result.getEmail() + " should be created");
+            assertEquals(result.getUserId(), usersService.getUser(result.getEmail()).getUserId(), result.getEmail() + " should be stored");
+        }
+    }
+
+    @Test
+    void testGetUsersAfter_whenPagingThroughAllShards_thenReturnEveryUserOnceInIdOrder() {
+        List<Long> ids = new ArrayList<>();
+        long afterId = 0;
+        List<UserDto> page;
+        do {
+            page = usersService.getUsersAfter(afterId, 7);
+            for (UserDto user : page) {
+                assertTrue(user.getId() > afterId, "Ids should increase across pages");
+                afterId = user.getId();
+                ids.add(afterId);
+            }
+        } while (page.size() == 7);
+
+        assertEquals(ids.size(), new HashSet<>(ids).size(), "Ids must be unique across shards");
+        assertTrue(ids.size() >= USERS, "Every user should be paged through");
+    }
+
+    @Test
+    void testGetUsers_whenPagingByOffset_thenMergedPagesMatchKeysetOrder() {
+        List<UserDto> all = usersService.getUsersAfter(0, 1_000);
+        List<Long> expected = new ArrayList<>();
+        for (UserDto user : all) {
+            expected.add(user.getId());
+        }
+
+        List<Long> paged = new ArrayList<>();
+        for (int page = 1; paged.size() < expected.size(); page++) {
+            for (UserDto user : usersService.getUsers(page, 4)) {
+                paged.add(user.getId());
+            }
+        }
+
+        assertEquals(expected, paged, "Offset pages should follow the merged id order");
+    }
+
+    @Test
+    void testStreamUsers_whenExporting_thenIncludeUsersOfEveryShard() {
+        Set<String> exported = new HashSet<>();
+        usersService.streamUsers(user -> exported.add(user.getUserId()));
+
+        for (UserDto createdUser : createdUsers) {
+            assertTrue(exported.contains(createdUser.getUserId()), createdUser.getEmail() + " is missing from the export");
+        }
+    }
+}
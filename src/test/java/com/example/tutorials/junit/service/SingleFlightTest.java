@@ -0,0 +1,57 @@
+package com.example.tutorials.junit.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+
+    @Test
+    void testExecute_whenLoaderThrowsError_thenCoalescedCallerGetsErrorInsteadOfHanging() throws Exception {
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = callers.submit(() -> singleFlight.execute("key", () -> {
+                loaderStarted.countDown();
+                while (coalescedCalls() == 0) {
+                    Thread.onSpinWait();
+                }
+                throw new StackOverflowError("loader failed");
+            }));
+            assertTrue(loaderStarted.await(5, TimeUnit.SECONDS), "Loader should have started");
+            Future<String> second = callers.submit(() -> singleFlight.execute("key", () -> "not called"));
+
+            ExecutionException firstError = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            ExecutionException secondError = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS),
+                    "Coalesced caller should get the Error, not hang");
+
+            assertTrue(firstError.getCause() instanceof StackOverflowError, "Loader's caller should get the Error");
+            assertTrue(secondError.getCause() instanceof StackOverflowError, "Coalesced caller should get the same Error");
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecute_whenLoaderSucceeds_thenReturnsItsValue() {
+        assertEquals("value", singleFlight.execute("key", () -> "value"));
+    }
+
+    private double coalescedCalls() {
+        return meterRegistry.get("users.singleflight.calls").tag("result", "coalesced").counter().count();
+    }
+}
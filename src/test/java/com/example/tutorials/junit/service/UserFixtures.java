@@ -0,0 +1,21 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.shared.UserDto;
+
+/**
+ * Signups shared by the service tests.
+ */
+final class UserFixtures {
+
+    private UserFixtures() {
+    }
+
+    static UserDto newUser(String email) {
+        UserDto returnValue = new UserDto();
+        returnValue.setFirstName("John");
+        returnValue.setLastName("Smith");
+        returnValue.setEmail(email);
+        returnValue.setPassword("12345678");
+        return returnValue;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.exceptions.UsersServiceException;
+import com.example.tutorials.junit.io.UserEntity;
+import com.example.tutorials.junit.io.UsersRepository;
+import com.example.tutorials.junit.shared.UserDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class UsersServiceImplIntegrationTest {
+
+    @Autowired
+    private UsersService usersService;
+
+    @Autowired
+    private UsersRepository usersRepository;
+
+    @Autowired
+    private EmailFilter emailFilter;
+
+    @Test
+    void testCreateUser_whenEmailWasInsertedBehindTheFiltersBack_thenUniqueIndexRejectsDuplicate() {
+        UserEntity racingUser = new UserEntity();
+        racingUser.setUserId(UUID.randomUUID().toString());
+        racingUser.setFirstName("Race");
+        racingUser.setLastName("Winner");
+        racingUser.setEmail("race@email.com");
+        racingUser.setEncryptedPassword("hashed");
+        usersRepository.save(racingUser);
+        assertFalse(emailFilter.mightContain("race@email.com"), "Filter should not know about the direct insert");
+        String versionBefore = usersService.getUsersVersion().getETag();
+
+        UserDto user = new UserDto();
+        user.setFirstName("Race");
+        user.setLastName("Loser");
+        user.setEmail("race@email.com");
+        user.setPassword("12345678");
+
+        UsersServiceException exception = assertThrows(UsersServiceException.class, () -> usersService.createUser(user),
+                "Was expecting UsersServiceException to be thrown");
+        assertEquals("Record already exists", exception.getMessage(), "Exception message is incorrect");
+        assertEquals(versionBefore, usersService.getUsersVersion().getETag(), "A rolled back signup must not change the version");
+    }
+
+    @Test
+    void testCreateUser_whenSignupCommits_thenUsersVersionMoves() {
+        String versionBefore = usersService.getUsersVersion().getETag();
+
+        UserDto user = new UserDto();
+        user.setFirstName("Version");
+        user.setLastName("Bump");
+        user.setEmail("version-bump@email.com");
+        user.setPassword("12345678");
+        usersService.createUser(user);
+
+        assertNotEquals(versionBefore, usersService.getUsersVersion().getETag(), "A committed signup must change the version");
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.tutorials.junit.service;
+
+import com.example.tutorials.junit.io.UserEntity;
+import com.example.tutorials.junit.exceptions.UsersServiceException;
+import com.example.tutorials.junit.io.OutboxEventEntity;
+import com.example.tutorials.junit.io.OutboxEventRepository;
+import com.example.tutorials.junit.io.ReplicaRouting;
+import com.example.tutorials.junit.io.UserShards;
+import com.example.tutorials.junit.io.UsersRepository;
+import com.example.tutorials.junit.io.UsersVersionRepository;
+import com.example.tutorials.junit.shared.OutboxEvent;
+import com.example.tutorials.junit.shared.UserDto;
+import com.example.tutorials.junit.shared.UserImportReport;
+import com.example.tutorials.junit.shared.UserImportResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.example.tutorials.junit.service.UserFixtures.newUser;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UsersServiceImplTest {
+
+    private static final int CALLERS = 32;
+
+    private static final String EMAIL = "popular@email.com";
+
+    private final CountDownLatch releaseQuery = new CountDownLatch(1);
+
+    private UsersRepository usersRepository;
+
+    private OutboxEventRepository outboxEventRepository;
+
+    private PasswordHasher passwordHasher;
+
+    private MeterRegistry meterRegistry;
+
+    private UserShards userShards;
+
+    private EmailFilter emailFilter;
+
+    private UsersServiceImpl usersService;
+
+    private ExecutorService callers;
+
+    private ExecutorService saveExecutor;
+
+    @BeforeEach
+    void setUp() {
+        usersRepository = mock(UsersRepository.class);
+        passwordHasher = mock(PasswordHasher.class);
+        meterRegistry = new SimpleMeterRegistry();
+        userShards = new UserShards(1);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        emailFilter = new EmailFilter(usersRepository, userShards, transactionManager, meterRegistry, 1000, 0.01);
+        when(usersRepository.streamAllEmails()).thenReturn(Stream.of("existing@email.com"));
+        emailFilter.build();
+        outboxEventRepository = mock(OutboxEventRepository.class);
+        saveExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "user-saver"));
+        usersService = new UsersServiceImpl(usersRepository, outboxEventRepository,
+                mock(UsersVersionRepository.class), userShards, new ReplicaRouting(),
+                transactionManager, passwordHasher, mock(EntityManager.class), emailFilter,
+                new AuthenticationDirectory(usersRepository, userShards, transactionManager, meterRegistry, false, 1000),
+                meterRegistry, saveExecutor);
+        callers = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseQuery.countDown();
+        callers.shutdownNow();
+        saveExecutor.shutdownNow();
+    }
+
+    @Test
+    void testGetUserAndLoadUserByUsername_whenCalledConcurrentlyForSameEmail_thenIssueOneQuery() throws Exception {
+        UserEntity userEntity = new UserEntity();
+        userEntity.setUserId("user-1");
+        userEntity.setEmail(EMAIL);
+        userEntity.setEncryptedPassword("hashed");
+        when(usersRepository.findByEmail(EMAIL)).thenAnswer(invocation -> {
+            releaseQuery.await(5, TimeUnit.SECONDS);
+            return userEntity;
+        });
+
+        List<Future<?>> results = new ArrayList<>(CALLERS);
+        for (int i = 0; i < CALLERS; i++) {
+            boolean login = i % 2 == 0;
+            results.add(callers.submit(() -> login ? usersService.loadUserByUsername(EMAIL) : usersService.getUser(EMAIL)));
+        }
+        awaitCoalescedCallers(CALLERS - 1);
+        releaseQuery.countDown();
+
+        for (int i = 0; i < CALLERS; i++) {
+            Object result = results.get(i).get(5, TimeUnit.SECONDS);
+            String email = result instanceof UserDetails ? ((UserDetails) result).getUsername() : ((UserDto) result).getEmail();
+            assertEquals(EMAIL, email, "Every caller should receive the shared lookup result");
+        }
+        verify(usersRepository, times(1)).findByEmail(EMAIL);
+        assertEquals(1, callCount("executed"), "Exactly one caller should have queried the repository");
+        assertEquals(CALLERS - 1, callCount("coalesced"), "Every other caller should have been coalesced");
+    }
+
+    @Test
+    void testGetUser_whenCalledAgainAfterLookupCompleted_thenQueryAgain() {
+        releaseQuery.countDown();
+        when(usersRepository.findByEmail(EMAIL)).thenReturn(null);
+
+        assertThrows(UsernameNotFoundException.class, () -> usersService.getUser(EMAIL));
+        assertThrows(UsernameNotFoundException.class, () -> usersService.getUser(EMAIL));
+
+        verify(usersRepository, times(2)).findByEmail(EMAIL);
+    }
+
+    @Test
+    void testCreateUser_whenEmailFilterRulesEmailOut_thenSkipDuplicateCheckQuery() {
+        when(passwordHasher.encode(anyString())).thenReturn("hashed");
+        when(usersRepository.save(any(UserEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        UserDto createdUser = usersService.createUser(newUser("new@email.com"));
+
+        assertEquals("new@email.com", createdUser.getEmail(), "The email is incorrect");
+        verify(usersRepository, never()).findByEmail(anyString());
+        assertTrue(emailFilter.mightContain("new@email.com"), "Saved email should be added to the filter");
+    }
+
+    @Test
+    void testCreateUser_whenUserIsSaved_thenWriteUserCreatedEventToOutbox() {
+        when(passwordHasher.encode(anyString())).thenReturn("hashed");
+        when(usersRepository.save(any(UserEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ArgumentCaptor<OutboxEventEntity> event = ArgumentCaptor.forClass(OutboxEventEntity.class);
+
+        UserDto createdUser = usersService.createUser(newUser("event@email.com"));
+
+        verify(outboxEventRepository).save(event.capture());
+        assertEquals(createdUser.getUserId(), event.getValue().getAggregateId(), "Event should be keyed by the user id");
+        assertEquals(OutboxEvent.USER_CREATED, event.getValue().getType(), "Event type is incorrect");
+        assertTrue(event.getValue().getPayload().contains("\"email\":\"event@email.com\""), "Payload should describe the user");
+        assertFalse(event.getValue().getPayload().contains("hashed"), "Payload must not contain the password hash");
+    }
+
+    @Test
+    void testCreateUser_whenEmailMightExist_thenCheckDatabase() {
+        UserEntity existingUser = new UserEntity();
+        existingUser.setEmail("existing@email.com");
+        when(usersRepository.findByEmail("existing@email.com")).thenReturn(existingUser);
+
+        assertThrows(UsersServiceException.class, () -> usersService.createUser(newUser("existing@email.com")),
+                "Was expecting UsersServiceException to be thrown");
+    }
+
+    @Test
+    void testCreateUser_whenConcurrentSignupWinsUniqueIndex_thenThrowUsersServiceException() {
+        when(passwordHasher.encode(anyString())).thenReturn("hashed");
+        when(usersRepository.save(any(UserEntity.class))).thenThrow(new DataIntegrityViolationException("ux_users_email"));
+
+        UsersServiceException exception = assertThrows(UsersServiceException.class,
+                () -> usersService.createUser(newUser("racing@email.com")),
+                "Was expecting UsersServiceException to be thrown");
+        assertEquals("Record already exists", exception.getMessage(), "Exception message is incorrect");
+    }
+
+    @Test
+    void testCreateUsers_whenShardFails_thenReportItsRowsFailedInsteadOfThrowing() {
+        when(passwordHasher.encodeAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(usersRepository.saveAll(any())).thenThrow(new DataAccessResourceFailureException("shard is down"));
+
+        UserImportReport report = usersService.createUsers(List.of(newUser("first@email.com"), newUser("second@email.com")));
+
+        assertEquals(0, report.getCreatedCount(), "Nothing should be reported created");
+        for (UserImportResult result : report.getResults()) {
+            assertEquals(UserImportResult.Status.FAILED, result.getStatus(), result.getEmail() + " should be reported failed");
+        }
+        assertFalse(emailFilter.mightContain("first@email.com"), "Unsaved email should not be added to the filter");
+    }
+
+    @Test
+    void testCreateUserAsync_whenPasswordIsHashed_thenSaveOnSaveExecutorNotHashingThread() throws Exception {
+        when(passwordHasher.encodeAsync(anyString())).thenReturn(CompletableFuture.supplyAsync(() -> "hashed",
+                runnable -> new Thread(runnable, "password-hasher-1").start()));
+        List<String> savingThreads = new ArrayList<>();
+        when(usersRepository.save(any(UserEntity.class))).thenAnswer(invocation -> {
+            savingThreads.add(Thread.currentThread().getName());
+            return invocation.getArgument(0);
+        });
+
+        UserDto createdUser = usersService.createUserAsync(newUser("async@email.com")).get(5, TimeUnit.SECONDS);
+
+        assertEquals("async@email.com", createdUser.getEmail(), "The email is incorrect");
+        assertEquals(List.of("user-saver"), savingThreads, "User should be saved on the save executor");
+    }
+
+    private void awaitCoalescedCallers(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (callCount("coalesced") < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(callCount("coalesced") >= expected, "Callers should have joined the in-flight lookup");
+    }
+
+    private double callCount(String result) {
+        return meterRegistry.get("users.singleflight.calls").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.tutorials.junit.shared;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactUserDirectoryTest {
+
+    private static final String HASH = "$2a$10$" + "a".repeat(53);
+
+    @Test
+    void testGet_whenManyMoreUsersThanInitialCapacityAdded_thenReturnEachUsersCredentials() {
+        CompactUserDirectory directory = new CompactUserDirectory(16);
+        String[] userIds = new String[50_000];
+
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = UUID.randomUUID().toString();
+            assertTrue(directory.put("user" + i + "@mail.com", hash(i), userIds[i]), "User " + i + " was refused");
+        }
+
+        for (int i = 0; i < userIds.length; i++) {
+            CompactUserDirectory.Credentials credentials = directory.get("user" + i + "@mail.com");
+            assertNotNull(credentials, "User " + i + " is missing");
+            assertEquals(userIds[i], credentials.getUserId(), "UserId of user " + i + " is incorrect");
+            assertEquals(hash(i), credentials.getEncryptedPassword(), "Hash of user " + i + " is incorrect");
+        }
+        assertNull(directory.get("other@mail.com"), "Unknown email should not be found");
+        assertEquals(50_000, directory.size(), "Size is incorrect");
+        assertTrue(directory.memoryBytes() / directory.size() < 200, "Expected under 200 bytes per user but was "
+                + directory.memoryBytes() / directory.size());
+    }
+
+    @Test
+    void testPut_whenEmailAlreadyPresent_thenReplaceCredentials() {
+        CompactUserDirectory directory = new CompactUserDirectory(100);
+        String userId = UUID.randomUUID().toString();
+        directory.put("jöns@email.com", HASH, UUID.randomUUID().toString());
+
+        directory.put("jöns@email.com", hash(1), userId);
+
+        assertEquals(1, directory.size(), "Replacing should not add a user");
+        assertEquals(userId, directory.get("jöns@email.com").getUserId(), "UserId was not replaced");
+        assertEquals(hash(1), directory.get("jöns@email.com").getEncryptedPassword(), "Hash was not replaced");
+    }
+
+    @Test
+    void testPut_whenHashIsNotBCryptOrUserIdNotUuid_thenRefuse() {
+        CompactUserDirectory directory = new CompactUserDirectory(100);
+
+        assertFalse(directory.put("a@email.com", "{noop}12345678", UUID.randomUUID().toString()), "Short hash accepted");
+        assertFalse(directory.put("b@email.com", HASH.substring(1) + "é", UUID.randomUUID().toString()), "Non-ASCII hash accepted");
+        assertFalse(directory.put("c@email.com", HASH, "user-1"), "Non-UUID userId accepted");
+        assertEquals(0, directory.size(), "Nothing should have been stored");
+    }
+
+    private static String hash(int i) {
+        String suffix = Integer.toString(i);
+        return HASH.substring(0, HASH.length() - suffix.length()) + suffix;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.tutorials.junit.shared;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    void testMightContain_whenManyMoreValuesThanInitialCapacityAdded_thenNoFalseNegatives() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+
+        for (int i = 0; i < 50_000; i++) {
+            filter.add("user" + i + "@mail.com");
+        }
+
+        for (int i = 0; i < 50_000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@mail.com"), "Added value must always be reported");
+        }
+        assertTrue(filter.stageCount() > 1, "Filter should have grown beyond its first stage");
+        assertTrue(filter.size() > 49_000, "Size should count the added values");
+    }
+
+    @Test
+    void testMightContain_whenValuesWereNeverAdded_thenStayWithinFalsePositiveRate() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            filter.add("user" + i + "@mail.com");
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i + "@mail.com"))
+                falsePositives++;
+        }
+
+        assertTrue(falsePositives / 100_000.0 < 0.015,
+                "Observed false-positive rate " + falsePositives / 100_000.0 + " is too high");
+        assertTrue(filter.expectedFalsePositiveRate() < 0.015, "Estimated false-positive rate is too high");
+    }
+
+    @Test
+    void testAdd_whenValueAlreadyPresent_thenReturnFalse() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+
+        assertTrue(filter.add("jones@email.com"), "First add should change the filter");
+        assertFalse(filter.add("jones@email.com"), "Second add should not change the filter");
+        assertEquals(1, filter.size(), "Size is incorrect");
+    }
+}
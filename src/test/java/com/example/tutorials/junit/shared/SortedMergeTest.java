@@ -0,0 +1,21 @@
+package com.example.tutorials.junit.shared;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SortedMergeTest {
+
+    @Test
+    void testMerge_whenListsInterleave_thenReturnGlobalOrderAfterSkip() {
+        List<List<Integer>> shards = List.of(List.of(1, 4, 7, 10), List.of(2, 5, 8), List.of(), List.of(3, 6, 9));
+
+        assertEquals(List.of(1, 2, 3, 4), SortedMerge.merge(shards, Comparator.naturalOrder(), 0, 4), "First page is incorrect");
+        assertEquals(List.of(5, 6, 7, 8), SortedMerge.merge(shards, Comparator.naturalOrder(), 4, 4), "Second page is incorrect");
+        assertEquals(List.of(9, 10), SortedMerge.merge(shards, Comparator.naturalOrder(), 8, 4), "Last page is incorrect");
+        assertEquals(List.of(), SortedMerge.merge(shards, Comparator.naturalOrder(), 12, 4), "Past the end should be empty");
+    }
+}
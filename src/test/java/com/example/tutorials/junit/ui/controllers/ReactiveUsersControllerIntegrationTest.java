@@ -0,0 +1,163 @@
+package com.example.tutorials.junit.ui.controllers;
+
+import com.example.tutorials.junit.security.SecurityConstants;
+import com.example.tutorials.junit.ui.response.UserRest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReactiveUsersControllerIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    private String token;
+
+    @Test
+    @DisplayName("Reactive profile replaces the servlet stack")
+    @Order(1)
+    void testContext_whenReactiveProfileIsActive_thenNoServletBeansAreCreated() {
+        assertEquals(0, applicationContext.getBeanNamesForType(UsersController.class).length,
+                "Servlet controller should not be created");
+        assertTrue(applicationContext.getBeanNamesForType(WebClient.Builder.class).length > 0,
+                "WebFlux should be configured");
+    }
+
+    @Test
+    @DisplayName("User can be created")
+    @Order(2)
+    void testCreateUser_whenValidDetailsProvided_thenReturnUserDetails() {
+        UserRest createdUser = webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(userJson("reactive@email.com"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(UserRest.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(createdUser, "Created user should be returned");
+        assertEquals("reactive@email.com", createdUser.getEmail(), "The email is incorrect");
+        assertNotNull(createdUser.getUserId(), "Public user id should be generated");
+    }
+
+    @Test
+    @DisplayName("Duplicate email is rejected")
+    @Order(3)
+    void testCreateUser_whenEmailAlreadyExists_thenReturnServerError() {
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(userJson("reactive@email.com"))
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @Test
+    @DisplayName("GET /users requires JWT")
+    @Order(4)
+    void testGetUsers_whenMissingJWT_thenReturn403() {
+        webTestClient.get().uri("/users")
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    @Test
+    @DisplayName("/login works")
+    @Order(5)
+    void testUserLogin_whenValidCredentialsProvided_thenReturnsJwtInAuthorizationHeader() {
+        WebTestClient.ResponseSpec response = webTestClient.post().uri("/users/login")
+                .bodyValue("{\"email\":\"reactive@email.com\",\"password\":\"12345678\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("UserID");
+
+        token = response.returnResult(Void.class).getResponseHeaders().getFirst(SecurityConstants.HEADER_STRING);
+
+        assertNotNull(token, "Response should contain Authorization header with JWT");
+    }
+
+    @Test
+    @DisplayName("/login rejects a wrong password")
+    @Order(6)
+    void testUserLogin_whenPasswordIsWrong_thenReturn401() {
+        webTestClient.post().uri("/users/login")
+                .bodyValue("{\"email\":\"reactive@email.com\",\"password\":\"wrong-password\"}")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    @DisplayName("/login rejects a malformed body")
+    @Order(6)
+    void testUserLogin_whenBodyIsMalformed_thenReturn400() {
+        webTestClient.post().uri("/users/login")
+                .bodyValue("{\"email\":")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("/login rejects a body over 4 KB")
+    @Order(6)
+    void testUserLogin_whenBodyIsTooLarge_thenReturn400() {
+        webTestClient.post().uri("/users/login")
+                .bodyValue("{\"email\":\"reactive@email.com\",\"password\":\"" + "x".repeat(5000) + "\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("GET /users works")
+    @Order(7)
+    void testGetUsers_whenValidJWTProvided_thenReturnUsers() {
+        List<UserRest> users = webTestClient.get().uri("/users")
+                .header(SecurityConstants.HEADER_STRING, token)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(UserRest.class)
+                .returnResult().getResponseBody();
+
+        assertNotNull(users, "Users should be returned");
+        assertEquals(1, users.size(), "There should be exactly 1 user in the list");
+    }
+
+    @Test
+    @DisplayName("A user's JWT does not reach the metrics")
+    @Order(8)
+    void testPrometheus_whenUserJWTProvided_thenReturn403() {
+        webTestClient.get().uri("/actuator/prometheus")
+                .header(SecurityConstants.HEADER_STRING, token)
+                .exchange()
+                .expectStatus().isForbidden();
+        webTestClient.get().uri("/actuator/health")
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    private static String userJson(String email) {
+        return "{\"firstName\":\"John\",\"lastName\":\"Smith\",\"email\":\"" + email + "\","
+                + "\"password\":\"12345678\",\"repeatPassword\":\"12345678\"}";
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.tutorials.junit.ui.controllers;
 
 import com.example.tutorials.junit.security.SecurityConstants;
+import com.example.tutorials.junit.ui.response.UserImportResultRest;
 import com.example.tutorials.junit.ui.response.UserRest;
+import com.example.tutorials.junit.ui.response.UsersImportRest;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.jupiter.api.DisplayName;
@@ -25,9 +28,11 @@ import org.springframework.http.ResponseEntity;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -132,4 +137,112 @@ class UsersControllerIntegrationTest {
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size(), "There should be exactly 1 user in the list");
     }
+
+    @Test
+    @DisplayName("GET /users/export streams NDJSON")
+    @Order(5)
+    void testExportUsers_whenValidJwtProvided_thenStreamsOneLinePerUser() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Arrays.asList(MediaType.APPLICATION_NDJSON));
+        headers.setBearerAuth(token);
+
+        ResponseEntity<String> response = testRestTemplate.exchange("/users/export",
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status code should be 200 OK");
+        String[] lines = Objects.requireNonNull(response.getBody()).trim().split("\n");
+        assertEquals(1, lines.length, "There should be exactly 1 user in the export");
+        assertTrue(lines[0].contains(userID), "Exported line should contain the user id");
+    }
+
+    @Test
+    @DisplayName("POST /users/batch creates new users and reports duplicates")
+    @Order(6)
+    void testCreateUsers_whenBatchContainsDuplicates_thenReturnPerRowResults() throws JSONException {
+        JSONArray users = new JSONArray();
+        users.put(userJson("Maria", "Jones", "mariaj@email.com"));
+        users.put(userJson("John", "Smith", "jones@email.com"));
+        users.put(userJson("Maria", "Jones", "mariaj@email.com"));
+        users.put(userJson("Ann", "Brown", "annb@email.com"));
+
+        JSONObject usersImportJson = new JSONObject();
+        usersImportJson.put("users", users);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(Arrays.asList(MediaType.APPLICATION_JSON));
+        headers.setBearerAuth(token);
+
+        ResponseEntity<UsersImportRest> response = testRestTemplate.postForEntity("/users/batch",
+                new HttpEntity<>(usersImportJson.toString(), headers), UsersImportRest.class);
+
+        UsersImportRest usersImport = Objects.requireNonNull(response.getBody());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status code should be 200 OK");
+        assertEquals(2, usersImport.getCreatedCount(), "Only the two new emails should be created");
+        assertEquals(Arrays.asList("CREATED", "DUPLICATE", "DUPLICATE", "CREATED"),
+                usersImport.getResults().stream().map(UserImportResultRest::getStatus).collect(Collectors.toList()),
+                "Per-row statuses are incorrect");
+        assertNotNull(usersImport.getResults().get(0).getUserId(), "Created rows should carry a user id");
+    }
+
+    @Test
+    @DisplayName("GET /users answers 304 until a user changes")
+    @Order(7)
+    void testGetUsers_whenIfNoneMatchSent_thenReturn304UntilUsersChange() throws JSONException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Arrays.asList(MediaType.APPLICATION_JSON));
+        headers.setBearerAuth(token);
+
+        ResponseEntity<String> first = testRestTemplate.exchange("/users", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        String eTag = first.getHeaders().getETag();
+        assertNotNull(eTag, "Response should carry an ETag");
+        assertNotNull(first.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED), "Response should carry Last-Modified");
+
+        headers.setIfNoneMatch(eTag);
+        ResponseEntity<String> unchanged = testRestTemplate.exchange("/users", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.NOT_MODIFIED, unchanged.getStatusCode(), "Unchanged users should return 304");
+
+        HttpHeaders jsonHeaders = new HttpHeaders();
+        jsonHeaders.setContentType(MediaType.APPLICATION_JSON);
+        testRestTemplate.postForEntity("/users",
+                new HttpEntity<>(userJson("Kate", "Green", "kateg@email.com").toString(), jsonHeaders), String.class);
+
+        ResponseEntity<String> changed = testRestTemplate.exchange("/users", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertEquals(HttpStatus.OK, changed.getStatusCode(), "A new user should invalidate the ETag");
+        assertTrue(!eTag.equals(changed.getHeaders().getETag()), "ETag should have changed");
+    }
+
+    @Test
+    @DisplayName("GET /users/{userId} returns the user and honours If-None-Match")
+    @Order(8)
+    void testGetUser_whenUserExists_thenReturnUserAndSupport304() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Arrays.asList(MediaType.APPLICATION_JSON));
+        headers.setBearerAuth(token);
+
+        ResponseEntity<UserRest> response = testRestTemplate.exchange("/users/" + userID, HttpMethod.GET,
+                new HttpEntity<>(headers), UserRest.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode(), "Status code should be 200 OK");
+        assertEquals("jones@email.com", Objects.requireNonNull(response.getBody()).getEmail(), "The email is incorrect");
+
+        headers.setIfNoneMatch(Objects.requireNonNull(response.getHeaders().getETag()));
+        ResponseEntity<UserRest> unchanged = testRestTemplate.exchange("/users/" + userID, HttpMethod.GET,
+                new HttpEntity<>(headers), UserRest.class);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, unchanged.getStatusCode(), "Unchanged user should return 304");
+    }
+
+    private static JSONObject userJson(String firstName, String lastName, String email) throws JSONException {
+        JSONObject userDetailsRequestJson = new JSONObject();
+        userDetailsRequestJson.put("firstName", firstName);
+        userDetailsRequestJson.put("lastName", lastName);
+        userDetailsRequestJson.put("email", email);
+        userDetailsRequestJson.put("password", "12345678");
+        userDetailsRequestJson.put("repeatPassword", "12345678");
+        return userDetailsRequestJson;
+    }
 }
@@ -1,10 +1,15 @@
 package com.example.tutorials.junit.ui.controllers;
 
+import com.example.tutorials.junit.exceptions.ServiceUnavailableException;
 import com.example.tutorials.junit.service.UsersService;
+import com.example.tutorials.junit.shared.PageCursor;
+import com.example.tutorials.junit.shared.ResourceVersion;
 import com.example.tutorials.junit.shared.UserDto;
 import com.example.tutorials.junit.ui.request.UserDetailsRequestModel;
 import com.example.tutorials.junit.ui.response.UserRest;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,6 +20,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -23,14 +30,21 @@ import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilde
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 
 @WebMvcTest(controllers = UsersController.class,
         excludeAutoConfiguration = {SecurityAutoConfiguration.class})
@@ -60,6 +74,8 @@ class UsersControllerTest {
 
         userDto = new ModelMapper().map(userDetailsRequestModel, UserDto.class);
         userDto.setUserId(UUID.randomUUID().toString());
+
+        when(usersService.getUsersVersion()).thenReturn(new ResourceVersion("W/\"1\"", 1_700_000_000_000L));
     }
 
     @Test
@@ -86,6 +102,175 @@ class UsersControllerTest {
         assertFalse(createdUser.getUserId().isEmpty(), "userId should not be empty");
     }
 
+    @Test
+    @DisplayName("User can be created asynchronously")
+    void testCreateUserAsync_whenValidUserDetailsProvided_thenReturnCreateUserDetails() throws Exception {
+        when(usersService.createUserAsync(any(UserDto.class))).thenReturn(CompletableFuture.completedFuture(userDto));
+
+        MockHttpServletRequestBuilder requestBuilder = MockMvcRequestBuilders.post("/users/async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(userDetailsRequestModel));
+
+        MvcResult asyncResult = mockMvc.perform(requestBuilder).andReturn();
+        MvcResult mvcResult = mockMvc.perform(asyncDispatch(asyncResult)).andReturn();
+
+        UserRest createdUser = new ObjectMapper().readValue(mvcResult.getResponse().getContentAsString(), UserRest.class);
+
+        assertEquals(userDetailsRequestModel.getFirstName(),
+                createdUser.getFirstName(), "The returned user first name is incorrect");
+        assertEquals(userDto.getUserId(), createdUser.getUserId(), "The returned user id is incorrect");
+    }
+
+    @Test
+    @DisplayName("Saturated password hashing returns 503")
+    void testCreateUser_whenHashingIsSaturated_thenReturn503() throws Exception {
+        when(usersService.createUser(any(UserDto.class)))
+                .thenThrow(new ServiceUnavailableException("Password hashing capacity exceeded"));
+
+        MockHttpServletRequestBuilder requestBuilder = MockMvcRequestBuilders.post("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(new ObjectMapper().writeValueAsString(userDetailsRequestModel));
+
+        MvcResult mvcResult = mockMvc.perform(requestBuilder).andReturn();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), mvcResult.getResponse().getStatus(),
+                INCORRECT_HTTP_STATUS_CODE_RETURNED);
+        assertEquals("1", mvcResult.getResponse().getHeader("Retry-After"), "Retry-After header is missing");
+    }
+
+    @Test
+    @DisplayName("Keyset page returns the cursor of its last user")
+    void testGetUsersAfter_whenPageIsFull_thenReturnNextCursor() throws Exception {
+        userDto.setId(42);
+        when(usersService.getUsersAfter(eq(0L), anyInt())).thenReturn(List.of(userDto));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                .param("after", "")
+                .param("limit", "1")
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        assertEquals(HttpStatus.OK.value(), mvcResult.getResponse().getStatus(), INCORRECT_HTTP_STATUS_CODE_RETURNED);
+        assertEquals(PageCursor.encode(42), mvcResult.getResponse().getHeader(UsersController.NEXT_CURSOR_HEADER),
+                "Next cursor should point at the last returned user");
+    }
+
+    @Test
+    @DisplayName("Unchanged users page returns 304 without querying")
+    void testGetUsers_whenETagStillCurrent_thenReturn304() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"1-json\"")
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), mvcResult.getResponse().getStatus(), INCORRECT_HTTP_STATUS_CODE_RETURNED);
+        assertEquals("", mvcResult.getResponse().getContentAsString(), "304 should have no body");
+        verify(usersService, never()).getUsers(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Stale ETag returns the page with the current ETag")
+    void testGetUsers_whenETagStale_thenReturnPageAndCurrentETag() throws Exception {
+        when(usersService.getUsers(anyInt(), anyInt())).thenReturn(List.of(userDto));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"0\"")
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        assertEquals(HttpStatus.OK.value(), mvcResult.getResponse().getStatus(), INCORRECT_HTTP_STATUS_CODE_RETURNED);
+        assertEquals("W/\"1-json\"", mvcResult.getResponse().getHeader(HttpHeaders.ETAG), "ETag is incorrect");
+        assertTrue(mvcResult.getResponse().getContentAsString().contains(userDto.getUserId()), "Page should be returned");
+    }
+
+    @ParameterizedTest
+    @CsvSource({"application/x-jackson-smile", "application/cbor"})
+    @DisplayName("Users page is served in the binary format the client accepts")
+    void testGetUsers_whenBinaryFormatAccepted_thenReturnPageInThatFormat(String mediaType) throws Exception {
+        when(usersService.getUsers(anyInt(), anyInt())).thenReturn(List.of(userDto));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                .accept(mediaType)).andReturn();
+
+        assertEquals(HttpStatus.OK.value(), mvcResult.getResponse().getStatus(), INCORRECT_HTTP_STATUS_CODE_RETURNED);
+        assertEquals(mediaType, mvcResult.getResponse().getContentType(), "Content type should follow the Accept header");
+        ObjectMapper binaryMapper = new ObjectMapper(mediaType.endsWith("cbor") ? new CBORFactory() : new SmileFactory());
+        UserRest[] users = binaryMapper.readValue(mvcResult.getResponse().getContentAsByteArray(), UserRest[].class);
+        assertEquals(userDto.getUserId(), users[0].getUserId(), "The returned user id is incorrect");
+    }
+
+    @Test
+    @DisplayName("JSON ETag does not validate the CBOR representation")
+    void testGetUsers_whenJsonETagSentForCbor_thenReturnPageWithCborETag() throws Exception {
+        when(usersService.getUsers(anyInt(), anyInt())).thenReturn(List.of(userDto));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"1-json\"")
+                .accept(MediaType.APPLICATION_CBOR)).andReturn();
+
+        assertEquals(HttpStatus.OK.value(), mvcResult.getResponse().getStatus(), INCORRECT_HTTP_STATUS_CODE_RETURNED);
+        assertEquals("W/\"1-cbor\"", mvcResult.getResponse().getHeader(HttpHeaders.ETAG), "ETag should name the format");
+    }
+
+    @Test
+    @DisplayName("Negotiated responses vary on Accept and Accept-Encoding")
+    void testGetUsers_whenFormatNegotiated_thenVaryOnAcceptAndAcceptEncoding() throws Exception {
+        when(usersService.getUsers(anyInt(), anyInt())).thenReturn(List.of(userDto));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        assertEquals(List.of("Accept, Accept-Encoding"), mvcResult.getResponse().getHeaders(HttpHeaders.VARY),
+                "Vary header is incorrect");
+    }
+
+    @Test
+    @DisplayName("Any media type is answered with JSON")
+    void testGetUsers_whenAnyMediaTypeAccepted_thenReturnJson() throws Exception {
+        when(usersService.getUsers(anyInt(), anyInt())).thenReturn(List.of(userDto));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                .accept(MediaType.ALL)).andReturn();
+
+        assertEquals(MediaType.APPLICATION_JSON_VALUE, mvcResult.getResponse().getContentType(), "JSON should stay the default");
+    }
+
+    @Test
+    @DisplayName("Unknown user id returns 404")
+    void testGetUser_whenUserIdUnknown_thenReturn404() throws Exception {
+        when(usersService.getUserByUserId("unknown")).thenThrow(new UsernameNotFoundException("unknown"));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/users/unknown")
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        assertEquals(HttpStatus.NOT_FOUND.value(), mvcResult.getResponse().getStatus(), INCORRECT_HTTP_STATUS_CODE_RETURNED);
+    }
+
+    @Test
+    @DisplayName("Malformed cursor returns 400")
+    void testGetUsersAfter_whenCursorIsMalformed_thenReturn400() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                .param("after", "not-a-cursor")
+                .accept(MediaType.APPLICATION_JSON)).andReturn();
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), mvcResult.getResponse().getStatus(), INCORRECT_HTTP_STATUS_CODE_RETURNED);
+    }
+
+    @Test
+    @DisplayName("Empty batch throws MethodArgumentNotValidException")
+    void testCreateUsers_whenBatchIsEmpty_thenThrowMethodArgumentNotValidException() throws Exception {
+        MockHttpServletRequestBuilder requestBuilder = MockMvcRequestBuilders.post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content("{\"users\": []}");
+
+        MvcResult mvcResult = mockMvc.perform(requestBuilder).andReturn();
+
+        assertEquals(MethodArgumentNotValidException.class, Objects.requireNonNull(mvcResult.getResolvedException()).getClass(),
+                METHOD_ARGUMENT_NOT_VALID_EXCEPTION_SHOULD_BE_THROWN);
+        assertEquals(HttpStatus.BAD_REQUEST.value(), mvcResult.getResponse().getStatus(),
+                INCORRECT_HTTP_STATUS_CODE_RETURNED);
+    }
+
     @ParameterizedTest
     @CsvSource({
             "'', Smith, johns@mail.com, 12345678, 12345678",